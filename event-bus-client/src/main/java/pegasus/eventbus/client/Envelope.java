@@ -15,6 +15,8 @@ public class Envelope {
 	private String topic;
 	private String eventType;
 	private String replyTo;
+	private String contentType;
+	private String contentEncoding;
 	private Date timestamp;
 	private byte[] body = {};
 	private Map<String, String> headers = new HashMap<String, String>();
@@ -75,6 +77,28 @@ public class Envelope {
 		this.replyTo = replyTo;
 	}
 
+	/**
+	 * @return The MIME type of the body, which tells consumers how to deserialize it, or null if the publisher did not say.
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	/**
+	 * @return The encoding, such as compression, applied to the body on top of its content type, or null if there is none.
+	 */
+	public String getContentEncoding() {
+		return contentEncoding;
+	}
+
+	public void setContentEncoding(String contentEncoding) {
+		this.contentEncoding = contentEncoding;
+	}
+
 	public Date getTimestamp() {
 		return timestamp;
 	}
@@ -88,6 +112,7 @@ public class Envelope {
 				{ "REPLYTO", this.getReplyTo() },
 				{ "EVENT_TYPE", this.getEventType() },
 				{ "TOPIC", this.getTopic() },
+				{ "CONTENT_TYPE", this.getContentType() },
 				{ "ID", "" + this.getId() },
 				{ "CORRELATION_ID", "" + this.getCorrelationId() },
 		};
@@ -1,5 +1,8 @@
 package pegasus.eventbus.client;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -25,6 +28,15 @@ public interface EventManager {
      */
     void publish(Object event);
 
+    /**
+     * Publishes a batch of events to the bus. This is considerably cheaper than calling {@link #publish(Object)} for each event as routes are resolved once per event
+     * type and all events are written to the broker together.
+     * 
+     * @param events
+     *            The events to publish, in the order they should be sent.
+     */
+    void publishAll(Collection<?> events);
+
     /**
      * Subscribes an {@link EventHandler} to receive one or more event types according to the value returned by the handler's {@link EventHandler#getHandledEventTypes()} method. Subscriptions created
      * with this overload are not durable.
@@ -100,6 +112,37 @@ public interface EventManager {
      */
     <TResponse> TResponse getResponseTo(Object event, int timeoutMills, Class<? extends TResponse>... responseTypes) throws InterruptedException, TimeoutException;
 
+    /**
+     * Publishes an event and returns immediately with a future for the first responding event, allowing many requests to be outstanding at once from a single
+     * thread. Responses must be sent by means of the {@link EventManager#respondTo(Object, Object)} method.
+     * 
+     * @param event
+     *            The event to publish
+     * @param timeoutMills
+     *            A timeout value in milliseconds after which the future fails with a {@link TimeoutException} if no response has been received. Pass a value
+     *            less than 1 to wait indefinitely.
+     * @param responseTypes
+     *            The list of eventTypes that may be received as responses.
+     * @return a future for the first event received in response to this event. Cancelling the future stops the manager from waiting for a response.
+     */
+    <TResponse> Future<TResponse> request(Object event, int timeoutMills, Class<? extends TResponse>... responseTypes);
+
+    /**
+     * Publishes an event and returns immediately with a future that collects the responding events (scatter-gather). The future completes once maxResponses
+     * responses have been received or once the timeout elapses, whichever comes first, yielding whatever responses were received by then.
+     * 
+     * @param event
+     *            The event to publish
+     * @param maxResponses
+     *            The number of responses after which to stop waiting. Pass a value less than 1 to collect all responses received within the timeout.
+     * @param timeoutMills
+     *            The time in milliseconds to collect responses for. Must be at least 1 if maxResponses is less than 1.
+     * @param responseTypes
+     *            The list of eventTypes that may be received as responses.
+     * @return a future for the events received in response to this event, in the order they were received.
+     */
+    <TResponse> Future<List<TResponse>> gatherResponsesTo(Object event, int maxResponses, int timeoutMills, Class<? extends TResponse>... responseTypes);
+
     /**
      * Publishes an event provides an event handler to accept responses asynchronously. Responses must be sent by means of the {@link EventHandler#respondTo(Event, Event)} method.
      * 
@@ -7,6 +7,7 @@ public class Subscription {
     private String          queueName;
     private boolean         isDurable;
     private int             numberOfThreads = 1;
+    private int             prefetchCount   = 0;
 
     /**
      * Subscribes an {@link EventHandler} to receive one or more event types according to the value returned by the handler's {@link EventHandler#getHandledEventTypes()} method.
@@ -150,6 +151,28 @@ public class Subscription {
      * thread safe, then setting this value to a number greater than 1 can improve performance.
      */
     public void setNumberOfThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("numberOfThreads must be at least 1.");
+        }
         this.numberOfThreads = threads;
     }
+
+    /**
+     * The maximum number of events that will be delivered to each of the subscription's threads ahead of being handled. Higher values improve throughput for fast
+     * handlers at the cost of client memory. The default of 0 uses the event manager's default limit.
+     */
+    public int getPrefetchCount() {
+        return this.prefetchCount;
+    }
+
+    /**
+     * The maximum number of events that will be delivered to each of the subscription's threads ahead of being handled. Higher values improve throughput for fast
+     * handlers at the cost of client memory. The default of 0 uses the event manager's default limit.
+     */
+    public void setPrefetchCount(int prefetchCount) {
+        if (prefetchCount < 0) {
+            throw new IllegalArgumentException("prefetchCount may not be negative.");
+        }
+        this.prefetchCount = prefetchCount;
+    }
 }
@@ -50,6 +50,18 @@ public class SubscriptionTest {
         new Subscription(nonNullEnvelopeHandler, null);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void settingNumberOfThreadsBelowOneShouldThrow() {
+        Subscription sub = new Subscription(nonNullEventHandler);
+        sub.setNumberOfThreads(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void settingANegativePrefetchCountShouldThrow() {
+        Subscription sub = new Subscription(nonNullEventHandler);
+        sub.setPrefetchCount(-1);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void settingQueueNameToZeroLengthStringShouldThrow() {
         Subscription sub = new Subscription(nonNullEventHandler);
@@ -1,13 +1,16 @@
 package pegasus.eventbus.amqp;
 
+import java.io.File;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.concurrent.ExecutorService;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import pegasus.eventbus.binary.BinarySerializer;
 import pegasus.eventbus.client.EventBusConfiguration;
 import pegasus.eventbus.gson.GsonSerializer;
 import pegasus.eventbus.rabbitmq.RabbitConnection;
@@ -16,6 +19,7 @@ import pegasus.eventbus.topology.CompositeTopologyManager;
 import pegasus.eventbus.topology.FallbackTopologyManager;
 import pegasus.eventbus.topology.GlobalTopologyServiceManager;
 import pegasus.eventbus.topology.StaticTopologyManager;
+import pegasus.eventbus.topology.TopologyCache;
 
 /**
  * Container for all the nasty settings and providers necessary to make the AmqpEventManager work. We recommend using the default configuration, accessed by the static functions "getDefault", which
@@ -46,6 +50,11 @@ public class AmqpConfiguration implements EventBusConfiguration {
     private AmqpMessageBus           amqpMessageBus;
     private TopologyManager          topologyManager;
     private Serializer               serializer;
+    private SerializerRegistry       serializerRegistry;
+    private PayloadCompressor        payloadCompressor;
+    private IdGenerator              idGenerator                  = new RandomIdGenerator();
+    private ExecutorService          consumerExecutor;
+    private int                      maxInflatedBodyBytes         = PayloadCompressor.DEFAULT_MAX_INFLATED_BYTES;
 
     /**
      * Get the Name of the Client.
@@ -141,7 +150,8 @@ public class AmqpConfiguration implements EventBusConfiguration {
     }
 
     /**
-     * Set the Serializer.
+     * Set the Serializer. Defaults to a {@link GsonSerializer}; a {@link BinarySerializer} produces smaller payloads more cheaply. Consumers read envelopes in
+     * either format whichever Serializer they are configured with. Ignored if a {@link SerializerRegistry} is set.
      * 
      * @param serializer
      *            Serializer used to SerDe objects
@@ -150,6 +160,106 @@ public class AmqpConfiguration implements EventBusConfiguration {
         this.serializer = serializer;
     }
 
+    /**
+     * Get the SerializerRegistry.
+     * 
+     * @return The SerializerRegistry, or null if events are to be written and read by the Serializer alone.
+     */
+    public SerializerRegistry getSerializerRegistry() {
+        return serializerRegistry;
+    }
+
+    /**
+     * Set the SerializerRegistry, which picks a Serializer for each event type and each content type received, so that event types can be moved to a new format
+     * one at a time. Takes precedence over the Serializer.
+     * 
+     * @param serializerRegistry
+     *            Registry of the Serializers used to SerDe objects
+     */
+    public void setSerializerRegistry(SerializerRegistry serializerRegistry) {
+        this.serializerRegistry = serializerRegistry;
+    }
+
+    /**
+     * Get the PayloadCompressor.
+     * 
+     * @return The PayloadCompressor, or null if bodies are published uncompressed.
+     */
+    public PayloadCompressor getPayloadCompressor() {
+        return payloadCompressor;
+    }
+
+    /**
+     * Set the PayloadCompressor, which deflates serialized bodies above its size threshold before they are published. Off (null) by default; consumers inflate
+     * compressed bodies whether or not they compress their own.
+     * 
+     * @param payloadCompressor
+     *            Compressor applied to the bodies of published envelopes
+     */
+    public void setPayloadCompressor(PayloadCompressor payloadCompressor) {
+        this.payloadCompressor = payloadCompressor;
+    }
+
+    /**
+     * Get the generator of envelope ids.
+     * 
+     * @return The IdGenerator
+     */
+    public IdGenerator getIdGenerator() {
+        return idGenerator;
+    }
+
+    /**
+     * Set the generator of envelope ids. Defaults to a {@link RandomIdGenerator}; high volume publishers may prefer a {@link SequentialIdGenerator}.
+     * 
+     * @param idGenerator
+     *            Generator used to assign ids to published envelopes
+     */
+    public void setIdGenerator(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Get the executor on which event handlers are run.
+     * 
+     * @return The consumer ExecutorService, or null if handlers run on the AMQP client's own threads.
+     */
+    public ExecutorService getConsumerExecutor() {
+        return consumerExecutor;
+    }
+
+    /**
+     * Set the executor on which event handlers are run. By default (null) handlers run on the AMQP client's own dispatch threads, where one blocking handler holds
+     * up others. {@link ConsumerExecutors#newVirtualThreadPerTaskExecutor()} suits handlers that block on I/O. Each subscription thread still handles its events
+     * one at a time and in order. The caller is responsible for shutting the executor down after the event manager is closed.
+     * 
+     * @param consumerExecutor
+     *            Executor used to run event handlers
+     */
+    public void setConsumerExecutor(ExecutorService consumerExecutor) {
+        this.consumerExecutor = consumerExecutor;
+    }
+
+    /**
+     * Get the largest a deflated body may inflate to.
+     * 
+     * @return The limit in bytes
+     */
+    public int getMaxInflatedBodyBytes() {
+        return maxInflatedBodyBytes;
+    }
+
+    /**
+     * Set the largest a deflated body may inflate to. Deliveries whose bodies would inflate to more are rejected rather than handled, so that a small, highly
+     * compressed message cannot exhaust the heap. Defaults to {@link PayloadCompressor#DEFAULT_MAX_INFLATED_BYTES}.
+     * 
+     * @param maxInflatedBodyBytes
+     *            The limit in bytes
+     */
+    public void setMaxInflatedBodyBytes(int maxInflatedBodyBytes) {
+        this.maxInflatedBodyBytes = maxInflatedBodyBytes;
+    }
+
     /**
      * If client name is null, attempt to pull the host name from the environment or fall back to "UNKNOWN"
      * 
@@ -262,13 +372,31 @@ public class AmqpConfiguration implements EventBusConfiguration {
      * @return Default Configuration
      */
     public static AmqpConfiguration getDefault(String clientName, AmqpConnectionParameters connectionParameters) {
+        return getDefault(clientName, connectionParameters, null);
+    }
+
+    /**
+     * Get the default configuration for the EventManager
+     * 
+     * @param clientName
+     *            Unique name for this client instance
+     * @param connectionParameters
+     *            Connection Parameters.
+     * @param topologyCacheFile
+     *            File in which to keep the last topology received from the global topology service, so that later runs can route events before the service
+     *            responds; null for no cache.
+     * @return Default Configuration
+     */
+    public static AmqpConfiguration getDefault(String clientName, AmqpConnectionParameters connectionParameters, File topologyCacheFile) {
         RabbitConnection rabbitConnection = new RabbitConnection(connectionParameters);
         AmqpMessageBus amqpMessageBus = new RabbitMessageBus(rabbitConnection);
         CompositeTopologyManager compositeTopologyManager = new CompositeTopologyManager();
         TopologyManager fixedTopologyManager = new StaticTopologyManager();
         compositeTopologyManager.addManager(fixedTopologyManager);
         //TODO: Make the heartbeat interval configurable?
-        TopologyManager globalTopologyService = new GlobalTopologyServiceManager(clientName, 300);
+        TopologyCache topologyCache = topologyCacheFile == null ? null : new TopologyCache(topologyCacheFile);
+        GlobalTopologyServiceManager globalTopologyService = new GlobalTopologyServiceManager(clientName, 300, topologyCache);
+        globalTopologyService.attachTopologyUpdateListener(compositeTopologyManager);
         compositeTopologyManager.addManager(globalTopologyService);
         TopologyManager fallbackToplogyService = new FallbackTopologyManager();
         compositeTopologyManager.addManager(fallbackToplogyService);
@@ -1,17 +1,23 @@
 package pegasus.eventbus.amqp;
 
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
-import org.apache.commons.lang.time.StopWatch;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +29,12 @@ import pegasus.eventbus.client.EventManager;
 import pegasus.eventbus.client.Subscription;
 import pegasus.eventbus.client.SubscriptionToken;
 
+import com.google.common.base.Function;
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
 /**
  * An implementation of the Event Manager based on the AMQP specification.
  * 
@@ -39,10 +51,23 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
     private final String                               clientName;
     private final AmqpMessageBus                       messageBus;
     private final TopologyManager                      topologyManager;
-    private final Serializer                           serializer;
+    private final SerializerRegistry                   serializerRegistry;
+    private final PayloadCompressor                    payloadCompressor;
+    private final IdGenerator                          idGenerator;
+
+    // Class.getCanonicalName() builds a new string on every call, so event type names are computed once per class.
+    private final Map<Class<?>, String>                eventTypeNames               = new ConcurrentHashMap<Class<?>, String>();
 
     private Map<SubscriptionToken, ActiveSubscription> activeSubscriptions          = new HashMap<SubscriptionToken, ActiveSubscription>();
-    private Map<Object, Envelope>                      envelopesBeingHandled        = new HashMap<Object, Envelope>();
+    // Keyed by identity, as events are user objects whose equals() may treat distinct events as equal, and written by every consumer thread.
+    private final Map<Object, Envelope>                envelopesBeingHandled        = new MapMaker().weakKeys().makeMap();
+    // All RPC responses arrive on a single reply-to queue, created on first use and routed to their requesters by correlation id.
+    private final ResponseDispatcher                   responseDispatcher           = new ResponseDispatcher();
+    private final Map<SubscriptionToken, UUID>         pendingRequestIds            = new ConcurrentHashMap<SubscriptionToken, UUID>();
+    private final Set<Class<?>>                        replyQueueResponseTypes      = new HashSet<Class<?>>();
+    private String                                     replyQueueName;
+    private ScheduledExecutorService                   requestDeadlineScheduler;
+    private SubscriptionToken                          replyQueueToken;
     private Set<StartListener>                         startListeners               = new HashSet<StartListener>();
     private Set<CloseListener>                         closeListeners               = new HashSet<CloseListener>();
     private Set<SubscribeListener>                     subscribeListeners           = new HashSet<SubscribeListener>();
@@ -61,7 +86,15 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
         this.clientName = configuration.getClientName();
         this.messageBus = configuration.getAmqpMessageBus();
         this.topologyManager = configuration.getTopologyManager();
-        this.serializer = configuration.getSerializer();
+        this.serializerRegistry = configuration.getSerializerRegistry() == null ? new SerializerRegistry(configuration.getSerializer()) : configuration
+                .getSerializerRegistry();
+        this.payloadCompressor = configuration.getPayloadCompressor();
+        this.idGenerator = configuration.getIdGenerator() == null ? new RandomIdGenerator() : configuration.getIdGenerator();
+
+        if (configuration.getConsumerExecutor() != null) {
+            messageBus.setConsumerExecutor(configuration.getConsumerExecutor());
+        }
+        messageBus.setMaxInflatedBodyBytes(configuration.getMaxInflatedBodyBytes());
     }
 
     /**
@@ -101,6 +134,13 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
         	activeSubscriptions.clear();
 		}
 
+        synchronized (this) {
+            if (requestDeadlineScheduler != null) {
+                requestDeadlineScheduler.shutdown();
+                requestDeadlineScheduler = null;
+            }
+        }
+
         LOG.trace("Closing the connection to the broker.");
 
         messageBus.close();
@@ -120,6 +160,62 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
         publish(event, null, false);
     }
 
+    /**
+     * Publish a batch of Events on the Bus. Each event type's route is resolved (and its exchange ensured) only once and the whole batch is handed to the message
+     * bus in a single call.
+     * 
+     * @param events
+     *            Events (messages) to publish.
+     */
+    @Override
+    public void publishAll(Collection<?> events) {
+
+        LOG.debug("Publishing batch of [{}] events on the bus.", events.size());
+
+        if (events.isEmpty()) {
+            return;
+        }
+
+        Map<Class<?>, RoutingInfo> routesByEventType = new HashMap<Class<?>, RoutingInfo>();
+        List<RoutingInfo> routes = new ArrayList<RoutingInfo>(events.size());
+        List<Envelope> envelopes = new ArrayList<Envelope>(events.size());
+
+        for (Object event : events) {
+
+            RoutingInfo route = routesByEventType.get(event.getClass());
+            if (route == null) {
+
+                route = getRouteForEvent(event);
+
+                ensureRouteExists(route);
+
+                routesByEventType.put(event.getClass(), route);
+            }
+
+            routes.add(route);
+            envelopes.add(createEnvelope(event, route, null));
+        }
+
+        LOG.trace("Publishing batch to the message bus instance.");
+
+        messageBus.publishBatch(routes, envelopes);
+    }
+
+    /**
+     * Publish an Event on the Bus and track whether the broker accepts it. Requires the underlying message bus to have publisher confirms enabled (see
+     * {@link pegasus.eventbus.rabbitmq.RabbitMessageBus#setPublisherConfirmWindow(int)}).
+     * 
+     * @param event
+     *            Event (message) to publish.
+     * @return A future that yields true once the broker has accepted the event or false if the broker rejected it.
+     */
+    public ListenableFuture<Boolean> publishWithConfirmation(Object event) {
+
+        LOG.debug("Publishing event of type [{}] on the bus with confirmation.", event.getClass().getName());
+
+        return publish(event, idGenerator.nextId(), null, null, false, true);
+    }
+
     /**
      * Actual implementation of publishing a message on the bus, taking into account the need for a reply, or optionally, the publishing of this message as a reply to another event.
      * 
@@ -131,19 +227,34 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
      *            Is this message being sent as a reply?
      */
     private void publish(Object event, String replyToQueue, boolean sendToReplyToQueue) {
+        publish(event, idGenerator.nextId(), replyToQueue, null, sendToReplyToQueue, false);
+    }
 
-        LOG.trace("Publishing event of type [{}].  Expect Response? {}; Is this a reply? = {}", new Object[] { event.getClass().getName(), replyToQueue != null, sendToReplyToQueue });
-
-        LOG.trace("Finding the correct routing info for event [{}]", event.getClass().getName());
-
-        RoutingInfo route = topologyManager.getRoutingInfoForEvent(event.getClass());
-        if (route == null) {
-
-            LOG.error(String.format("No route found for event {}", event));
+    /**
+     * Actual implementation of publishing a message on the bus, taking into account the need for a reply, or optionally, the publishing of this message as a reply to another event.
+     * 
+     * @param event
+     *            Event to publish
+     * @param eventId
+     *            Id of the published envelope
+     * @param replyToQueue
+     *            ReplyTo Queue
+     * @param correlationId
+     *            Id of the request this message responds to, if any
+     * @param sendToReplyToQueue
+     *            Is this message being sent as a reply?
+     * @param confirm
+     *            Should the broker's acceptance of the message be tracked?
+     * @return The confirmation future if confirm was requested, otherwise null.
+     */
+    private ListenableFuture<Boolean> publish(Object event, UUID eventId, String replyToQueue, UUID correlationId, boolean sendToReplyToQueue, boolean confirm) {
 
-            throw new RuntimeException(String.format("Unknown route for event {}", event));
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Publishing event of type [{}].  Expect Response? {}; Is this a reply? = {}", new Object[] { event.getClass().getName(), replyToQueue != null, sendToReplyToQueue });
         }
 
+        RoutingInfo route = getRouteForEvent(event);
+
         if (sendToReplyToQueue) {
 
             LOG.trace("Creating Routing Info for the ReplyTo queue.");
@@ -157,23 +268,100 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
             ensureRouteExists(route);
         }
 
+        Envelope envelope = createEnvelope(event, eventId, route, replyToQueue, correlationId);
+
+        LOG.trace("Publishing to the message bus instance.");
+
+        if (confirm) {
+            return messageBus.publishWithConfirmation(route, envelope);
+        }
+
+        messageBus.publish(route, envelope);
+        return null;
+    }
+
+    /**
+     * Looks up the route on which an event should be published.
+     * 
+     * @param event
+     *            Event to publish
+     * @return The event's route
+     */
+    private RoutingInfo getRouteForEvent(Object event) {
+
+        LOG.trace("Finding the correct routing info for event [{}]", event.getClass().getName());
+
+        RoutingInfo route = topologyManager.getRoutingInfoForEvent(event.getClass());
+        if (route == null) {
+
+            LOG.error(String.format("No route found for event {}", event));
+
+            throw new RuntimeException(String.format("Unknown route for event {}", event));
+        }
+        return route;
+    }
+
+    /**
+     * Serializes an event and wraps it in an envelope ready for publishing.
+     * 
+     * @param event
+     *            Event to publish
+     * @param route
+     *            Route the event will be published on
+     * @param replyToQueue
+     *            ReplyTo Queue
+     * @return The envelope
+     */
+    private Envelope createEnvelope(Object event, RoutingInfo route, String replyToQueue) {
+        return createEnvelope(event, idGenerator.nextId(), route, replyToQueue, null);
+    }
+
+    /**
+     * Serializes an event and wraps it in an envelope ready for publishing.
+     * 
+     * @param event
+     *            Event to publish
+     * @param eventId
+     *            Id of the envelope
+     * @param route
+     *            Route the event will be published on
+     * @param replyToQueue
+     *            ReplyTo Queue
+     * @param correlationId
+     *            Id of the request the event responds to, if any
+     * @return The envelope
+     */
+    private Envelope createEnvelope(Object event, UUID eventId, RoutingInfo route, String replyToQueue, UUID correlationId) {
+
         LOG.trace("Serializing the event to byte array.");
 
+        Serializer serializer = serializerRegistry.getSerializerForEventType(event.getClass());
         byte[] body = serializer.serialize(event);
 
         LOG.trace("Creating envelope.");
 
         Envelope envelope = new Envelope();
-        envelope.setId(UUID.randomUUID());
+        envelope.setId(eventId);
+        envelope.setCorrelationId(correlationId);
         envelope.setTopic(route.getRoutingKey());
-        envelope.setEventType(event.getClass().getCanonicalName());
+        envelope.setEventType(getEventTypeName(event.getClass()));
         envelope.setReplyTo(replyToQueue);
-        envelope.setTimestamp(Calendar.getInstance().getTime());
+        envelope.setTimestamp(new Date());
         envelope.setBody(body);
+        envelope.setContentType(SerializerRegistry.getContentType(serializer));
+        if (payloadCompressor != null) {
+            payloadCompressor.compress(envelope);
+        }
+        return envelope;
+    }
 
-        LOG.trace("Publishing to the message bus instance.");
-
-        messageBus.publish(route, envelope);
+    private String getEventTypeName(Class<?> eventClass) {
+        String eventTypeName = eventTypeNames.get(eventClass);
+        if (eventTypeName == null) {
+            eventTypeName = eventClass.getCanonicalName();
+            eventTypeNames.put(eventClass, eventTypeName);
+        }
+        return eventTypeName;
     }
 
     /**
@@ -349,7 +537,8 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
 
         LOG.trace("Creating new queue listener for subscription.");
 
-        QueueListener queueListener = new QueueListener(messageBus, queueName, subscription.getIsDurable(), routes, handler);
+        QueueListener queueListener = new QueueListener(messageBus, queueName, subscription.getIsDurable(), routes, handler, subscription.getNumberOfThreads(),
+                subscription.getPrefetchCount());
 
         SubscriptionToken token = new SubscriptionToken();
         
@@ -393,15 +582,35 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
 
         LOG.trace("Getting routes handled by event handler [{}]", eventHandler.getClass().getName());
 
+        RoutingInfo[] routes = getRoutesForEventTypes(eventHandler.getHandledEventTypes(), routeSuffix);
+
+        LOG.trace("Found [{}] routes for event handler [{}]", routes.length, eventHandler.getClass().getName());
+
+        return routes;
+    }
+
+    /**
+     * Determine the correct routing information for a set of event types.
+     * 
+     * @param eventTypes
+     *            Event types that need to be mapped to routes
+     * @param routeSuffix
+     *            Suffix to append on route bindings
+     * @return Array of Routes that apply to those types
+     */
+    private RoutingInfo[] getRoutesForEventTypes(Class<?>[] eventTypes, String routeSuffix) {
+
         ArrayList<RoutingInfo> routes = new ArrayList<RoutingInfo>();
 
-        final Class<?>[] handledEventTypes = eventHandler.getHandledEventTypes();
+        LOG.trace("Getting routes for [{}] event types", eventTypes.length);
 
-        for (Class<?> eventType : handledEventTypes) {
+        // Resolved as a batch so that types unknown locally cost one round trip to the topology service between them rather than one each.
+        RoutingInfo[] eventTypeRoutes = topologyManager.getRoutingInfoForEvents(eventTypes);
 
-            LOG.trace("Getting route for [{}]", eventType.getName());
+        for (int i = 0; i < eventTypes.length; i++) {
 
-            RoutingInfo route = topologyManager.getRoutingInfoForEvent(eventType);
+            Class<?> eventType = eventTypes[i];
+            RoutingInfo route = eventTypeRoutes[i];
             if (route == null) {
 
                 LOG.error(String.format("No route found for eventType {}", eventType.getName()));
@@ -424,8 +633,6 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
             routes.add(route);
         }
 
-        LOG.trace("Found [{}] routes for event handler [{}]", routes.size(), eventHandler.getClass().getName());
-
         return routes.toArray(new RoutingInfo[0]);
     }
 
@@ -438,7 +645,7 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
         return clientName + ":" + UUID.randomUUID().toString();
     }
 
-    private HashSet<String> exchangesKnownToExist = new HashSet<String>();
+    private final Set<String> exchangesKnownToExist = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
     /**
      * Ensure the supplied route currently exists.
@@ -482,41 +689,192 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
 
         LOG.debug("Publishing event of type [{}] and handling responses with [{}]", event.getClass().getName(), getTypeNameSafely(handler));
 
-        String replyToQueueName = getNewQueueName();
+        String replyToQueueName = ensureReplyQueueIsListeningFor(handler);
 
-        LOG.trace("Creating reply-to queue with name [{}].", replyToQueueName);
+        UUID requestId = idGenerator.nextId();
 
-        Subscription subscription = new Subscription(handler);
-        subscription.setQueueName(replyToQueueName);
+        LOG.trace("Registering handler for responses to request [{}].", requestId);
 
-        LOG.trace("Creating subscription to responses on the reply-to queue.");
+        SubscriptionToken token = new SubscriptionToken();
 
-        SubscriptionToken token = subscribe(subscription, replyToQueueName);
+        responseDispatcher.register(requestId, new EventEnvelopeHandler(this, handler), handler.getHandledEventTypes());
+        pendingRequestIds.put(token, requestId);
 
-        LOG.trace("Blocking the active until consumer is registered.");
+        LOG.trace("Publishing the event and waiting for responses.");
 
-        while (!activeSubscriptions.get(token).listener.isCurrentlyListening()) {
-            try {
+        try {
+            publish(event, requestId, replyToQueueName, null, false, false);
+        } catch (RuntimeException e) {
+            pendingRequestIds.remove(token);
+            responseDispatcher.unregister(requestId);
+            throw e;
+        }
 
-                // LOG.trace("RPC: Sleeping for 10ms");
+        notifySubscribeListeners(token);
 
-                Thread.sleep(10);
+        LOG.trace("Returning Subscription Token");
 
-            } catch (InterruptedException e) {
+        return token;
+    }
 
-                LOG.error("Thread was interrupted when waiting for responses to the reply-to queue.", e);
+    /**
+     * Makes sure this manager's shared reply-to queue exists, is being consumed, and is bound to the routes of every response type the handler accepts. The queue
+     * is created on the first request; later requests only add bindings for response types not seen before.
+     * 
+     * @param handler
+     *            Handler for the responses to a request about to be made.
+     * @return The name of the reply-to queue.
+     */
+    private String ensureReplyQueueIsListeningFor(EventHandler<?> handler) {
+
+        synchronized (activeSubscriptions) {
+
+            ActiveSubscription replyQueue = replyQueueToken == null ? null : activeSubscriptions.get(replyQueueToken);
+
+            List<Class<?>> unboundResponseTypes = new ArrayList<Class<?>>();
+            for (Class<?> responseType : handler.getHandledEventTypes()) {
+                if (replyQueue == null || !replyQueueResponseTypes.contains(responseType)) {
+                    unboundResponseTypes.add(responseType);
+                }
+            }
 
-                break;
+            if (replyQueue != null && unboundResponseTypes.isEmpty()) {
+                return replyQueueName;
             }
+
+            String queueName = replyQueue == null ? getNewQueueName() : replyQueueName;
+
+            RoutingInfo[] routes = getRoutesForEventTypes(unboundResponseTypes.toArray(new Class<?>[unboundResponseTypes.size()]), queueName);
+
+            for (RoutingInfo route : routes) {
+                ensureRouteExists(route);
+            }
+
+            if (replyQueue == null) {
+
+                LOG.debug("Creating shared reply-to queue [{}].", queueName);
+
+                QueueListener queueListener = new QueueListener(messageBus, queueName, false, routes, responseDispatcher);
+
+                queueListener.beginListening();
+
+                replyQueueName = queueName;
+                replyQueueToken = new SubscriptionToken();
+                replyQueueResponseTypes.clear();
+
+                activeSubscriptions.put(replyQueueToken, new ActiveSubscription(queueName, false, queueListener));
+
+            } else {
+
+                LOG.trace("Binding reply-to queue [{}] to {} new response types.", queueName, unboundResponseTypes.size());
+
+                replyQueue.getListener().addRoutes(routes);
+            }
+
+            replyQueueResponseTypes.addAll(unboundResponseTypes);
+
+            return queueName;
         }
+    }
 
-        LOG.trace("Publishing the event and waiting for responses.");
+    /**
+     * Publish an event and return a future for the first response, without blocking.
+     * 
+     * @param event
+     *            Event published
+     * @param timeoutMills
+     *            Time to wait for a response before failing the future with a TimeoutException; less than 1 waits indefinitely
+     * @param responseTypes
+     *            The expected response types
+     * @return A future for the first event received in response
+     */
+    @Override
+    public <TResponse> ListenableFuture<TResponse> request(Object event, int timeoutMills, Class<? extends TResponse>... responseTypes) {
 
-        publish(event, replyToQueueName, false);
+        LOG.debug("Requesting a response of types [{}] to event of type [{}]", joinEventTypesAsString(responseTypes), event.getClass().getName());
 
-        LOG.trace("Returning Subscription Token");
+        ListenableFuture<List<TResponse>> responses = collectResponsesTo(event, 1, timeoutMills, true, responseTypes);
 
-        return token;
+        return Futures.transform(responses, new Function<List<TResponse>, TResponse>() {
+            @Override
+            public TResponse apply(List<TResponse> responses) {
+                return responses.get(0);
+            }
+        });
+    }
+
+    /**
+     * Publish an event and return a future for the responses received until either maxResponses have arrived or the timeout elapses.
+     * 
+     * @param event
+     *            Event published
+     * @param maxResponses
+     *            Number of responses to wait for; less than 1 collects all responses received within the timeout
+     * @param timeoutMills
+     *            Time to collect responses for
+     * @param responseTypes
+     *            The expected response types
+     * @return A future for the events received in response
+     */
+    @Override
+    public <TResponse> ListenableFuture<List<TResponse>> gatherResponsesTo(Object event, int maxResponses, int timeoutMills, Class<? extends TResponse>... responseTypes) {
+
+        LOG.debug("Gathering up to [{}] responses of types [{}] to event of type [{}]", new Object[] { maxResponses, joinEventTypesAsString(responseTypes),
+                event.getClass().getName() });
+
+        if (maxResponses < 1 && timeoutMills < 1) {
+
+            LOG.error("Gathering all responses requires a timeout.");
+
+            throw new IllegalArgumentException("Gathering all responses requires a timeout.");
+        }
+
+        return collectResponsesTo(event, maxResponses, timeoutMills, false, responseTypes);
+    }
+
+    /**
+     * Publishes a request whose responses are collected by a {@link ResponseCollector}. The request is unsubscribed as soon as the collector completes, whether
+     * because enough responses arrived, the deadline passed or the caller cancelled the future.
+     */
+    private <TResponse> ListenableFuture<List<TResponse>> collectResponsesTo(Object event, int maxResponses, int timeoutMills, boolean responseRequired,
+            Class<? extends TResponse>... responseTypes) {
+
+        final ResponseCollector<TResponse> collector = new ResponseCollector<TResponse>(maxResponses, responseRequired, responseTypes);
+
+        final SubscriptionToken token = getResponseTo(event, collector);
+
+        final ScheduledFuture<?> deadline = timeoutMills < 1 ? null : getRequestDeadlineScheduler().schedule(new Runnable() {
+            @Override
+            public void run() {
+                collector.deadlineReached();
+            }
+        }, timeoutMills, TimeUnit.MILLISECONDS);
+
+        collector.getResponses().addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (deadline != null) {
+                    deadline.cancel(false);
+                }
+                unsubscribe(token);
+            }
+        }, MoreExecutors.sameThreadExecutor());
+
+        return collector.getResponses();
+    }
+
+    private synchronized ScheduledExecutorService getRequestDeadlineScheduler() {
+        if (requestDeadlineScheduler == null) {
+            requestDeadlineScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "event-bus-request-deadlines");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return requestDeadlineScheduler;
     }
 
     /**
@@ -568,32 +926,9 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
      */
     private <TResponse> TResponse waitForAndReturnResponse(CallbackHandler<TResponse> handler, int timeoutMills) throws InterruptedException, TimeoutException {
 
-        int sleepInterval = Math.min(50, timeoutMills / 10);
-
-        StopWatch watch = new StopWatch();
-        watch.start();
-
-        LOG.trace("Attempting to get response.");
-
-        TResponse response = handler.getReceivedResponse();
-
-        if (response == null) {
-
-            LOG.trace("Response was null, looping until response received or timeout reached.");
-        }
-
-        while (watch.getTime() < timeoutMills && response == null) {
-
-            LOG.trace("Still nothing, sleeping {}ms.", sleepInterval);
-
-            Thread.sleep(sleepInterval);
-
-            LOG.trace("Attempting to get Response from bus again.");
-
-            response = handler.getReceivedResponse();
-        }
+        LOG.trace("Waiting up to {}ms for response.", timeoutMills);
 
-        watch.stop();
+        TResponse response = handler.waitForResponse(timeoutMills);
 
         if (response == null) {
 
@@ -634,7 +969,7 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
 
             LOG.trace("Publishing response [{}] to reply-to queue [{}].", response.getClass().getName(), originalRequestEnvelope.getReplyTo());
 
-            publish(response, originalRequestEnvelope.getReplyTo(), true);
+            publish(response, idGenerator.nextId(), originalRequestEnvelope.getReplyTo(), originalRequestEnvelope.getId(), true, false);
         }
     }
 
@@ -662,6 +997,18 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
 
     	LOG.debug("Unsubscribing handlers corresponding to this token: {}", token);
     	
+    	UUID requestId = pendingRequestIds.remove(token);
+    	if (requestId != null) {
+    		
+    		LOG.trace("Token refers to a request; no longer accepting its responses.");
+    		
+    		responseDispatcher.unregister(requestId);
+    		
+    		notifyUnsubscribeListeners(token);
+    		
+    		return;
+    	}
+    	
     	synchronized (activeSubscriptions) {
     		ActiveSubscription subscription = activeSubscriptions.get(token);
     		
@@ -780,8 +1127,24 @@ public class AmqpEventManager implements EventManager, UnexpectedConnectionClose
         return messageBus;
     }
 
+    /**
+     * @return The default Serializer.
+     */
     public Serializer getSerializer() {
-        return serializer;
+        return serializerRegistry.getDefaultSerializer();
+    }
+
+    /**
+     * @param contentType
+     *            Content type of an envelope's body, or null if the envelope is not marked with one.
+     * @return The Serializer that reads bodies of the given content type, or null if there is none.
+     */
+    public Serializer getSerializer(String contentType) {
+        return serializerRegistry.getSerializerForContentType(contentType);
+    }
+
+    public SerializerRegistry getSerializerRegistry() {
+        return serializerRegistry;
     }
 
     public Map<Object, Envelope> getEnvelopesBeingHandled() {
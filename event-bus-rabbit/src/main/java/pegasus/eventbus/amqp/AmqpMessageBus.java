@@ -1,5 +1,10 @@
 package pegasus.eventbus.amqp;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
 import pegasus.eventbus.client.Envelope;
 import pegasus.eventbus.client.EnvelopeHandler;
 
@@ -74,6 +79,29 @@ public interface AmqpMessageBus {
      */
     void publish(RoutingInfo route, Envelope message);
 
+    /**
+     * Publish a Message on the Queue, using the provided Routing Info, and track whether the broker accepts it. The call returns as soon as the message is written;
+     * the returned future completes once the broker confirms it.
+     * 
+     * @param route
+     *            Routing Info that designates the Exchange to publish the event on.
+     * @param message
+     *            Message being published
+     * @return A future that yields true if the broker accepted the message, false if the broker rejected it, or fails if the connection was lost first.
+     */
+    ListenableFuture<Boolean> publishWithConfirmation(RoutingInfo route, Envelope message);
+
+    /**
+     * Publish a batch of Messages, each using the Routing Info at the same position in routes. If the bus confirms publishes, the call does not return until the
+     * broker has accepted every message in the batch.
+     * 
+     * @param routes
+     *            Routing Info for each message.
+     * @param messages
+     *            Messages being published
+     */
+    void publishBatch(List<RoutingInfo> routes, List<Envelope> messages);
+
     /**
      * Begins consuming messages off of the specified queue
      * 
@@ -85,6 +113,35 @@ public interface AmqpMessageBus {
      */
     String beginConsumingMessages(String queueName, EnvelopeHandler consumer);
 
+    /**
+     * Begins consuming messages off of the specified queue, limiting the number of messages delivered but not yet acknowledged.
+     * 
+     * @param queueName
+     *            The name of the queue
+     * @param consumer
+     *            The EnvelopeHandler that will consume the messages.
+     * @param prefetchCount
+     *            The maximum number of unacknowledged messages the broker will push to this consumer; 0 for no limit.
+     * @return A tag that must be used when calling stopConsumingMessages(tag)
+     */
+    String beginConsumingMessages(String queueName, EnvelopeHandler consumer, int prefetchCount);
+
+    /**
+     * Sets the executor on which consumers run their EnvelopeHandlers.
+     * 
+     * @param consumerExecutor
+     *            The executor, or null to run handlers on the AMQP client's own threads.
+     */
+    void setConsumerExecutor(Executor consumerExecutor);
+
+    /**
+     * Sets the largest a deflated body may inflate to; deliveries whose bodies would inflate to more are rejected.
+     * 
+     * @param maxInflatedBodyBytes
+     *            The limit in bytes.
+     */
+    void setMaxInflatedBodyBytes(int maxInflatedBodyBytes);
+
     /**
      * Stops consuming messages that are being consumed as a result of a call to beginConsumingMessages.
      * 
@@ -1,9 +1,13 @@
 package pegasus.eventbus.amqp;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import pegasus.eventbus.client.EventHandler;
 import pegasus.eventbus.client.EventResult;
 
 /**
+ * Collects the first response received for a blocking RPC, waking the requesting thread as soon as it arrives.
  * 
  * @author Ken Baltrinic (Berico Technologies)
  * @param <TResponse> Response Type Handled by the Callback
@@ -11,7 +15,8 @@ import pegasus.eventbus.client.EventResult;
 class CallbackHandler<TResponse> implements EventHandler<TResponse> {
 
     private final Class<? extends TResponse>[] handledTypes;
-    private volatile TResponse receivedResponse;
+    private final CountDownLatch               responseReceived = new CountDownLatch(1);
+    private volatile TResponse                 receivedResponse;
 
     /**
      * Types handled by the Respond To Handler
@@ -30,11 +35,32 @@ class CallbackHandler<TResponse> implements EventHandler<TResponse> {
 
     @Override
     public EventResult handleEvent(TResponse event) {
-        receivedResponse = event;
+        synchronized (responseReceived) {
+            if (receivedResponse == null) {
+                receivedResponse = event;
+                responseReceived.countDown();
+            }
+        }
         return EventResult.Handled;
     }
 
     TResponse getReceivedResponse() {
         return receivedResponse;
     }
-}
\ No newline at end of file
+
+    /**
+     * Blocks until a response is received or the timeout elapses.
+     * 
+     * @param timeoutMills
+     *            Time in milliseconds to wait for the response, or less than 1 to wait indefinitely.
+     * @return The response, or null if none was received in time.
+     */
+    TResponse waitForResponse(long timeoutMills) throws InterruptedException {
+        if (timeoutMills < 1) {
+            responseReceived.await();
+        } else {
+            responseReceived.await(timeoutMills, TimeUnit.MILLISECONDS);
+        }
+        return receivedResponse;
+    }
+}
@@ -0,0 +1,61 @@
+package pegasus.eventbus.amqp;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ready-made executors for running event handlers off the AMQP client's own dispatch threads; see {@link AmqpConfiguration#setConsumerExecutor(ExecutorService)}.
+ */
+public final class ConsumerExecutors {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConsumerExecutors.class);
+
+    private ConsumerExecutors() {
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for every task when running on a JDK that supports them (21 and later). A handler blocked on I/O then
+     * costs next to nothing, so very many subscriptions can wait at once. On older JDKs falls back to {@link #newCachedThreadPool()}.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+            return (ExecutorService) factory.invoke(null);
+
+        } catch (NoSuchMethodException e) {
+
+            LOG.info("Virtual threads are not available on this JVM; handlers will run on a cached thread pool instead.");
+
+        } catch (Exception e) {
+
+            LOG.warn("Could not create a virtual thread executor; handlers will run on a cached thread pool instead.", e);
+        }
+
+        return newCachedThreadPool();
+    }
+
+    /**
+     * Creates an unbounded pool of daemon threads, which are reused once idle.
+     */
+    public static ExecutorService newCachedThreadPool() {
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "event-bus-consumer-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
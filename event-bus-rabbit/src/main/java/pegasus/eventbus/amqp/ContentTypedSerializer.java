@@ -0,0 +1,13 @@
+package pegasus.eventbus.amqp;
+
+/**
+ * A Serializer that can name the format it produces. Envelopes carrying its output are marked with that content type so that consumers can pick the Serializer
+ * that reads it; the output of a Serializer that does not implement this interface goes unmarked and is read by the consumer's default Serializer.
+ */
+public interface ContentTypedSerializer extends Serializer {
+
+    /**
+     * @return The MIME type of the format this Serializer produces.
+     */
+    String getContentType();
+}
@@ -1,7 +1,9 @@
 package pegasus.eventbus.amqp;
 
-import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,13 +21,13 @@ import pegasus.eventbus.client.EventResult;
  */
 class EventEnvelopeHandler implements EnvelopeHandler {
 
-    private final Logger              LOG;
+    private final Logger                          LOG;
 
-    private final AmqpEventManager    amqpEventManager;
-    private final EventHandler<?>     eventHandler;
-    private String                    eventSetName;
-    private final ArrayList<Class<?>> handledTypes;
-    private Method                    handlerMethod;
+    private final AmqpEventManager                amqpEventManager;
+    private final EventHandler<Object>            eventHandler;
+    private String                                eventSetName;
+    private final Set<Class<?>>                   handledTypes;
+    private final ConcurrentMap<String, Class<?>> eventTypesByName;
 
     public EventEnvelopeHandler(AmqpEventManager amqpEventManager, EventHandler<?> eventHandler) {
 
@@ -36,31 +38,16 @@ class EventEnvelopeHandler implements EnvelopeHandler {
 
         LOG.trace("EventEnvelopeHandler instantiated for EventHandler of type {}", eventHandler.getClass().getName());
 
-        this.eventHandler = eventHandler;
+        // The handled types are checked before the event is presented, so the handler can safely be treated as accepting any object.
+        @SuppressWarnings("unchecked")
+        EventHandler<Object> untypedEventHandler = (EventHandler<Object>) eventHandler;
+        this.eventHandler = untypedEventHandler;
 
-        handledTypes = new ArrayList<Class<?>>();
+        handledTypes = new HashSet<Class<?>>();
+        eventTypesByName = new ConcurrentHashMap<String, Class<?>>();
         for (Class<?> eventType : eventHandler.getHandledEventTypes()) {
             handledTypes.add(eventType);
-        }
-
-        LOG.trace("Locating the 'Genericized' handleEvent method in the list of EventHandler's methods.");
-
-        for (Method method : eventHandler.getClass().getMethods()) {
-            if (method.getName() == "handleEvent") {
-
-                LOG.trace("Found the 'handleEvent' method, saving a reference to it.");
-
-                handlerMethod = method;
-                break;
-            }
-        }
-
-        // This should never actually happen
-        if (handlerMethod == null) {
-
-            LOG.error("EventHandler [{}] does not have a method called 'handleEvent', violating the contract of the EventHandler interface.", eventHandler.getClass().getName());
-
-            throw new RuntimeException("eventHandler method not found on EvenHandler of type " + eventHandler.getClass());
+            cacheEventType(eventType);
         }
     }
 
@@ -87,7 +74,7 @@ class EventEnvelopeHandler implements EnvelopeHandler {
 
                 LOG.trace("Determining if the event type is a class on this Java process's classpath.");
 
-                Class<? extends Object> eventType = Class.forName(className);
+                Class<?> eventType = getEventType(className);
 
                 LOG.trace("Event Class was found on classpath.");
 
@@ -97,7 +84,13 @@ class EventEnvelopeHandler implements EnvelopeHandler {
                 	
                 	LOG.trace("The EventHandler can handle type, attempting to deserialize.");
                 	
-                    event = this.amqpEventManager.getSerializer().deserialize(envelope.getBody(), eventType);
+                    String contentType = envelope.getContentType();
+                    Serializer serializer = contentType == null ? this.amqpEventManager.getSerializer() : this.amqpEventManager.getSerializer(contentType);
+                    if (serializer == null) {
+                        throw new IllegalArgumentException("No Serializer is available for content type " + contentType);
+                    }
+
+                    event = serializer.deserialize(envelope.getBody(), eventType);
                     
                     LOG.trace("Event deserialized without error: {}", event);
                     
@@ -119,26 +112,16 @@ class EventEnvelopeHandler implements EnvelopeHandler {
             
             LOG.trace("Adding envelope to envelopesBeingHandled map.");
 
-            // NOTE: For performance sake, we are not synchronizing our
-            // access to envelopesBeingHandled
-            // Due to the nature of our keys the kinds of concerns
-            // synchronizing defends against should
-            // never occur. Rarely should any two threads ever be looking at
-            // the same event. (This would
-            // require that the handler spawn another thread and that thread
-            // call respondTo. It is this
-            // scenario that causes us not to just use ThreadLocal<Envelope>
-            // here.) And in all cases,
-            // never should there ever be the potential for an insert or
-            // remove of the same event on
-            // separate threads.
+            // The map is concurrent and keyed by identity, so many consumer threads can record
+            // their events at once without locking each other out. A ThreadLocal<Envelope> is
+            // not used because a handler may call respondTo from a thread it spawned.
             this.amqpEventManager.getEnvelopesBeingHandled().put(event, envelope);
 
             try {
 
                 LOG.debug("Presenting the strongly-typed event to the EventHandler.");
 
-                result = (EventResult) handlerMethod.invoke(eventHandler, event);
+                result = eventHandler.handleEvent(event);
 
                 if (result == EventResult.Failed) {
 
@@ -168,6 +151,29 @@ class EventEnvelopeHandler implements EnvelopeHandler {
         return result;
     }
 
+    /**
+     * Resolves the class named by an envelope's event type, remembering the result so that Class.forName is only paid for once per type.
+     */
+    private Class<?> getEventType(String className) throws ClassNotFoundException {
+        Class<?> eventType = eventTypesByName.get(className);
+        if (eventType == null) {
+            eventType = Class.forName(className);
+            cacheEventType(eventType);
+        }
+        return eventType;
+    }
+
+    /**
+     * Publishers name event types by their canonical name, which for nested classes is not the binary name Class.forName expects, so both are cached.
+     */
+    private void cacheEventType(Class<?> eventType) {
+        eventTypesByName.put(eventType.getName(), eventType);
+        String canonicalName = eventType.getCanonicalName();
+        if (canonicalName != null) {
+            eventTypesByName.put(canonicalName, eventType);
+        }
+    }
+
     @Override
     public String getEventSetName() {
         return eventSetName;
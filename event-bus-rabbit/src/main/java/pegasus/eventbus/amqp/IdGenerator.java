@@ -0,0 +1,14 @@
+package pegasus.eventbus.amqp;
+
+import java.util.UUID;
+
+/**
+ * Source of the unique ids assigned to envelopes as they are published.
+ */
+public interface IdGenerator {
+
+    /**
+     * @return A new id, unique across all clients of the bus.
+     */
+    UUID nextId();
+}
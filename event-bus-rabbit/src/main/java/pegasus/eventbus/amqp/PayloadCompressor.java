@@ -0,0 +1,141 @@
+package pegasus.eventbus.amqp;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import pegasus.eventbus.client.Envelope;
+
+/**
+ * Deflates the bodies of envelopes large enough for compression to pay for itself, marking them with the {@link #DEFLATE} content encoding so that the
+ * consuming message bus can inflate them again before they reach any handler. Small bodies, and bodies that deflate would not shrink, are left alone.
+ */
+public class PayloadCompressor {
+
+    private static final Logger                LOG                     = LoggerFactory.getLogger(PayloadCompressor.class);
+
+    public static final String                 DEFLATE                 = "deflate";
+
+    public static final int                    DEFAULT_THRESHOLD_BYTES = 16 * 1024;
+
+    public static final int                    DEFAULT_MAX_INFLATED_BYTES = 64 * 1024 * 1024;
+
+    private static final int                   BUFFER_SIZE             = 8 * 1024;
+
+    // Deflaters and Inflaters hold native buffers that are costly to allocate, so each thread keeps one of each.
+    private static final ThreadLocal<Deflater> DEFLATERS               = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.BEST_SPEED);
+        }
+    };
+    private static final ThreadLocal<Inflater> INFLATERS               = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+
+    private final int                          thresholdBytes;
+
+    public PayloadCompressor() {
+        this(DEFAULT_THRESHOLD_BYTES);
+    }
+
+    /**
+     * @param thresholdBytes
+     *            Size below which bodies are not compressed.
+     */
+    public PayloadCompressor(int thresholdBytes) {
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    public int getThresholdBytes() {
+        return thresholdBytes;
+    }
+
+    /**
+     * Deflates the envelope's body if it is at least the threshold size and deflating shrinks it.
+     */
+    public void compress(Envelope envelope) {
+
+        byte[] body = envelope.getBody();
+
+        if (body.length < thresholdBytes || envelope.getContentEncoding() != null) {
+            return;
+        }
+
+        byte[] deflated = deflate(body);
+
+        if (deflated.length >= body.length) {
+
+            LOG.trace("Deflating did not shrink the {} byte body; sending it uncompressed.", body.length);
+
+            return;
+        }
+
+        LOG.trace("Deflated {} byte body to {} bytes.", body.length, deflated.length);
+
+        envelope.setBody(deflated);
+        envelope.setContentEncoding(DEFLATE);
+    }
+
+    public static byte[] deflate(byte[] bytes) {
+
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            deflated.write(buffer, 0, length);
+        }
+        return deflated.toByteArray();
+    }
+
+    public static byte[] inflate(byte[] bytes) {
+        return inflate(bytes, DEFAULT_MAX_INFLATED_BYTES);
+    }
+
+    /**
+     * Inflates the bytes, failing rather than inflating more than the given number of bytes so that a small, highly compressed body cannot exhaust the heap.
+     */
+    public static byte[] inflate(byte[] bytes, int maxInflatedBytes) {
+
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(bytes);
+
+        ByteArrayOutputStream inflated = new ByteArrayOutputStream((int) Math.min(bytes.length * 4L, maxInflatedBytes));
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try {
+
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Deflated body is truncated.");
+                }
+                if (length > maxInflatedBytes - inflated.size()) {
+                    throw new DataFormatException("Deflated body inflates to more than " + maxInflatedBytes + " bytes.");
+                }
+                inflated.write(buffer, 0, length);
+            }
+
+        } catch (DataFormatException e) {
+
+            LOG.error("Could not inflate message body.", e);
+
+            throw new RuntimeException("Failed to inflate message body: " + e.getMessage(), e);
+        }
+
+        return inflated.toByteArray();
+    }
+}
@@ -1,5 +1,8 @@
 package pegasus.eventbus.amqp;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -7,7 +10,8 @@ import org.slf4j.LoggerFactory;
 import pegasus.eventbus.client.EnvelopeHandler;
 
 /**
- * Watches a Queue for new messages on a background thread, calling the EnvelopeHandler when new messages arrive.
+ * Watches a Queue for new messages on a background thread, calling the EnvelopeHandler when new messages arrive. When more than one consumer is requested, each
+ * is registered separately with the message bus (and so receives its own channel), allowing the handler to be called on that many threads at once.
  * 
  * @author Ken Baltrinic (Berico Technologies)
  */
@@ -18,11 +22,14 @@ class QueueListener  {
     private final AmqpMessageBus   messageBus;
     private final String           queueName;
 	private final Boolean          queueIsDurable;
-    private final RoutingInfo[]    routes;
+    private volatile RoutingInfo[] routes;
+
+    private final int              numberOfConsumers;
+    private final int              prefetchCount;
 
     private EnvelopeHandler        envelopeHandler;
 
-    private String                 consumerTag;
+    private final List<String>     consumerTags = new ArrayList<String>();
     
     private volatile boolean       currentlyListening;
 
@@ -42,11 +49,37 @@ class QueueListener  {
 			Boolean queueIsDurable,
 			RoutingInfo[] routes, 
 			EnvelopeHandler envelopeHandler){
+		this(messageBus, queueName, queueIsDurable, routes, envelopeHandler, 1, 0);
+    }
+
+    /**
+     * Start up an new Queue Listener bound on the supplied queue name, with the provided EnvelopeHander dealing with new messages on up to numberOfConsumers
+     * threads at once.
+     * 
+     * @param queueName
+     *            Name of the Queue to watch.
+     * @param envelopeHandler
+     *            EnvelopeHandler that deals with new messages.
+     * @param numberOfConsumers
+     *            Number of consumers to register on the queue.
+     * @param prefetchCount
+     *            Maximum number of unacknowledged messages per consumer, or 0 for the message bus's default.
+     */
+    public QueueListener(
+			AmqpMessageBus messageBus, 
+			String queueName,
+			Boolean queueIsDurable,
+			RoutingInfo[] routes, 
+			EnvelopeHandler envelopeHandler,
+			int numberOfConsumers,
+			int prefetchCount){
 		this.messageBus = messageBus;
 		this.queueName = queueName;
 		this.queueIsDurable = queueIsDurable;
 		this.routes = routes;
 		this.envelopeHandler = envelopeHandler;
+		this.numberOfConsumers = Math.max(1, numberOfConsumers);
+		this.prefetchCount = prefetchCount;
 
         // Custom Logger for Each Queue Listener.
         //TODO: PEGA-727 Need to add tests to assert that this logger name is always valid (i.e. queue names with . and any other illegal chars are correctly mangled.)
@@ -62,23 +95,64 @@ class QueueListener  {
 
         messageBus.createQueue(queueName, routes, queueIsDurable);
 
-        consumerTag = messageBus.beginConsumingMessages(queueName, envelopeHandler);
-        
-        LOG.debug("Now consuming queue [" + queueName + "] with consumerTag [" + consumerTag + "].");
+        synchronized (consumerTags) {
+
+            consumerTags.clear();
+
+            for (int i = 0; i < numberOfConsumers; i++) {
+
+                String consumerTag = prefetchCount > 0 
+                		? messageBus.beginConsumingMessages(queueName, envelopeHandler, prefetchCount) 
+                		: messageBus.beginConsumingMessages(queueName, envelopeHandler);
+
+                consumerTags.add(consumerTag);
+
+                LOG.debug("Now consuming queue [" + queueName + "] with consumerTag [" + consumerTag + "].");
+            }
+        }
 
         currentlyListening = true;
     }
 
+    /**
+     * Binds further routes to the queue, immediately if the listener is already listening. The routes are also bound whenever listening begins again.
+     * 
+     * @param additionalRoutes
+     *            Routes to add to those the queue was created with.
+     */
+    public void addRoutes(RoutingInfo[] additionalRoutes) {
+
+        synchronized (consumerTags) {
+
+            RoutingInfo[] combinedRoutes = new RoutingInfo[routes.length + additionalRoutes.length];
+            System.arraycopy(routes, 0, combinedRoutes, 0, routes.length);
+            System.arraycopy(additionalRoutes, 0, combinedRoutes, routes.length, additionalRoutes.length);
+            routes = combinedRoutes;
+
+            if (currentlyListening) {
+
+                LOG.trace("Binding {} additional routes to queue [{}].", additionalRoutes.length, queueName);
+
+                messageBus.createQueue(queueName, additionalRoutes, queueIsDurable);
+            }
+        }
+    }
+
     /**
      * Command the QueueListener to stop listening on the queue, thereby stopping the background thread.
      */
     public void StopListening() {
 
-        LOG.debug("Stopping consume of queue [" + queueName + "], consumerTag [" + consumerTag + "].");
+        synchronized (consumerTags) {
+            for (String consumerTag : consumerTags) {
+
+                LOG.debug("Stopping consume of queue [" + queueName + "], consumerTag [" + consumerTag + "].");
+
+                messageBus.stopConsumingMessages(consumerTag);
 
-        messageBus.stopConsumingMessages(consumerTag);
-        
-        LOG.trace("Successfully stopped consume of queue [" + queueName + "], consumerTag [" + consumerTag + "].");
+                LOG.trace("Successfully stopped consume of queue [" + queueName + "], consumerTag [" + consumerTag + "].");
+            }
+        }
 
         currentlyListening = false;
     }
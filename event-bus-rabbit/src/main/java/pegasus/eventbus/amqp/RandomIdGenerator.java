@@ -0,0 +1,15 @@
+package pegasus.eventbus.amqp;
+
+import java.util.UUID;
+
+/**
+ * Generates a fresh random (type 4) UUID for every id. Every call draws on the shared {@link java.security.SecureRandom} behind {@link UUID#randomUUID()}, which
+ * makes ids unguessable but can become a point of contention under heavy publishing; see {@link SequentialIdGenerator} for a cheaper alternative.
+ */
+public class RandomIdGenerator implements IdGenerator {
+
+    @Override
+    public UUID nextId() {
+        return UUID.randomUUID();
+    }
+}
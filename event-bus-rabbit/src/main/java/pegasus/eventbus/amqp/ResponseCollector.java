@@ -0,0 +1,80 @@
+package pegasus.eventbus.amqp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import pegasus.eventbus.client.EventHandler;
+import pegasus.eventbus.client.EventResult;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Collects the responses to an asynchronous request, completing a future once enough responses have arrived or once the request's deadline passes.
+ * @param <TResponse>
+ *            Response Type Handled by the Collector
+ */
+class ResponseCollector<TResponse> implements EventHandler<TResponse> {
+
+    private final Class<? extends TResponse>[]  handledTypes;
+    private final int                           maxResponses;
+    private final boolean                       responseRequired;
+    private final List<TResponse>               responses = new ArrayList<TResponse>();
+    private final SettableFuture<List<TResponse>> result    = SettableFuture.create();
+
+    /**
+     * @param maxResponses
+     *            The number of responses after which the collector completes, or less than 1 to collect until the deadline.
+     * @param responseRequired
+     *            Should reaching the deadline without any response fail the future with a TimeoutException rather than complete it with an empty list?
+     * @param handledTypes
+     *            The response types accepted.
+     */
+    ResponseCollector(int maxResponses, boolean responseRequired, Class<? extends TResponse>... handledTypes) {
+        this.maxResponses = maxResponses;
+        this.responseRequired = responseRequired;
+        this.handledTypes = handledTypes;
+    }
+
+    @Override
+    public Class<? extends TResponse>[] getHandledEventTypes() {
+        return handledTypes;
+    }
+
+    @Override
+    public EventResult handleEvent(TResponse event) {
+
+        synchronized (responses) {
+            if (!result.isDone()) {
+                responses.add(event);
+                if (maxResponses > 0 && responses.size() >= maxResponses) {
+                    result.set(new ArrayList<TResponse>(responses));
+                }
+            }
+        }
+
+        return EventResult.Handled;
+    }
+
+    /**
+     * Completes the future with the responses received so far.
+     */
+    void deadlineReached() {
+
+        synchronized (responses) {
+            if (responses.isEmpty() && responseRequired) {
+                result.setException(new TimeoutException("Response was not received within the time specified."));
+            } else {
+                result.set(new ArrayList<TResponse>(responses));
+            }
+        }
+    }
+
+    /**
+     * @return A future for the collected responses.
+     */
+    ListenableFuture<List<TResponse>> getResponses() {
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+package pegasus.eventbus.amqp;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import pegasus.eventbus.client.Envelope;
+import pegasus.eventbus.client.EnvelopeHandler;
+import pegasus.eventbus.client.EventResult;
+
+/**
+ * Handles the envelopes arriving on an event manager's shared reply-to queue. Every outstanding request registers the handler for its responses under the
+ * request's id, and each response is passed to the handler registered under its correlation id. Responses for requests that are no longer outstanding (e.g.
+ * because the requester timed out) are acknowledged and dropped.
+ * <p>
+ * Responders that predate correlated responses reply without a correlation id. For compatibility with them, an uncorrelated response is passed to the oldest
+ * outstanding request that accepts responses of its event type.
+ */
+class ResponseDispatcher implements EnvelopeHandler {
+
+    private static final Logger                       LOG             = LoggerFactory.getLogger(ResponseDispatcher.class);
+
+    private final ConcurrentMap<UUID, PendingRequest> pendingRequests = new ConcurrentHashMap<UUID, PendingRequest>();
+
+    private final AtomicLong                          registrations   = new AtomicLong();
+
+    /**
+     * Routes responses correlated with the given request, and uncorrelated responses of the given types, to the given handler until the request is
+     * unregistered.
+     */
+    void register(UUID requestId, EnvelopeHandler responseHandler, Class<?>[] responseTypes) {
+        pendingRequests.put(requestId, new PendingRequest(responseHandler, responseTypes, registrations.incrementAndGet()));
+    }
+
+    /**
+     * Stops routing responses to the given request; any that arrive later are dropped.
+     */
+    void unregister(UUID requestId) {
+        pendingRequests.remove(requestId);
+    }
+
+    /**
+     * @return The number of requests still accepting responses.
+     */
+    int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    @Override
+    public EventResult handleEnvelope(Envelope envelope) {
+
+        UUID correlationId = envelope.getCorrelationId();
+
+        PendingRequest request = correlationId == null ? getOldestRequestAccepting(envelope.getEventType()) : pendingRequests.get(correlationId);
+
+        if (request == null) {
+
+            LOG.debug("Dropping response of type [{}] as there is no outstanding request with correlation id [{}].", envelope.getEventType(), correlationId);
+
+            return EventResult.Handled;
+        }
+
+        return request.responseHandler.handleEnvelope(envelope);
+    }
+
+    private PendingRequest getOldestRequestAccepting(String eventType) {
+
+        LOG.trace("Response of type [{}] is not correlated; passing it to the oldest request accepting its type.", eventType);
+
+        PendingRequest oldest = null;
+        for (Map.Entry<UUID, PendingRequest> entry : pendingRequests.entrySet()) {
+            PendingRequest request = entry.getValue();
+            if (request.responseTypeNames.contains(eventType) && (oldest == null || request.registration < oldest.registration)) {
+                oldest = request;
+            }
+        }
+        return oldest;
+    }
+
+    @Override
+    public String getEventSetName() {
+        return null;
+    }
+
+    private static class PendingRequest {
+
+        private final EnvelopeHandler responseHandler;
+        private final Set<String>     responseTypeNames;
+        private final long            registration;
+
+        private PendingRequest(EnvelopeHandler responseHandler, Class<?>[] responseTypes, long registration) {
+            this.responseHandler = responseHandler;
+            this.registration = registration;
+            this.responseTypeNames = new HashSet<String>();
+            for (Class<?> responseType : responseTypes) {
+                responseTypeNames.add(responseType.getCanonicalName());
+            }
+        }
+    }
+}
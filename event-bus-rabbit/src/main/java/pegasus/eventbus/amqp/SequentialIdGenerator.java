@@ -0,0 +1,36 @@
+package pegasus.eventbus.amqp;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates ids without locking or consulting a random number generator per id. The high 64 bits of every id are drawn at random once per generator and the low
+ * 64 bits come from a counter that starts at a random value, so ids remain unique across clients while each new id costs only an atomic increment. Ids are
+ * formatted as type 4 UUIDs but, unlike those from {@link RandomIdGenerator}, successive ids are predictable.
+ */
+public class SequentialIdGenerator implements IdGenerator {
+
+    private static final long VERSION_MASK = 0x000000000000F000L;
+    private static final long VERSION_4    = 0x0000000000004000L;
+    private static final long VARIANT_MASK = 0xC000000000000000L;
+    private static final long VARIANT_2    = 0x8000000000000000L;
+
+    private final long        mostSigBits;
+    private final AtomicLong  counter;
+
+    public SequentialIdGenerator() {
+        this(new SecureRandom());
+    }
+
+    SequentialIdGenerator(Random seed) {
+        this.mostSigBits = (seed.nextLong() & ~VERSION_MASK) | VERSION_4;
+        this.counter = new AtomicLong(seed.nextLong());
+    }
+
+    @Override
+    public UUID nextId() {
+        return new UUID(mostSigBits, (counter.incrementAndGet() & ~VARIANT_MASK) | VARIANT_2);
+    }
+}
@@ -0,0 +1,113 @@
+package pegasus.eventbus.amqp;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import pegasus.eventbus.binary.BinarySerializer;
+import pegasus.eventbus.gson.GsonSerializer;
+
+/**
+ * The Serializers used by the Event Bus client: which one writes each event type, and which one reads each content type.
+ * <p>
+ * Events are written by the Serializer registered for their type, or by the default Serializer if none is. Envelopes are read by the Serializer for the content
+ * type they are marked with, so event types can be moved to another format one at a time without breaking consumers that have not been reconfigured. The
+ * built in {@link GsonSerializer} and {@link BinarySerializer} can read their formats without being registered. Only a {@link ContentTypedSerializer} names its
+ * content type; envelopes written by any other Serializer are not marked and are read by the default Serializer.
+ */
+public class SerializerRegistry {
+
+    private static final Logger                       LOG                       = LoggerFactory.getLogger(SerializerRegistry.class);
+
+    private final Serializer                          defaultSerializer;
+    private final ConcurrentMap<Class<?>, Serializer> serializersByEventType    = new ConcurrentHashMap<Class<?>, Serializer>();
+    private final ConcurrentMap<String, Serializer>   serializersByContentType  = new ConcurrentHashMap<String, Serializer>();
+
+    /**
+     * @param defaultSerializer
+     *            Serializer that writes event types no other Serializer is registered for, and reads envelopes that are not marked with a content type.
+     */
+    public SerializerRegistry(Serializer defaultSerializer) {
+        this.defaultSerializer = defaultSerializer;
+        register(defaultSerializer);
+    }
+
+    public Serializer getDefaultSerializer() {
+        return defaultSerializer;
+    }
+
+    /**
+     * @return The content type of the format the Serializer produces, or null if it does not say.
+     */
+    public static String getContentType(Serializer serializer) {
+        return serializer instanceof ContentTypedSerializer ? ((ContentTypedSerializer) serializer).getContentType() : null;
+    }
+
+    /**
+     * Makes the Serializer available to read envelopes of its content type.
+     */
+    public void register(Serializer serializer) {
+
+        String contentType = getContentType(serializer);
+        if (contentType != null) {
+            serializersByContentType.put(contentType, serializer);
+        }
+    }
+
+    /**
+     * Writes events of the given type with the given Serializer, which is also made available to read envelopes of its content type.
+     */
+    public void register(Class<?> eventType, Serializer serializer) {
+
+        LOG.debug("Serializing events of type {} as {}.", eventType.getName(), getContentType(serializer));
+
+        register(serializer);
+        serializersByEventType.put(eventType, serializer);
+    }
+
+    /**
+     * @return The Serializer that writes events of the given type.
+     */
+    public Serializer getSerializerForEventType(Class<?> eventType) {
+
+        if (serializersByEventType.isEmpty()) {
+            return defaultSerializer;
+        }
+
+        Serializer serializer = serializersByEventType.get(eventType);
+        return serializer == null ? defaultSerializer : serializer;
+    }
+
+    /**
+     * @param contentType
+     *            Content type of an envelope's body, or null if the envelope is not marked with one.
+     * @return The Serializer that reads bodies of the given content type: the default Serializer if no type is given, otherwise the one registered for the
+     *         type or the built in one that reads it, or null if there is none.
+     */
+    public Serializer getSerializerForContentType(String contentType) {
+
+        if (contentType == null) {
+            return defaultSerializer;
+        }
+
+        Serializer serializer = serializersByContentType.get(contentType);
+        if (serializer == null) {
+
+            if (GsonSerializer.CONTENT_TYPE.equals(contentType)) {
+                serializer = new GsonSerializer();
+            } else if (BinarySerializer.CONTENT_TYPE.equals(contentType)) {
+                serializer = new BinarySerializer();
+            } else {
+                return null;
+            }
+
+            Serializer existing = serializersByContentType.putIfAbsent(contentType, serializer);
+            if (existing != null) {
+                serializer = existing;
+            }
+        }
+        return serializer;
+    }
+}
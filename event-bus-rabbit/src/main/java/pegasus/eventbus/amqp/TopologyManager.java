@@ -6,6 +6,13 @@ public interface TopologyManager {
 
     RoutingInfo getRoutingInfoForEvent(Class<?> eventType);
 
+    /**
+     * Looks up the routes for several event types at once, which managers that consult a remote service do in a single round trip.
+     * 
+     * @return The route for each of the event types, in the same order, with null for any type this manager cannot route.
+     */
+    RoutingInfo[] getRoutingInfoForEvents(Class<?>[] eventTypes);
+
     RoutingInfo[] getRoutingInfoForNamedEventSet(String eventSetName);
 
     void start(EventManager eventManager);
@@ -0,0 +1,651 @@
+package pegasus.eventbus.binary;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import pegasus.eventbus.amqp.ContentTypedSerializer;
+
+/**
+ * Implementation of the Serializer interface that writes objects in a compact, schema-less binary format rather than JSON. Numbers are written as variable
+ * length integers or raw IEEE 754 bits, byte arrays and UUIDs as raw bytes, and objects as their field names and values, so payloads are smaller and cheaper to
+ * produce and parse than the equivalent JSON while still tolerating fields added to or removed from an event type.
+ * <p>
+ * Like the GsonSerializer, it serializes every non-static, non-transient field of an object and needs no annotations or registration; the fields of each class
+ * are looked up once and cached. Envelopes it produces are marked with its {@link #CONTENT_TYPE} so that consumers know to decode them with it.
+ * <p>
+ * Every value is written as a one byte tag followed by its data:
+ *
+ * <pre>
+ * null, false, true     tag only
+ * int                   zig-zag varint (also byte, short and char)
+ * long                  zig-zag varint (also Date, as epoch millis)
+ * float, double         4 or 8 bytes, big-endian
+ * string                varint length + UTF-8 bytes (also enums, BigDecimal, BigInteger)
+ * bytes                 varint length + bytes (byte[], and UUIDs as 16 bytes)
+ * array                 varint count + values (arrays and collections)
+ * map                   varint count + key, value pairs
+ * object                varint count + name, value pairs, omitting null fields
+ * </pre>
+ */
+public class BinarySerializer implements ContentTypedSerializer {
+
+    public static final String                       CONTENT_TYPE             = "application/x-pegasus-binary";
+
+    private static final Logger                      LOG                      = LoggerFactory.getLogger(BinarySerializer.class);
+
+    private static final Charset                     UTF8                     = Charset.forName("UTF-8");
+
+    /**
+     * Buffers grown beyond this by an unusually large message are discarded rather than kept for reuse.
+     */
+    private static final int                         MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    static final byte                                NULL                     = 0;
+    static final byte                                FALSE                    = 1;
+    static final byte                                TRUE                     = 2;
+    static final byte                                INT                      = 3;
+    static final byte                                LONG                     = 4;
+    static final byte                                FLOAT                    = 5;
+    static final byte                                DOUBLE                   = 6;
+    static final byte                                STRING                   = 7;
+    static final byte                                BYTES                    = 8;
+    static final byte                                ARRAY                    = 9;
+    static final byte                                MAP                      = 10;
+    static final byte                                OBJECT                   = 11;
+
+    private final ConcurrentMap<Class<?>, ObjectCodec> codecs                 = new ConcurrentHashMap<Class<?>, ObjectCodec>();
+
+    private final ThreadLocal<Output>                buffers                  = new ThreadLocal<Output>() {
+        @Override
+        protected Output initialValue() {
+            return new Output(4096);
+        }
+    };
+
+    public BinarySerializer() {
+        LOG.info("Instantiating BinarySerializer.");
+    }
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] serialize(Object object) {
+
+        LOG.debug("Serializing object: {}", object.getClass());
+
+        Output output = buffers.get();
+        output.reset();
+
+        byte[] serializedObject;
+
+        try {
+
+            writeValue(output, object);
+            serializedObject = output.toByteArray();
+
+        } finally {
+
+            if (output.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                buffers.remove();
+            }
+        }
+
+        LOG.debug("Returning serialized object as byte array [{} bytes]", serializedObject.length);
+
+        return serializedObject;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<? extends T> type) {
+
+        LOG.debug("Deserializing byte[] into type {}", type.getName());
+
+        Input input = new Input(bytes);
+
+        T deserializedObject;
+
+        try {
+
+            deserializedObject = (T) readValue(input, type);
+
+        } catch (ArrayIndexOutOfBoundsException e) {
+
+            LOG.error("Binary message ended unexpectedly.", e);
+
+            throw new IllegalArgumentException("Failed to deserialize " + type.getName() + ": message is truncated", e);
+        }
+
+        LOG.debug("Deserialized object is not null? = {}", deserializedObject != null);
+
+        return deserializedObject;
+    }
+
+    private void writeValue(Output output, Object value) {
+
+        if (value == null) {
+            output.writeByte(NULL);
+        } else if (value instanceof String) {
+            output.writeByte(STRING);
+            output.writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            output.writeByte(INT);
+            output.writeVarLong(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            output.writeByte(LONG);
+            output.writeVarLong((Long) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Double) {
+            output.writeByte(DOUBLE);
+            output.writeLong(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof Float) {
+            output.writeByte(FLOAT);
+            output.writeInt(Float.floatToIntBits((Float) value));
+        } else if (value instanceof Character) {
+            output.writeByte(INT);
+            output.writeVarLong((Character) value);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            output.writeByte(BYTES);
+            output.writeVarLong(bytes.length);
+            output.writeBytes(bytes, 0, bytes.length);
+        } else if (value instanceof Date) {
+            output.writeByte(LONG);
+            output.writeVarLong(((Date) value).getTime());
+        } else if (value instanceof UUID) {
+            UUID uuid = (UUID) value;
+            output.writeByte(BYTES);
+            output.writeVarLong(16);
+            output.writeLong(uuid.getMostSignificantBits());
+            output.writeLong(uuid.getLeastSignificantBits());
+        } else if (value instanceof Enum) {
+            output.writeByte(STRING);
+            output.writeString(((Enum<?>) value).name());
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            output.writeByte(STRING);
+            output.writeString(value.toString());
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            output.writeByte(ARRAY);
+            output.writeVarLong(length);
+            for (int i = 0; i < length; i++) {
+                writeValue(output, Array.get(value, i));
+            }
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            output.writeByte(ARRAY);
+            output.writeVarLong(collection.size());
+            for (Object element : collection) {
+                writeValue(output, element);
+            }
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            output.writeByte(MAP);
+            output.writeVarLong(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(output, entry.getKey());
+                writeValue(output, entry.getValue());
+            }
+        } else {
+            ObjectCodec codec = getCodec(value.getClass());
+            Object[] fieldValues = codec.getFieldValues(value);
+            int present = 0;
+            for (Object fieldValue : fieldValues) {
+                if (fieldValue != null) {
+                    present++;
+                }
+            }
+            output.writeByte(OBJECT);
+            output.writeVarLong(present);
+            for (int i = 0; i < fieldValues.length; i++) {
+                if (fieldValues[i] != null) {
+                    output.writeString(codec.getFieldName(i));
+                    writeValue(output, fieldValues[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the next value, converting it to the given type, which may be a parameterized collection or map type.
+     */
+    private Object readValue(Input input, Type type) {
+
+        Class<?> rawType = getRawType(type);
+
+        byte tag = input.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case INT:
+                return convertNumber((int) input.readVarLong(), rawType);
+            case LONG:
+                return convertNumber(input.readVarLong(), rawType);
+            case FLOAT:
+                return convertNumber(Float.intBitsToFloat(input.readInt()), rawType);
+            case DOUBLE:
+                return convertNumber(Double.longBitsToDouble(input.readLong()), rawType);
+            case STRING:
+                return convertString(input.readString(), rawType);
+            case BYTES:
+                return convertBytes(input.readBytes((int) input.readVarLong()), rawType);
+            case ARRAY:
+                return readArray(input, type, rawType);
+            case MAP:
+                return readMap(input, type, rawType);
+            case OBJECT:
+                return readObject(input, rawType);
+            default:
+                throw new IllegalArgumentException("Unknown value tag " + tag + " in binary message.");
+        }
+    }
+
+    private Object readArray(Input input, Type type, Class<?> rawType) {
+
+        int length = input.readCount();
+
+        if (rawType.isArray()) {
+            Type componentType = type instanceof GenericArrayType ? ((GenericArrayType) type).getGenericComponentType() : rawType.getComponentType();
+            Object array = Array.newInstance(rawType.getComponentType(), length);
+            for (int i = 0; i < length; i++) {
+                Object element = readValue(input, componentType);
+                if (element != null) {
+                    Array.set(array, i, element);
+                }
+            }
+            return array;
+        }
+
+        Type elementType = getTypeArgument(type, 0);
+        Collection<Object> collection = newCollection(rawType, length);
+        for (int i = 0; i < length; i++) {
+            collection.add(readValue(input, elementType));
+        }
+        return collection;
+    }
+
+    private Object readMap(Input input, Type type, Class<?> rawType) {
+
+        int size = input.readCount();
+
+        Type keyType = getTypeArgument(type, 0);
+        Type valueType = getTypeArgument(type, 1);
+        Map<Object, Object> map = newMap(rawType, size);
+        for (int i = 0; i < size; i++) {
+            Object key = readValue(input, keyType);
+            map.put(key, readValue(input, valueType));
+        }
+        return map;
+    }
+
+    private Object readObject(Input input, Class<?> rawType) {
+
+        int fieldCount = input.readCount();
+
+        // Objects read into an untyped field or collection come back as maps of their fields, as they do from Gson.
+        if (rawType == Object.class || Map.class.isAssignableFrom(rawType)) {
+            Map<Object, Object> fields = newMap(rawType, fieldCount);
+            for (int i = 0; i < fieldCount; i++) {
+                String name = input.readString();
+                fields.put(name, readValue(input, Object.class));
+            }
+            return fields;
+        }
+
+        ObjectCodec codec = getCodec(rawType);
+        Object object = codec.newInstance();
+        for (int i = 0; i < fieldCount; i++) {
+            String name = input.readString();
+            int field = codec.indexOf(name);
+            if (field < 0) {
+                // Written by a newer version of the class; the value still has to be read to get past it.
+                readValue(input, Object.class);
+                continue;
+            }
+            Object value = readValue(input, codec.getFieldType(field));
+            if (value != null) {
+                codec.setFieldValue(object, field, value);
+            }
+        }
+        return object;
+    }
+
+    private static Object convertNumber(Number number, Class<?> type) {
+
+        if (type == int.class || type == Integer.class) {
+            return number.intValue();
+        } else if (type == long.class || type == Long.class) {
+            return number.longValue();
+        } else if (type == double.class || type == Double.class) {
+            return number.doubleValue();
+        } else if (type == float.class || type == Float.class) {
+            return number.floatValue();
+        } else if (type == short.class || type == Short.class) {
+            return number.shortValue();
+        } else if (type == byte.class || type == Byte.class) {
+            return number.byteValue();
+        } else if (type == char.class || type == Character.class) {
+            return (char) number.intValue();
+        } else if (type == Date.class) {
+            return new Date(number.longValue());
+        } else if (type == BigDecimal.class) {
+            return new BigDecimal(number.toString());
+        } else if (type == BigInteger.class) {
+            return BigInteger.valueOf(number.longValue());
+        } else if (type.isInstance(number)) {
+            return number;
+        }
+        throw new IllegalArgumentException("Cannot convert number to " + type.getName());
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object convertString(String string, Class<?> type) {
+
+        if (type.isInstance(string)) {
+            return string;
+        } else if (type.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) type, string);
+        } else if (type == BigDecimal.class) {
+            return new BigDecimal(string);
+        } else if (type == BigInteger.class) {
+            return new BigInteger(string);
+        } else if (type == UUID.class) {
+            return UUID.fromString(string);
+        }
+        throw new IllegalArgumentException("Cannot convert string to " + type.getName());
+    }
+
+    private static Object convertBytes(byte[] bytes, Class<?> type) {
+
+        if (type == UUID.class && bytes.length == 16) {
+            Input input = new Input(bytes);
+            return new UUID(input.readLong(), input.readLong());
+        } else if (type.isInstance(bytes)) {
+            return bytes;
+        }
+        throw new IllegalArgumentException("Cannot convert bytes to " + type.getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<Object> newCollection(Class<?> type, int size) {
+
+        if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers()) && Collection.class.isAssignableFrom(type)) {
+            Object collection = instantiate(type);
+            if (collection != null) {
+                return (Collection<Object>) collection;
+            }
+        }
+        if (SortedSet.class.isAssignableFrom(type)) {
+            return new TreeSet<Object>();
+        } else if (Set.class.isAssignableFrom(type)) {
+            return new LinkedHashSet<Object>(size);
+        } else if (type == Object.class || type.isAssignableFrom(List.class)) {
+            return new ArrayList<Object>(size);
+        }
+        throw new IllegalArgumentException("Cannot read an array into " + type.getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> newMap(Class<?> type, int size) {
+
+        if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers()) && Map.class.isAssignableFrom(type)) {
+            Object map = instantiate(type);
+            if (map != null) {
+                return (Map<Object, Object>) map;
+            }
+        }
+        if (SortedMap.class.isAssignableFrom(type)) {
+            return new TreeMap<Object, Object>();
+        } else if (type == Object.class || type.isAssignableFrom(LinkedHashMap.class)) {
+            return new LinkedHashMap<Object, Object>(size);
+        }
+        throw new IllegalArgumentException("Cannot read a map into " + type.getName());
+    }
+
+    /**
+     * Creates an instance of the given collection or map type through its no-argument constructor, or returns null so that a standard one is used instead.
+     */
+    private static Object instantiate(Class<?> type) {
+
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (NoSuchMethodException e) {
+            LOG.trace("{} has no no-argument constructor; using a standard type instead.", type.getName());
+        } catch (InstantiationException e) {
+            LOG.trace("Cannot instantiate {}; using a standard type instead.", type.getName());
+        } catch (IllegalAccessException e) {
+            LOG.trace("Cannot access the constructor of {}; using a standard type instead.", type.getName());
+        } catch (InvocationTargetException e) {
+            LOG.trace("Constructor of {} failed; using a standard type instead.", type.getName());
+        }
+        return null;
+    }
+
+    private static Class<?> getRawType(Type type) {
+
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        } else if (type instanceof GenericArrayType) {
+            return Array.newInstance(getRawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        // Type variables and wildcards.
+        return Object.class;
+    }
+
+    private static Type getTypeArgument(Type type, int index) {
+
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < arguments.length) {
+                return arguments[index];
+            }
+        }
+        return Object.class;
+    }
+
+    private ObjectCodec getCodec(Class<?> type) {
+
+        ObjectCodec codec = codecs.get(type);
+
+        if (codec == null) {
+
+            LOG.trace("Creating ObjectCodec for {}", type.getName());
+
+            codec = new ObjectCodec(type);
+            ObjectCodec existing = codecs.putIfAbsent(type, codec);
+            if (existing != null) {
+                codec = existing;
+            }
+        }
+
+        return codec;
+    }
+
+    /**
+     * A growable byte buffer that can be reset and reused from one message to the next.
+     */
+    private static final class Output {
+
+        private byte[] buffer;
+        private int    count;
+
+        private Output(int initialCapacity) {
+            buffer = new byte[initialCapacity];
+        }
+
+        private void reset() {
+            count = 0;
+        }
+
+        private int capacity() {
+            return buffer.length;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (count + additional > buffer.length) {
+                byte[] larger = new byte[Math.max(buffer.length * 2, count + additional)];
+                System.arraycopy(buffer, 0, larger, 0, count);
+                buffer = larger;
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[count++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, count, length);
+            count += length;
+        }
+
+        private void writeInt(int value) {
+            ensureCapacity(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buffer[count++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[count++] = (byte) (value >>> shift);
+            }
+        }
+
+        /**
+         * Writes the value zig-zag encoded, so that small negative numbers are as short as small positive ones, seven bits to the byte.
+         */
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            long zigZag = (value << 1) ^ (value >> 63);
+            while ((zigZag & ~0x7FL) != 0) {
+                buffer[count++] = (byte) ((zigZag & 0x7F) | 0x80);
+                zigZag >>>= 7;
+            }
+            buffer[count++] = (byte) zigZag;
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(UTF8);
+            writeVarLong(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        private byte[] toByteArray() {
+            byte[] bytes = new byte[count];
+            System.arraycopy(buffer, 0, bytes, 0, count);
+            return bytes;
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] buffer;
+        private int          position;
+
+        private Input(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private byte readByte() {
+            return buffer[position++];
+        }
+
+        private byte[] readBytes(int length) {
+            if (length < 0 || position + length > buffer.length) {
+                throw new ArrayIndexOutOfBoundsException(position + length);
+            }
+            byte[] bytes = new byte[length];
+            System.arraycopy(buffer, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+
+        private int readInt() {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = (value << 8) | (buffer[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        private long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (buffer[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        private long readVarLong() {
+            long zigZag = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = buffer[position++];
+                zigZag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            return (zigZag >>> 1) ^ -(zigZag & 1);
+        }
+
+        /**
+         * Reads the number of elements, entries or fields that follow. Each takes at least a byte, so a count larger than what is left of the message cannot be
+         * genuine and is treated as truncation before anything is allocated for it.
+         */
+        private int readCount() {
+            long count = readVarLong();
+            if (count < 0 || count > buffer.length - position) {
+                throw new ArrayIndexOutOfBoundsException(position);
+            }
+            return (int) count;
+        }
+
+        private String readString() {
+            int length = (int) readVarLong();
+            if (length < 0 || position + length > buffer.length) {
+                throw new ArrayIndexOutOfBoundsException(position + length);
+            }
+            String value = new String(buffer, position, length, UTF8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package pegasus.eventbus.binary;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The fields of a class that the {@link BinarySerializer} reads and writes, together with the means of creating instances of it, looked up once per class.
+ * <p>
+ * As with Gson, every non-static, non-transient field of the class and its superclasses is serialized, and classes without a no-argument constructor are
+ * instantiated without running any constructor at all.
+ */
+class ObjectCodec {
+
+    private static final Logger        LOG = LoggerFactory.getLogger(ObjectCodec.class);
+
+    private final Class<?>             type;
+    private final Field[]              fields;
+    private final String[]             fieldNames;
+    private final Type[]               fieldTypes;
+    private final Map<String, Integer> fieldIndexes;
+    private final Constructor<?>       constructor;
+
+    ObjectCodec(Class<?> type) {
+
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException("Cannot serialize fields of abstract type " + type.getName());
+        }
+
+        this.type = type;
+
+        List<Field> serializedFields = new ArrayList<Field>();
+        fieldIndexes = new HashMap<String, Integer>();
+        for (Class<?> declaringClass = type; declaringClass != null && declaringClass != Object.class; declaringClass = declaringClass.getSuperclass()) {
+            for (Field field : declaringClass.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                // A field hidden by one of the same name in a subclass is not serialized.
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic() || fieldIndexes.containsKey(field.getName())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                fieldIndexes.put(field.getName(), serializedFields.size());
+                serializedFields.add(field);
+            }
+        }
+
+        fields = serializedFields.toArray(new Field[serializedFields.size()]);
+        fieldNames = new String[fields.length];
+        fieldTypes = new Type[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            fieldNames[i] = fields[i].getName();
+            fieldTypes[i] = fields[i].getGenericType();
+        }
+
+        Constructor<?> noArgConstructor;
+        try {
+            noArgConstructor = type.getDeclaredConstructor();
+            noArgConstructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            noArgConstructor = null;
+        }
+        constructor = noArgConstructor;
+    }
+
+    String getFieldName(int index) {
+        return fieldNames[index];
+    }
+
+    Type getFieldType(int index) {
+        return fieldTypes[index];
+    }
+
+    /**
+     * @return The index of the named field, or -1 if the class has no such field.
+     */
+    int indexOf(String fieldName) {
+        Integer index = fieldIndexes.get(fieldName);
+        return index == null ? -1 : index;
+    }
+
+    Object[] getFieldValues(Object object) {
+
+        Object[] values = new Object[fields.length];
+
+        try {
+
+            for (int i = 0; i < fields.length; i++) {
+                values[i] = fields[i].get(object);
+            }
+
+        } catch (IllegalAccessException e) {
+
+            LOG.error("Could not read the fields of " + type.getName(), e);
+
+            throw new RuntimeException("Failed to serialize " + type.getName(), e);
+        }
+
+        return values;
+    }
+
+    void setFieldValue(Object object, int index, Object value) {
+
+        try {
+
+            fields[index].set(object, value);
+
+        } catch (IllegalAccessException e) {
+
+            LOG.error("Could not set field " + fieldNames[index] + " of " + type.getName(), e);
+
+            throw new RuntimeException("Failed to deserialize " + type.getName(), e);
+        }
+    }
+
+    Object newInstance() {
+
+        try {
+
+            if (constructor != null) {
+                return constructor.newInstance();
+            }
+            return UnsafeAllocator.allocateInstance(type);
+
+        } catch (Exception e) {
+
+            LOG.error("Could not create an instance of " + type.getName(), e);
+
+            throw new RuntimeException("Failed to deserialize " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Creates instances without running a constructor, as Gson does for classes that lack a no-argument constructor.
+     */
+    private static final class UnsafeAllocator {
+
+        private static final Object UNSAFE;
+        private static final Method ALLOCATE_INSTANCE;
+
+        static {
+            Object unsafe = null;
+            Method allocateInstance = null;
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                unsafe = theUnsafe.get(null);
+                allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+            } catch (Exception e) {
+                LOG.warn("Classes without a no-argument constructor cannot be deserialized on this JVM.", e);
+            }
+            UNSAFE = unsafe;
+            ALLOCATE_INSTANCE = allocateInstance;
+        }
+
+        private static Object allocateInstance(Class<?> type) throws Exception {
+            if (ALLOCATE_INSTANCE == null) {
+                throw new UnsupportedOperationException(type.getName() + " has no no-argument constructor.");
+            }
+            return ALLOCATE_INSTANCE.invoke(UNSAFE, type);
+        }
+    }
+}
@@ -1,27 +1,62 @@
 package pegasus.eventbus.gson;
 
-import java.io.UnsupportedEncodingException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import pegasus.eventbus.amqp.Serializer;
+import pegasus.eventbus.amqp.ContentTypedSerializer;
 
 /**
- * Implementation of the Serializer interface used by the Event Bus client to transform Objects into JSON Strings (and then to byte arrays) and JSON Strings (originally as byte arrays) into Objects of
+ * Implementation of the Serializer interface used by the Event Bus client to transform Objects into JSON (as UTF-8 byte arrays) and JSON byte arrays into Objects of
  * supplied type (derived from the EventHandler's "Class<? extends TEvent>[] getHandledEventTypes()" method.
- * 
+ * <p>
+ * JSON is streamed straight between the objects and the bytes by a {@link TypeAdapter} cached for each class, without building an intermediate String. Each
+ * thread serializes into a buffer of its own that is reused from one message to the next.
+ *
  * @author Ken Baltrinic (Berico Technologies)
  * @lastModified 01/28/2012 by Richard Clayton (Berico Technologies)
  */
-public class GsonSerializer implements Serializer {
+public class GsonSerializer implements ContentTypedSerializer {
 
-    private static final Logger LOG = LoggerFactory.getLogger(GsonSerializer.class);
+    public static final String                            CONTENT_TYPE             = "application/json";
 
-    private Gson                gson;
+    private static final Logger                           LOG                      = LoggerFactory.getLogger(GsonSerializer.class);
+
+    private static final Charset                          UTF8                     = Charset.forName("UTF-8");
+
+    /**
+     * Buffers grown beyond this by an unusually large message are discarded rather than kept for reuse.
+     */
+    private static final int                              MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private Gson                                          gson;
+
+    private final ConcurrentMap<Class<?>, TypeAdapter<?>> adapters                 = new ConcurrentHashMap<Class<?>, TypeAdapter<?>>();
+
+    private final ThreadLocal<ByteArrayOutputStream>      buffers                  = new ThreadLocal<ByteArrayOutputStream>() {
+        @Override
+        protected ByteArrayOutputStream initialValue() {
+            return new ByteArrayOutputStream(4096);
+        }
+    };
 
     public GsonSerializer() {
 
@@ -32,28 +67,48 @@ public class GsonSerializer implements Serializer {
         LOG.debug("Gson object instantiated.  Is not null? = {}", gson != null);
     }
 
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
     @Override
     public byte[] serialize(Object object) {
 
         LOG.debug("Serializing object: {}", object.getClass());
 
-        String json = gson.toJson(object);
+        @SuppressWarnings("unchecked")
+        TypeAdapter<Object> adapter = (TypeAdapter<Object>) getAdapter(object.getClass());
 
-        LOG.trace("JSON Representation of [{}] is {}", object.getClass().getName(), json);
+        ByteArrayOutputStream buffer = buffers.get();
+        buffer.reset();
 
-        byte[] serializedObject = null;
+        byte[] serializedObject;
 
         try {
 
-            LOG.trace("Converting JSON string into byte array.");
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(buffer, UTF8));
+            // The same settings Gson.toJson applies, so the JSON is exactly what it would produce.
+            writer.setLenient(true);
+            writer.setHtmlSafe(true);
+            writer.setSerializeNulls(false);
+
+            adapter.write(writer, object);
+            writer.flush();
 
-            serializedObject = json.getBytes("UTF-8");
+            serializedObject = buffer.toByteArray();
 
-        } catch (UnsupportedEncodingException e) {
+        } catch (IOException e) {
 
-            LOG.error("Failed to encoded JSON string as UTF-8 byte array.", e);
+            LOG.error("Failed to write object as JSON.", e);
 
-            throw new RuntimeException("Failed to encode json as UTF-8", e);
+            throw new RuntimeException("Failed to serialize object as json", e);
+
+        } finally {
+
+            if (buffer.size() > MAX_RETAINED_BUFFER_SIZE) {
+                buffers.remove();
+            }
         }
 
         LOG.debug("Returning serialized object as byte array [{} bytes]", serializedObject.length);
@@ -66,29 +121,63 @@ public class GsonSerializer implements Serializer {
 
         LOG.debug("Deserializing byte[] into type {}", type.getName());
 
-        String json;
+        if (bytes.length == 0) {
+            return null;
+        }
+
+        TypeAdapter<? extends T> adapter = getAdapter(type);
+
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(bytes), UTF8));
+        reader.setLenient(true);
 
+        T deserializedObject;
+        boolean isEmpty = true;
+
+        // Reports malformed, empty and partly consumed documents exactly as Gson.fromJson(String, Class) does.
         try {
 
-            LOG.trace("Attempting to convert byte[] to JSON string");
+            reader.peek();
+            isEmpty = false;
+            deserializedObject = adapter.read(reader);
 
-            json = new String(bytes, "UTF-8");
+            if (deserializedObject != null && reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonIOException("JSON document was not fully consumed.");
+            }
 
-            LOG.trace("JSON string value is {}", json);
-        } catch (UnsupportedEncodingException e) {
+        } catch (EOFException e) {
 
-            LOG.error("Could not convert byte[] into UTF-8 string");
+            if (isEmpty) {
+                return null;
+            }
+            throw new JsonSyntaxException(e);
 
-            throw new RuntimeException("Failed to dencode json as UTF-8", e);
-        }
+        } catch (IllegalStateException e) {
 
-        LOG.trace("Deserializing JSON string into {}", type.getName());
+            throw new JsonSyntaxException(e);
 
-        T deserializedObject = gson.fromJson(json, type);
+        } catch (IOException e) {
+
+            throw new JsonSyntaxException(e);
+        }
 
         LOG.debug("Deserialized object is not null? = {}", deserializedObject != null);
 
         return deserializedObject;
     }
 
+    @SuppressWarnings("unchecked")
+    private <T> TypeAdapter<T> getAdapter(Class<T> type) {
+
+        TypeAdapter<T> adapter = (TypeAdapter<T>) adapters.get(type);
+
+        if (adapter == null) {
+
+            LOG.trace("Creating TypeAdapter for {}", type.getName());
+
+            adapter = gson.getAdapter(type);
+            adapters.putIfAbsent(type, adapter);
+        }
+
+        return adapter;
+    }
 }
@@ -0,0 +1,109 @@
+package pegasus.eventbus.rabbitmq;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Channel;
+
+/**
+ * Coalesces the acknowledgements for a single consumer's channel so that the broker receives one basicAck with multiple=true for every batch of handled messages
+ * rather than one frame per message. Pending acknowledgements are flushed when the batch is full, when the flush interval elapses, and always before a message is
+ * rejected, so that a multiple=true ack can never cover a rejected message.
+ * <p>
+ * Relies on deliveries on the channel being settled in the order they were received, which holds as each consumer has a channel to itself and handles its
+ * deliveries one at a time.
+ */
+class AcknowledgementCoalescer {
+
+    private static final Logger            LOG = LoggerFactory.getLogger(AcknowledgementCoalescer.class);
+
+    private final Channel                  channel;
+    private final int                      batchSize;
+    private final long                     flushIntervalMills;
+    private final ScheduledExecutorService scheduler;
+
+    private long                           lastUnacknowledgedTag;
+    private int                            unacknowledgedCount;
+    private boolean                        flushScheduled;
+
+    private final Runnable                 scheduledFlush = new Runnable() {
+                                                              @Override
+                                                              public void run() {
+                                                                  synchronized (AcknowledgementCoalescer.this) {
+                                                                      flushScheduled = false;
+                                                                      flushQuietly();
+                                                                  }
+                                                              }
+                                                          };
+
+    /**
+     * @param channel
+     *            The consumer's channel.
+     * @param batchSize
+     *            The number of handled messages to acknowledge at once; 1 acknowledges every message immediately.
+     * @param flushIntervalMills
+     *            The longest a handled message may wait to be acknowledged.
+     * @param scheduler
+     *            Runs the interval based flushes.
+     */
+    AcknowledgementCoalescer(Channel channel, int batchSize, long flushIntervalMills, ScheduledExecutorService scheduler) {
+        this.channel = channel;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMills = flushIntervalMills;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Records that a message has been handled, acknowledging it (and all earlier handled messages) if the batch is now full.
+     */
+    synchronized void acknowledge(long deliveryTag) throws IOException {
+
+        lastUnacknowledgedTag = deliveryTag;
+        unacknowledgedCount++;
+
+        if (unacknowledgedCount >= batchSize) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(scheduledFlush, flushIntervalMills, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Rejects a message after first acknowledging all handled messages that preceded it.
+     */
+    synchronized void reject(long deliveryTag, boolean requeue) throws IOException {
+        flush();
+        channel.basicReject(deliveryTag, requeue);
+    }
+
+    /**
+     * Acknowledges all handled messages not yet acknowledged.
+     */
+    synchronized void flush() throws IOException {
+
+        if (unacknowledgedCount == 0) {
+            return;
+        }
+
+        LOG.trace("Acknowledging {} messages up to DeliveryTag [{}].", unacknowledgedCount, lastUnacknowledgedTag);
+
+        unacknowledgedCount = 0;
+        channel.basicAck(lastUnacknowledgedTag, true);
+    }
+
+    /**
+     * Flushes, logging rather than throwing any failure. Unacknowledged messages are redelivered by the broker if the channel is lost.
+     */
+    synchronized void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            LOG.error("Failed to acknowledge handled messages; they will be redelivered.", e);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package pegasus.eventbus.rabbitmq;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+
+/**
+ * A bounded pool of AMQP channels used for publishing and for declaring exchanges, queues and bindings. AMQP channels are not safe to share between threads, so each
+ * caller leases a channel for the duration of a single operation and hands it back afterwards. Idle channels are handed out most-recently-used first, which keeps a
+ * steady publishing thread on the same channel.
+ * <p>
+ * Channels are created lazily up to the configured maximum; once that many are leased further callers block until one is released. A channel that is shut down by
+ * the broker (e.g. because of a channel level error) is dropped from the pool and replaced on demand.
+ */
+public class ChannelPool {
+
+    private static final Logger         LOG           = LoggerFactory.getLogger(ChannelPool.class);
+
+    private final RabbitConnection      connection;
+    private final int                   maxChannels;
+    private final Semaphore             leases;
+    private final LinkedBlockingDeque<Channel> idleChannels = new LinkedBlockingDeque<Channel>();
+    private final Set<Channel>          pooledChannels = Collections.newSetFromMap(new ConcurrentHashMap<Channel, Boolean>());
+    private final AtomicLong            channelsCreated = new AtomicLong();
+    private final AtomicLong            acquisitions    = new AtomicLong();
+    private final AtomicLong            contendedAcquisitions = new AtomicLong();
+    private volatile boolean            isClosing     = false;
+    private volatile ChannelInitializer initializer;
+
+    /**
+     * @param connection
+     *            The connection on which pooled channels are created.
+     * @param maxChannels
+     *            The maximum number of channels that may be open (leased or idle) at any one time.
+     */
+    public ChannelPool(RabbitConnection connection, int maxChannels) {
+
+        if (maxChannels < 1) {
+            throw new IllegalArgumentException("maxChannels must be at least 1 but was " + maxChannels);
+        }
+
+        this.connection = connection;
+        this.maxChannels = maxChannels;
+        this.leases = new Semaphore(maxChannels, true);
+    }
+
+    /**
+     * Sets a callback applied to every channel this pool creates from now on, before it is first leased.
+     */
+    public void setChannelInitializer(ChannelInitializer initializer) {
+        this.initializer = initializer;
+    }
+
+    /**
+     * Opens a single channel so that the first publish does not pay for channel creation.
+     */
+    public void warmUp() {
+
+        isClosing = false;
+
+        release(acquire());
+    }
+
+    /**
+     * Leases a channel from the pool, blocking if the maximum number of channels are already leased. Every leased channel must be handed back via
+     * {@link #release(Channel)}, preferably in a finally block.
+     */
+    public Channel acquire() {
+
+        acquisitions.incrementAndGet();
+
+        if (!leases.tryAcquire()) {
+
+            contendedAcquisitions.incrementAndGet();
+
+            LOG.trace("All {} pooled channels are in use; waiting for one to be released.", maxChannels);
+
+            try {
+                leases.acquire();
+            } catch (InterruptedException e) {
+
+                Thread.currentThread().interrupt();
+
+                throw new RuntimeException("Interrupted while waiting for a pooled AMQP channel.", e);
+            }
+        }
+
+        Channel channel = idleChannels.pollFirst();
+        if (channel != null) {
+            return channel;
+        }
+
+        try {
+            return createChannel();
+        } catch (RuntimeException e) {
+            leases.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a leased channel to the pool. Channels which have been shut down, or which belonged to the pool prior to a {@link #reset()}, are discarded.
+     */
+    public void release(Channel channel) {
+
+        if (channel != null && pooledChannels.contains(channel) && !isClosing) {
+            idleChannels.offerFirst(channel);
+        }
+
+        leases.release();
+    }
+
+    /**
+     * Forgets all pooled channels without attempting to close them. Used after the underlying connection has been re-established, at which point the old channels
+     * are already dead. Channels leased at the time of the reset are discarded when released.
+     */
+    public void reset() {
+
+        LOG.trace("Discarding all pooled channels.");
+
+        pooledChannels.clear();
+        idleChannels.clear();
+    }
+
+    /**
+     * Closes all idle channels. Leased channels are discarded as they are released.
+     */
+    public void close() {
+
+        isClosing = true;
+
+        pooledChannels.clear();
+
+        Channel channel;
+        while ((channel = idleChannels.pollFirst()) != null) {
+            try {
+                if (channel.isOpen()) {
+
+                    LOG.trace("Closing pooled channel.");
+
+                    channel.close();
+                }
+            } catch (IOException e) {
+
+                LOG.error("Error occurred when trying to close pooled channel.", e);
+
+            } catch (ShutdownSignalException e) {
+
+                LOG.debug("Pooled channel was already closed.", e);
+            }
+        }
+    }
+
+    private Channel createChannel() {
+
+        try {
+
+            LOG.debug("Creating pooled channel to AMQP broker.");
+
+            final Channel channel = connection.createChannel();
+
+            channel.addShutdownListener(new ShutdownListener() {
+                @Override
+                public void shutdownCompleted(ShutdownSignalException cause) {
+                    pooledChannels.remove(channel);
+                    idleChannels.remove(channel);
+                    if (!isClosing && !cause.isInitiatedByApplication()) {
+                        LOG.error("Pooled channel shutdown signal received", cause);
+                    }
+                }
+            });
+
+            ChannelInitializer initializer = this.initializer;
+            if (initializer != null) {
+                try {
+                    initializer.initialize(channel);
+                } catch (IOException e) {
+                    closeUninitializedChannel(channel);
+                    throw e;
+                } catch (RuntimeException e) {
+                    closeUninitializedChannel(channel);
+                    throw e;
+                }
+            }
+
+            pooledChannels.add(channel);
+            channelsCreated.incrementAndGet();
+
+            return channel;
+
+        } catch (IOException e) {
+
+            LOG.error("Could not open a pooled AMQP channel.", e);
+
+            throw new RuntimeException("Failed to open AMQP channel: " + e.getMessage() + "See inner exception for details", e);
+        }
+    }
+
+    /**
+     * Closes a channel that could not be initialized, so that it is not left open on the connection outside the pool.
+     */
+    private void closeUninitializedChannel(Channel channel) {
+        try {
+
+            LOG.trace("Closing channel that failed to initialize.");
+
+            channel.close();
+
+        } catch (IOException e) {
+
+            LOG.error("Error occurred when trying to close channel that failed to initialize.", e);
+
+        } catch (ShutdownSignalException e) {
+
+            LOG.debug("Channel that failed to initialize was already closed.", e);
+        }
+    }
+
+    /**
+     * @return The maximum number of channels this pool will open at one time.
+     */
+    public int getMaxChannels() {
+        return maxChannels;
+    }
+
+    /**
+     * @return The number of channels currently leased out of the pool.
+     */
+    public int getActiveChannelCount() {
+        return maxChannels - leases.availablePermits();
+    }
+
+    /**
+     * @return The number of open channels currently waiting in the pool to be leased.
+     */
+    public int getIdleChannelCount() {
+        return idleChannels.size();
+    }
+
+    /**
+     * @return The total number of channels this pool has created over its lifetime.
+     */
+    public long getChannelsCreatedCount() {
+        return channelsCreated.get();
+    }
+
+    /**
+     * @return The total number of times a channel has been leased.
+     */
+    public long getAcquisitionCount() {
+        return acquisitions.get();
+    }
+
+    /**
+     * @return The number of times a caller had to wait because all channels were leased.
+     */
+    public long getContendedAcquisitionCount() {
+        return contendedAcquisitions.get();
+    }
+
+    /**
+     * Prepares a newly created channel (e.g. switches it into a particular mode) before the pool hands it out.
+     */
+    public interface ChannelInitializer {
+
+        /**
+         * @param channel
+         *            The newly created channel.
+         */
+        void initialize(Channel channel) throws IOException;
+    }
+}
@@ -0,0 +1,62 @@
+package pegasus.eventbus.rabbitmq;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import pegasus.eventbus.amqp.PayloadCompressor;
+import pegasus.eventbus.client.Envelope;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+
+/**
+ * An Envelope decoded from a message delivered by the broker. Every property is decoded into the Envelope's own fields before the envelope leaves the bus, so
+ * that anything reading those fields directly, such as Gson, sees the whole envelope. The delivery's headers are walked once, picking out the topic and
+ * publication timestamp along the way, and the delivered body is used as is rather than copied unless it has to be inflated.
+ */
+final class DeliveryEnvelope extends Envelope {
+
+    DeliveryEnvelope(BasicProperties props, byte[] body) {
+        this(props, body, PayloadCompressor.DEFAULT_MAX_INFLATED_BYTES);
+    }
+
+    /**
+     * @param maxInflatedBytes
+     *            The largest a deflated body may inflate to; larger bodies fail the delivery.
+     */
+    DeliveryEnvelope(BasicProperties props, byte[] body, int maxInflatedBytes) {
+
+        setId(props.getMessageId() == null ? null : UUID.fromString(props.getMessageId()));
+        setCorrelationId(props.getCorrelationId() == null ? null : UUID.fromString(props.getCorrelationId()));
+        setEventType(props.getType());
+        setReplyTo(props.getReplyTo());
+        setContentType(props.getContentType());
+
+        // Bodies deflated by a PayloadCompressor are inflated here so that handlers never see the compression.
+        if (PayloadCompressor.DEFLATE.equals(props.getContentEncoding())) {
+            setBody(PayloadCompressor.inflate(body, maxInflatedBytes));
+        } else {
+            setContentEncoding(props.getContentEncoding());
+            setBody(body);
+        }
+
+        Map<String, Object> propHeaders = props.getHeaders();
+        if (propHeaders == null) {
+            return;
+        }
+
+        Map<String, String> headers = new HashMap<String, String>(propHeaders.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Object> header : propHeaders.entrySet()) {
+            // We don't want our internally used headers to be a Header property of the envelope.
+            if (RabbitMessageBus.TOPIC_HEADER_KEY.equals(header.getKey())) {
+                setTopic(header.getValue() == null ? null : header.getValue().toString());
+            } else if (RabbitMessageBus.PUB_TIMESTAMP_HEADER_KEY.equals(header.getKey())) {
+                setTimestamp(header.getValue() == null ? null : new Date(((Number) header.getValue()).longValue()));
+            } else {
+                headers.put(header.getKey(), header.getValue() == null ? null : header.getValue().toString());
+            }
+        }
+        setHeaders(headers);
+    }
+}
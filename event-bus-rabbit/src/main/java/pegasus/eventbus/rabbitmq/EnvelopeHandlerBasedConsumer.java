@@ -1,10 +1,13 @@
 package pegasus.eventbus.rabbitmq;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import pegasus.eventbus.amqp.PayloadCompressor;
 import pegasus.eventbus.client.Envelope;
 import pegasus.eventbus.client.EnvelopeHandler;
 import pegasus.eventbus.client.EventResult;
@@ -19,11 +22,30 @@ class EnvelopeHandlerBasedConsumer extends DefaultConsumer {
 	private final Logger    		LOG;
 	private final String 			queueName; 
 	private final EnvelopeHandler 	consumer;
+	private final AcknowledgementCoalescer acknowledgements;
+	private final Executor			handlerLane;
+	private final int				maxInflatedBodyBytes;
 	
-	public EnvelopeHandlerBasedConsumer(Channel channel, String queueName, EnvelopeHandler handler) {
+	/**
+	 * @param handlerLane
+	 *            Executor on which deliveries are handled, one at a time and in order; or null to handle them on the AMQP client's dispatch thread.
+	 */
+	public EnvelopeHandlerBasedConsumer(Channel channel, String queueName, EnvelopeHandler handler, AcknowledgementCoalescer acknowledgements, Executor handlerLane) {
+		this(channel, queueName, handler, acknowledgements, handlerLane, PayloadCompressor.DEFAULT_MAX_INFLATED_BYTES);
+	}
+
+	/**
+	 * @param maxInflatedBodyBytes
+	 *            The largest a deflated body may inflate to; deliveries whose bodies would inflate to more are rejected.
+	 */
+	public EnvelopeHandlerBasedConsumer(Channel channel, String queueName, EnvelopeHandler handler, AcknowledgementCoalescer acknowledgements, Executor handlerLane,
+			int maxInflatedBodyBytes) {
 		super(channel);
 		this.queueName = queueName;
 		this.consumer = handler;
+		this.acknowledgements = acknowledgements;
+		this.handlerLane = handlerLane;
+		this.maxInflatedBodyBytes = maxInflatedBodyBytes;
 	
         //TODO: PEGA-727 Need to add tests to assert that this logger name is always valid (i.e. queue names with . and any other illegal chars are correctly mangled.)
 		LOG = LoggerFactory.getLogger(String.format("%s$>%s", this.getClass().getCanonicalName(), queueName.replace('.', '_')));
@@ -45,6 +67,40 @@ class EnvelopeHandlerBasedConsumer extends DefaultConsumer {
 	public void handleCancelOk(String consumerTag) {
 		LOG.debug("Subscription CancelOk received for ConsumerTag [{}].", consumerTag);
 		super.handleCancelOk(consumerTag);
+		
+		// The channel is dedicated to this consumer, so it is closed once the deliveries already handed off have been handled and acknowledged.
+		SerialExecutor.DroppableTask closeChannel = new SerialExecutor.DroppableTask() {
+			@Override
+			public void run() {
+				acknowledgements.flushQuietly();
+				closeChannel();
+			}
+			
+			@Override
+			public void drop() {
+				run();
+			}
+		};
+		
+		if (handlerLane == null) {
+			closeChannel.run();
+			return;
+		}
+		
+		try {
+			handlerLane.execute(closeChannel);
+		} catch (RejectedExecutionException e) {
+			closeChannel.run();
+		}
+	}
+	
+	private void closeChannel() {
+		try {
+			LOG.trace("Closing channel of cancelled consumer on queue {}.", queueName);
+			getChannel().close();
+		} catch (Exception e) {
+			LOG.warn("Failed to close channel of cancelled consumer on queue " + queueName + ".", e);
+		}
 	}
 	
 	@Override
@@ -61,24 +117,64 @@ class EnvelopeHandlerBasedConsumer extends DefaultConsumer {
 	}
 	
 	@Override
-	public void handleDelivery(String consumerTag,
-			com.rabbitmq.client.Envelope amqpEnvelope,
-			BasicProperties properties, 
-			byte[] body)
+	public void handleDelivery(final String consumerTag,
+			final com.rabbitmq.client.Envelope amqpEnvelope,
+			final BasicProperties properties, 
+			final byte[] body)
 			throws IOException {
 		
+		super.handleDelivery(consumerTag, amqpEnvelope, properties, body);
+		
+		if (handlerLane == null) {
+			handle(consumerTag, amqpEnvelope, properties, body);
+			return;
+		}
+		
 		try {
-			super.handleDelivery(consumerTag, amqpEnvelope, properties, body);
+			handlerLane.execute(new SerialExecutor.DroppableTask() {
+				@Override
+				public void run() {
+					handle(consumerTag, amqpEnvelope, properties, body);
+				}
+				
+				@Override
+				public void drop() {
+					
+					LOG.error("Consumer executor dropped DeliveryTag [{}] on queue {}; requeuing it.", amqpEnvelope.getDeliveryTag(), queueName);
+					
+					requeue(amqpEnvelope.getDeliveryTag());
+				}
+			});
+		} catch (RejectedExecutionException e) {
 			
-			Channel channel = this.getChannel();
+			// Acknowledgements are coalesced, so a later multiple=true ack would cover this delivery were it left unsettled.
+			LOG.error("Consumer executor rejected DeliveryTag [" + amqpEnvelope.getDeliveryTag() + "] on queue " + queueName + "; requeuing it.", e);
 			
+			requeue(amqpEnvelope.getDeliveryTag());
+		}
+	}
+	
+	private void requeue(long deliveryTag) {
+		try {
+			acknowledgements.reject(deliveryTag, true);
+		} catch (Exception e) {
+			LOG.error("Failed to requeue DeliveryTag [" + deliveryTag + "] on queue " + queueName + ".", e);
+		}
+	}
+	
+	private void handle(String consumerTag,
+			com.rabbitmq.client.Envelope amqpEnvelope,
+			BasicProperties properties, 
+			byte[] body) {
+		
+		long deliveryTag  = amqpEnvelope.getDeliveryTag();
+		
+		try {
 			LOG.trace("Handling delivery for ConsumerTag [{}].", consumerTag);
 			
-			long deliveryTag  = amqpEnvelope.getDeliveryTag();
-			
 			LOG.trace("DeliveryTag is [{}] for message on ConsumerTag [{}]", deliveryTag, consumerTag);
 			
-			Envelope envelope = RabbitMessageBus.createEnvelope(properties, body);
+			Envelope envelope = RabbitMessageBus.createEnvelope(properties, body, maxInflatedBodyBytes);
 			
 			LOG.trace("Envelope create for DeliveryTag [{}].", deliveryTag);
 			
@@ -117,27 +213,34 @@ class EnvelopeHandlerBasedConsumer extends DefaultConsumer {
 				
 				LOG.trace("Accepting DeliveryTag [{}]", deliveryTag);
 				
-				channel.basicAck(deliveryTag, false);
+				acknowledgements.acknowledge(deliveryTag);
 				
 				break;
 			case Failed:
 				
 				LOG.trace("Rejecting DeliveryTag [{}]", deliveryTag);
 				
-				channel.basicReject(deliveryTag, false);
+				acknowledgements.reject(deliveryTag, false);
 				
 				break;
 			case Retry:
 				
 				LOG.trace("Retrying DeliveryTag [{}]", deliveryTag);
 				
-				channel.basicReject(deliveryTag, true);
+				acknowledgements.reject(deliveryTag, true);
 				
 				break;
 			}
 		} catch (Throwable e) {
 
 			LOG.error("handleDelivery failed on queue " + queueName + ".", e);
+			
+			// Settle the delivery so that a later multiple=true ack cannot acknowledge it.
+			try {
+				acknowledgements.reject(deliveryTag, false);
+			} catch (Exception ee) {
+				LOG.error("Failed to reject DeliveryTag [" + deliveryTag + "] on queue " + queueName + ".", ee);
+			}
 		}
 	}
 	
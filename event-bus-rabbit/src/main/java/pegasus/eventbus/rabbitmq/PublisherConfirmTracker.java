@@ -0,0 +1,116 @@
+package pegasus.eventbus.rabbitmq;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.SettableFuture;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+
+/**
+ * Tracks the publishes made on a single channel in confirm mode. Each publish is registered under the delivery tag (publish sequence number) the broker will confirm
+ * it with, and its future is completed when the matching ack or nack arrives. The broker may confirm many publishes at once (multiple=true), in which case every
+ * outstanding publish up to and including the given tag is completed.
+ * <p>
+ * The number of unconfirmed publishes is bounded by a window shared by all channels of the bus; publishers block once the window is full until the broker catches up.
+ */
+class PublisherConfirmTracker implements ConfirmListener, ShutdownListener {
+
+    private static final Logger                                       LOG         = LoggerFactory.getLogger(PublisherConfirmTracker.class);
+
+    private final Semaphore                                           window;
+    private final ConcurrentSkipListMap<Long, SettableFuture<Boolean>> unconfirmed = new ConcurrentSkipListMap<Long, SettableFuture<Boolean>>();
+
+    /**
+     * @param window
+     *            Permits for outstanding publishes; one is taken per tracked publish and given back when it is confirmed or fails.
+     */
+    PublisherConfirmTracker(Semaphore window) {
+        this.window = window;
+    }
+
+    /**
+     * Registers a publish that is about to be made with the given delivery tag, blocking while the confirm window is full.
+     *
+     * @return A future that yields true if the broker acks the publish and false if it nacks it.
+     */
+    SettableFuture<Boolean> track(long deliveryTag) {
+
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException("Interrupted while waiting for room in the publisher confirm window.", e);
+        }
+
+        SettableFuture<Boolean> confirmation = SettableFuture.create();
+        unconfirmed.put(deliveryTag, confirmation);
+        return confirmation;
+    }
+
+    /**
+     * Fails a tracked publish which never made it onto the wire.
+     */
+    void publishFailed(long deliveryTag, Throwable cause) {
+        SettableFuture<Boolean> confirmation = unconfirmed.get(deliveryTag);
+        if (confirmation != null && unconfirmed.remove(deliveryTag, confirmation)) {
+            window.release();
+            confirmation.setException(cause);
+        }
+    }
+
+    /**
+     * @return The number of publishes on this channel still awaiting confirmation.
+     */
+    int getUnconfirmedCount() {
+        return unconfirmed.size();
+    }
+
+    @Override
+    public void handleAck(long deliveryTag, boolean multiple) throws IOException {
+        confirm(deliveryTag, multiple, true);
+    }
+
+    @Override
+    public void handleNack(long deliveryTag, boolean multiple) throws IOException {
+
+        LOG.warn("Broker nacked publish with delivery tag [{}] (multiple = {}).", deliveryTag, multiple);
+
+        confirm(deliveryTag, multiple, false);
+    }
+
+    private void confirm(long deliveryTag, boolean multiple, boolean accepted) {
+
+        Map<Long, SettableFuture<Boolean>> confirmed = multiple ? unconfirmed.headMap(deliveryTag, true) : unconfirmed.subMap(deliveryTag, true, deliveryTag, true);
+
+        for (Entry<Long, SettableFuture<Boolean>> entry : confirmed.entrySet()) {
+            if (unconfirmed.remove(entry.getKey(), entry.getValue())) {
+                window.release();
+                entry.getValue().set(accepted);
+            }
+        }
+    }
+
+    @Override
+    public void shutdownCompleted(ShutdownSignalException cause) {
+
+        if (!unconfirmed.isEmpty()) {
+            LOG.warn("Channel shut down with {} publishes unconfirmed; failing them.", unconfirmed.size());
+        }
+
+        Entry<Long, SettableFuture<Boolean>> entry;
+        while ((entry = unconfirmed.pollFirstEntry()) != null) {
+            window.release();
+            entry.getValue().setException(cause);
+        }
+    }
+}
@@ -1,19 +1,32 @@
 package pegasus.eventbus.rabbitmq;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import pegasus.eventbus.amqp.AmqpMessageBus;
+import pegasus.eventbus.amqp.PayloadCompressor;
 import pegasus.eventbus.amqp.RoutingInfo;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import com.rabbitmq.client.AMQP.BasicProperties;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.ShutdownListener;
@@ -21,6 +34,7 @@ import com.rabbitmq.client.ShutdownSignalException;
 
 import pegasus.eventbus.client.Envelope;
 import pegasus.eventbus.client.EnvelopeHandler;
+import pegasus.eventbus.rabbitmq.ChannelPool.ChannelInitializer;
 import pegasus.eventbus.rabbitmq.RabbitConnection.UnexpectedCloseListener;
 
 /**
@@ -35,11 +49,24 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
     final static String                            TOPIC_HEADER_KEY                   = "pegasus.eventbus.event.topic";
     final static String                            PUB_TIMESTAMP_HEADER_KEY           = "pegasus.eventbus.event.publication_timestamp";
 
+    final static int                               DEFAULT_PREFETCH_COUNT             = 100;
+    final static int                               DEFAULT_ACK_BATCH_SIZE             = 25;
+    final static long                              DEFAULT_ACK_FLUSH_INTERVAL_MILLS   = 100;
+
     private RabbitConnection                       connection;
-    private Channel                                commandChannel;
+    private final ChannelPool                      channelPool;
+    private final Map<Channel, PublisherConfirmTracker> confirmTrackers               = new ConcurrentHashMap<Channel, PublisherConfirmTracker>();
+    private int                                    publisherConfirmWindow             = 0;
+    private Semaphore                              unconfirmedPublishPermits;
     private Map<String, Channel>                   consumerChannels                   = new HashMap<String, Channel>();
     private Set<UnexpectedConnectionCloseListener> unexpectedConnectionCloseListeners = new HashSet<UnexpectedConnectionCloseListener>();
     private boolean                                isClosing                          = false;
+    private int                                    defaultPrefetchCount               = DEFAULT_PREFETCH_COUNT;
+    private int                                    ackBatchSize                       = DEFAULT_ACK_BATCH_SIZE;
+    private long                                   ackFlushIntervalMills              = DEFAULT_ACK_FLUSH_INTERVAL_MILLS;
+    private ScheduledExecutorService               ackFlushScheduler;
+    private Executor                               consumerExecutor;
+    private int                                    maxInflatedBodyBytes               = PayloadCompressor.DEFAULT_MAX_INFLATED_BYTES;
     /**
      * Initialize Rabbit with the given connection parameters,
      * 
@@ -47,13 +74,156 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
      *            Connection Parameters
      */
     public RabbitMessageBus(RabbitConnection connection) {
+        this(connection, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Initialize Rabbit with the given connection parameters,
+     * 
+     * @param connectionParameters
+     *            Connection Parameters
+     * @param maxCommandChannels
+     *            The maximum number of channels that will be opened for publishing and declaring exchanges and queues.
+     */
+    public RabbitMessageBus(RabbitConnection connection, int maxCommandChannels) {
 
         LOG.info("Instantiating the RabbitMQ Message Bus.");
 
         this.connection = connection;
+        this.channelPool = new ChannelPool(connection, maxCommandChannels);
         connection.attachUnexpectedCloseListener(this);
     }
 
+    /**
+     * @return The pool of channels used for publishing and declaring exchanges and queues; exposed for monitoring.
+     */
+    public ChannelPool getChannelPool() {
+        return channelPool;
+    }
+
+    /**
+     * @param defaultPrefetchCount
+     *            The number of unacknowledged messages the broker may push to each consumer unless the consumer asks for a different limit. 0 means no limit.
+     */
+    public void setDefaultPrefetchCount(int defaultPrefetchCount) {
+        this.defaultPrefetchCount = Math.max(0, defaultPrefetchCount);
+    }
+
+    public int getDefaultPrefetchCount() {
+        return defaultPrefetchCount;
+    }
+
+    /**
+     * @param ackBatchSize
+     *            The number of handled messages acknowledged with a single frame. 1 acknowledges every message individually. The batch is capped at half the
+     *            consumer's prefetch count so that the broker never stalls waiting for acknowledgements.
+     */
+    public void setAckBatchSize(int ackBatchSize) {
+        this.ackBatchSize = Math.max(1, ackBatchSize);
+    }
+
+    public int getAckBatchSize() {
+        return ackBatchSize;
+    }
+
+    /**
+     * @param ackFlushIntervalMills
+     *            The longest a handled message waits to be acknowledged when its batch is not yet full.
+     */
+    public void setAckFlushIntervalMills(long ackFlushIntervalMills) {
+        this.ackFlushIntervalMills = ackFlushIntervalMills;
+    }
+
+    public long getAckFlushIntervalMills() {
+        return ackFlushIntervalMills;
+    }
+
+    /**
+     * Hands deliveries off from the AMQP client's dispatch threads to the given executor. Each consumer still handles its deliveries one at a time and in order,
+     * but a blocked handler no longer holds up the client's (small, shared) dispatch pool. Applies to consumers started after the call. The caller remains
+     * responsible for shutting the executor down.
+     * 
+     * @param consumerExecutor
+     *            The executor to run handlers on, or null to run them on the AMQP client's dispatch threads.
+     */
+    @Override
+    public void setConsumerExecutor(Executor consumerExecutor) {
+        this.consumerExecutor = consumerExecutor;
+    }
+
+    /**
+     * Limits how large a deflated body may inflate to; deliveries whose bodies would inflate to more are rejected without reaching a handler. Applies to
+     * consumers started after the call.
+     * 
+     * @param maxInflatedBodyBytes
+     *            The largest inflated body accepted, {@link PayloadCompressor#DEFAULT_MAX_INFLATED_BYTES} by default.
+     */
+    @Override
+    public void setMaxInflatedBodyBytes(int maxInflatedBodyBytes) {
+        this.maxInflatedBodyBytes = maxInflatedBodyBytes;
+    }
+
+    public int getMaxInflatedBodyBytes() {
+        return maxInflatedBodyBytes;
+    }
+
+    /**
+     * Puts the publishing channels into confirm mode, so that {@link #publishWithConfirmation(RoutingInfo, Envelope)} can report which messages the broker has
+     * accepted. Must be called before {@link #start()}.
+     * 
+     * @param publisherConfirmWindow
+     *            The maximum number of publishes, across all channels, that may be awaiting confirmation at once. Publishers block while the window is full. A value
+     *            less than 1 (the default) disables publisher confirms.
+     */
+    public void setPublisherConfirmWindow(int publisherConfirmWindow) {
+
+        this.publisherConfirmWindow = publisherConfirmWindow;
+
+        if (publisherConfirmWindow < 1) {
+            unconfirmedPublishPermits = null;
+            channelPool.setChannelInitializer(null);
+            return;
+        }
+
+        final Semaphore window = new Semaphore(publisherConfirmWindow);
+        unconfirmedPublishPermits = window;
+        channelPool.setChannelInitializer(new ChannelInitializer() {
+            @Override
+            public void initialize(final Channel channel) throws IOException {
+
+                LOG.trace("Putting pooled channel into confirm mode.");
+
+                channel.confirmSelect();
+
+                PublisherConfirmTracker tracker = new PublisherConfirmTracker(window);
+                channel.addConfirmListener(tracker);
+                channel.addShutdownListener(tracker);
+                channel.addShutdownListener(new ShutdownListener() {
+                    @Override
+                    public void shutdownCompleted(ShutdownSignalException cause) {
+                        confirmTrackers.remove(channel);
+                    }
+                });
+                confirmTrackers.put(channel, tracker);
+            }
+        });
+    }
+
+    /**
+     * @return The size of the publisher confirm window, or 0 if publisher confirms are disabled.
+     */
+    public int getPublisherConfirmWindow() {
+        return Math.max(0, publisherConfirmWindow);
+    }
+
+    /**
+     * @return The number of publishes currently awaiting confirmation from the broker.
+     */
+    public int getUnconfirmedPublishCount() {
+        Semaphore window = unconfirmedPublishPermits;
+        return window == null ? 0 : publisherConfirmWindow - window.availablePermits();
+    }
+
     @Override
     public void start() {
 
@@ -83,29 +253,12 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
         openCommandChannel();
     }
 
-	private void openCommandChannel() {
-		try {
+    private void openCommandChannel() {
 
-            LOG.debug("Creating channel to AMQP broker for command use.");
+        LOG.debug("Creating channel to AMQP broker for command use.");
 
-            // TODO: PEGA-725 Need to replace this with a channel per thread model.
-            this.commandChannel = connection.createChannel();
-            
-            this.commandChannel.addShutdownListener(new ShutdownListener(){
-				@Override
-				public void shutdownCompleted(ShutdownSignalException cause) {
-					if(!isClosing){
-						LOG.error("Command channel shutdown signal received", cause);
-					}
-				}});
-
-        } catch (IOException e) {
-
-            LOG.error("Could not open an AMQP channel for command use.", e);
-
-            throw new RuntimeException("Failed to open AMQP channel: " + e.getMessage() + "See inner exception for details", e);
-        }
-	}
+        channelPool.warmUp();
+    }
 
     /**
      * Close the active AMQP connection.
@@ -118,11 +271,15 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
         	
         	isClosing = true;
 
-            if (commandChannel !=null && commandChannel.isOpen()) {
+            LOG.trace("Closing command channels.");
 
-                LOG.trace("Closing command channel.");
+            channelPool.close();
 
-                commandChannel.close();
+            synchronized (this) {
+                if (ackFlushScheduler != null) {
+                    ackFlushScheduler.shutdown();
+                    ackFlushScheduler = null;
+                }
             }
 
             if (connection != null && connection.isOpen()) {
@@ -164,7 +321,9 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
         LOG.debug("Unexpected connection close notice received.  successfullyReopened=" + successfullyReopened);
 
         if(successfullyReopened){
-        	LOG.trace("Reopening command channel");
+        	LOG.trace("Reopening command channels");
+        	channelPool.reset();
+        	confirmTrackers.clear();
         	openCommandChannel();
         }
         
@@ -182,6 +341,7 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
 
         LOG.debug("Creating the [{}] exchange.", exchange.getName());
 
+        Channel commandChannel = channelPool.acquire();
         try {
             commandChannel.exchangeDeclare(exchange.getName(), exchange.getType().toString().toLowerCase(), exchange.isDurable());
         } catch (IOException e) {
@@ -189,6 +349,8 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
             LOG.error("Could not create the [{}] exchange.", exchange.getName(), e);
 
             throw new RuntimeException("Failed to create exchange: " + e.getMessage() + "See inner exception for details", e);
+        } finally {
+            channelPool.release(commandChannel);
         }
     }
 
@@ -207,6 +369,16 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
 
         LOG.debug("Declaring queue [{}]; durable? = {}", name, durable);
 
+        Channel commandChannel = channelPool.acquire();
+        try {
+            declareQueue(commandChannel, name, bindings, durable);
+        } finally {
+            channelPool.release(commandChannel);
+        }
+    }
+
+    private void declareQueue(Channel commandChannel, String name, RoutingInfo[] bindings, boolean durable) {
+
         try {
 
         	Map<String, Object> params = new HashMap<String,Object>();
@@ -251,6 +423,7 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
 
         LOG.debug("Deleting queue [{}]", queueName);
 
+        Channel commandChannel = channelPool.acquire();
         try {
 
             commandChannel.queueDelete(queueName);
@@ -260,6 +433,8 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
             LOG.error("Could not delete queue [{}].", queueName, e);
 
             throw new RuntimeException("Failed to delete queue: " + e.getMessage() + "See inner exception for details", e);
+        } finally {
+            channelPool.release(commandChannel);
         }
     }
 
@@ -273,47 +448,61 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
      */
     @Override
     public void publish(RoutingInfo route, Envelope message) {
+        publish(route, message, false);
+    }
 
-        LOG.debug("Publishing message of type [{}] on exchange [{}]", message.getEventType(), route.getExchange().getName());
-
-        try {
+    /**
+     * Publish a message using the provided route and track its confirmation by the broker. Requires publisher confirms to have been enabled with
+     * {@link #setPublisherConfirmWindow(int)}.
+     * 
+     * @param route
+     *            Information used to route the message
+     * @param message
+     *            Message to publish
+     * @return A future that yields true once the broker has accepted the message or false if the broker rejected it.
+     */
+    @Override
+    public ListenableFuture<Boolean> publishWithConfirmation(RoutingInfo route, Envelope message) {
 
-            LOG.trace("Creating AMQP headers for the message being published.");
+        if (unconfirmedPublishPermits == null) {
 
-            Map<String, Object> headersOut = new HashMap<String, Object>();
+            LOG.error("Publisher confirms have not been enabled on this message bus.");
 
-            if (message.getTopic() != null) {
-                headersOut.put(TOPIC_HEADER_KEY, message.getTopic());
-            }
+            throw new IllegalStateException("Publisher confirms have not been enabled on this message bus; see setPublisherConfirmWindow().");
+        }
 
-            if (message.getTimestamp() != null) {
-                //AMQP Timestamp values only have 1 second resolution so we are using a Long custom header vice props.setTimestamp() to transmit the time stamp for our use.
-            	//However we still set the AMQP timestamp property for interoperability reasons.
-                //See AMPQ 0-9-1 specification,  section 4.2.5.4 "Timestamps"
-               headersOut.put(PUB_TIMESTAMP_HEADER_KEY, message.getTimestamp().getTime());
-            }
+        return publish(route, message, true);
+    }
 
-            final Map<String, String> headersIn = message.getHeaders();
+    private ListenableFuture<Boolean> publish(RoutingInfo route, Envelope message, boolean confirmationRequired) {
 
-            for (String key : headersIn.keySet()) {
-                headersOut.put(key, headersIn.get(key));
-            }
+        LOG.debug("Publishing message of type [{}] on exchange [{}]", message.getEventType(), route.getExchange().getName());
 
-            LOG.trace("Building AMQP property set for the message being published.");
+        try {
 
-            BasicProperties props = new BasicProperties.Builder()
-            	.messageId(message.getId() == null ? null : message.getId().toString())
-                .correlationId(message.getCorrelationId() == null ? null : message.getCorrelationId().toString())
-                .type(message.getEventType())
-                .replyTo(message.getReplyTo()).headers(headersOut)
-                .timestamp(message.getTimestamp())
-                .build();
+            BasicProperties props = createProperties(message);
 
             LOG.trace("Publishing the message onto the bus.");
 
-            commandChannel.basicPublish(route.getExchange().getName(), route.getRoutingKey(), props, message.getBody());
+            SettableFuture<Boolean> confirmation;
+
+            Channel commandChannel = channelPool.acquire();
+            try {
+
+                PublisherConfirmTracker tracker = confirmTrackers.get(commandChannel);
+                if (tracker == null && confirmationRequired) {
+                    throw new IllegalStateException("Publishing channel was not opened in confirm mode; publisher confirms must be enabled before the bus is started.");
+                }
+
+                confirmation = publish(commandChannel, tracker, route, props, message.getBody());
+
+            } finally {
+                channelPool.release(commandChannel);
+            }
 
             LOG.trace("Message successfully published onto the bus.");
+
+            return confirmation;
             
         } catch (IOException e) {
 
@@ -324,43 +513,180 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
 
     }
 
-    static Envelope createEnvelope(final BasicProperties props, byte[] body) {
-        LOG.trace("Creating the Envelope.");
+    /**
+     * Publish a batch of messages. All messages are written on a single channel and, if publisher confirms are enabled, the call waits once for the broker to
+     * confirm the whole batch.
+     * 
+     * @param routes
+     *            Information used to route each message
+     * @param messages
+     *            Messages to publish
+     */
+    @Override
+    public void publishBatch(List<RoutingInfo> routes, List<Envelope> messages) {
 
-        Envelope envelope = new Envelope();
+        if (routes.size() != messages.size()) {
+            throw new IllegalArgumentException("A route must be supplied for each message; got " + routes.size() + " routes for " + messages.size() + " messages.");
+        }
 
-        LOG.trace("Placing the headers from the message into the Envelope.");
+        LOG.debug("Publishing batch of [{}] messages.", messages.size());
 
-        Map<String, Object> propHeaders = props.getHeaders();
-        Map<String, String> headers = envelope.getHeaders();
-        Long timestampMills = null;
-        
-		if (propHeaders != null) {
-            for (String key : propHeaders.keySet()) {
-                headers.put(key, propHeaders.get(key).toString());
+        List<ListenableFuture<Boolean>> confirmations = new ArrayList<ListenableFuture<Boolean>>();
+
+        try {
+
+            Channel commandChannel = channelPool.acquire();
+            try {
+
+                PublisherConfirmTracker tracker = confirmTrackers.get(commandChannel);
+
+                for (int i = 0; i < messages.size(); i++) {
+
+                    Envelope message = messages.get(i);
+
+                    SettableFuture<Boolean> confirmation = publish(commandChannel, tracker, routes.get(i), createProperties(message), message.getBody());
+                    if (confirmation != null) {
+                        confirmations.add(confirmation);
+                    }
+                }
+
+            } finally {
+                channelPool.release(commandChannel);
             }
-            
-            timestampMills = (Long)propHeaders.get(PUB_TIMESTAMP_HEADER_KEY);
+
+        } catch (IOException e) {
+
+            LOG.error("Could not publish message batch on bus.", e);
+
+            throw new RuntimeException("Failed to publish message batch: " + e.getMessage() + "See inner exception for details", e);
+        }
+
+        if (confirmations.isEmpty()) {
+            return;
+        }
+
+        LOG.trace("Waiting for the broker to confirm [{}] messages.", confirmations.size());
+
+        try {
+
+            int rejected = 0;
+            for (Boolean accepted : Futures.allAsList(confirmations).get()) {
+                if (!accepted) {
+                    rejected++;
+                }
+            }
+
+            if (rejected > 0) {
+
+                LOG.error("Broker rejected {} of {} messages in batch.", rejected, confirmations.size());
+
+                throw new RuntimeException("Broker rejected " + rejected + " of " + confirmations.size() + " messages in batch.");
+            }
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException("Interrupted while waiting for the broker to confirm message batch.", e);
+
+        } catch (ExecutionException e) {
+
+            LOG.error("Message batch could not be confirmed.", e.getCause());
+
+            throw new RuntimeException("Failed to confirm message batch: " + e.getCause().getMessage() + "See inner exception for details", e.getCause());
+        }
+    }
+
+    /**
+     * Publishes a single message on a leased channel, registering it with the channel's confirm tracker if there is one.
+     * 
+     * @return The confirmation future if the channel is in confirm mode, otherwise null.
+     */
+    private SettableFuture<Boolean> publish(Channel channel, PublisherConfirmTracker tracker, RoutingInfo route, BasicProperties props, byte[] body) throws IOException {
+
+        if (tracker == null) {
+            channel.basicPublish(route.getExchange().getName(), route.getRoutingKey(), props, body);
+            return null;
+        }
+
+        long deliveryTag = channel.getNextPublishSeqNo();
+        SettableFuture<Boolean> confirmation = tracker.track(deliveryTag);
+        try {
+            channel.basicPublish(route.getExchange().getName(), route.getRoutingKey(), props, body);
+        } catch (IOException e) {
+            tracker.publishFailed(deliveryTag, e);
+            throw e;
+        }
+        return confirmation;
+    }
+
+    private static BasicProperties createProperties(Envelope message) {
+
+        LOG.trace("Creating AMQP headers for the message being published.");
+
+        final Map<String, String> headersIn = message.getHeaders();
+        final Date timestamp = message.getTimestamp();
+
+        // Sized up front so that the map never has to rehash; the default load factor is 0.75.
+        Map<String, Object> headersOut = new HashMap<String, Object>((headersIn.size() + 2) * 4 / 3 + 1);
+
+        if (message.getTopic() != null) {
+            headersOut.put(TOPIC_HEADER_KEY, message.getTopic());
         }
 
-        LOG.trace("Mapping AMQP specific properties to Envelope properties.");
+        if (timestamp != null) {
+            //AMQP Timestamp values only have 1 second resolution so we are using a Long custom header vice props.setTimestamp() to transmit the time stamp for our use.
+        	//However we still set the AMQP timestamp property for interoperability reasons.
+            //See AMPQ 0-9-1 specification,  section 4.2.5.4 "Timestamps"
+           headersOut.put(PUB_TIMESTAMP_HEADER_KEY, timestamp.getTime());
+        }
+
+        if (!headersIn.isEmpty()) {
+            headersOut.putAll(headersIn);
+        }
 
-        envelope.setBody(body);
-        envelope.setId(props.getMessageId() == null ? null : UUID.fromString(props.getMessageId()));
-        envelope.setCorrelationId(props.getCorrelationId() == null ? null : UUID.fromString(props.getCorrelationId()));
-        envelope.setEventType(props.getType());
-        envelope.setReplyTo(props.getReplyTo());
-        envelope.setTimestamp(timestampMills == null ? null : new Date(timestampMills));
-        envelope.setTopic(headers.get(TOPIC_HEADER_KEY));
+        LOG.trace("Building AMQP property set for the message being published.");
+
+        // The full constructor is used rather than BasicProperties.Builder to avoid allocating a builder per message.
+        // No per event type template is kept: the type and content type are already shared strings (the event manager's cached type name and the
+        // serializer's constant), and everything else, including the header map and the content encoding once a body is compressed, varies by message.
+        return new BasicProperties(
+                message.getContentType(),
+                message.getContentEncoding(),
+                headersOut,
+                null, // deliveryMode
+                null, // priority
+                message.getCorrelationId() == null ? null : message.getCorrelationId().toString(),
+                message.getReplyTo(),
+                null, // expiration
+                message.getId() == null ? null : message.getId().toString(),
+                timestamp,
+                message.getEventType(),
+                null, // userId
+                null, // appId
+                null); // clusterId
+    }
 
-        // We don't want our internally used headers to be a Header property of the envelope.
-        headers.remove(TOPIC_HEADER_KEY);
-        headers.remove(PUB_TIMESTAMP_HEADER_KEY);
-        return envelope;
+    /**
+     * Decodes a delivered message into an Envelope, inflating its body if it was compressed.
+     */
+    static Envelope createEnvelope(final BasicProperties props, byte[] body) {
+        return createEnvelope(props, body, PayloadCompressor.DEFAULT_MAX_INFLATED_BYTES);
+    }
+
+    static Envelope createEnvelope(final BasicProperties props, byte[] body, int maxInflatedBodyBytes) {
+        LOG.trace("Creating the Envelope.");
+
+        return new DeliveryEnvelope(props, body, maxInflatedBodyBytes);
     }
 
     @Override
     public String beginConsumingMessages(final String queueName, final EnvelopeHandler consumer) {
+        return beginConsumingMessages(queueName, consumer, defaultPrefetchCount);
+    }
+
+    @Override
+    public String beginConsumingMessages(final String queueName, final EnvelopeHandler consumer, int prefetchCount) {
 
         LOG.trace("Begin consuming messages for queue [{}] with an EnvelopeHandler of type [{}].", queueName, consumer.getClass().getCanonicalName());
 
@@ -378,15 +704,14 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
             consumerChannel.addShutdownListener(new ShutdownListener(){
 				@Override
 				public void shutdownCompleted(ShutdownSignalException cause) {
-					if(!isClosing){
+					// Channels are closed by the application once their consumer is cancelled.
+					if(!isClosing && !cause.isInitiatedByApplication()){
 						LOG.error("Consumer channel shutdown signal received for consumer tag " + consumerTag, cause);
 					}
 				}});
 
             LOG.trace("Successfully opened dedicated channel for ConsumerTag [{}].", consumerTag);
 
-            consumerChannels.put(consumerTag, consumerChannel);
-
         } catch (IOException e) {
 
             LOG.error("Could not create channel to consume messages on queue: [{}]", queueName, e);
@@ -396,9 +721,23 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
 
         try {
 
+            int batchSize = ackBatchSize;
+
+            if (prefetchCount > 0) {
+
+                LOG.trace("Limiting ConsumerTag [{}] to {} unacknowledged messages.", consumerTag, prefetchCount);
+
+                consumerChannel.basicQos(prefetchCount);
+
+                batchSize = Math.min(batchSize, Math.max(1, prefetchCount / 2));
+            }
+
+            AcknowledgementCoalescer acknowledgements = new AcknowledgementCoalescer(consumerChannel, batchSize, ackFlushIntervalMills, getAckFlushScheduler());
+
             LOG.trace("Beginning basicConsume for ConsumerTag [{}].", consumerTag);
 
-            consumerChannel.basicConsume(queueName, false, consumerTag, new EnvelopeHandlerBasedConsumer(consumerChannel, consumerTag, consumer));
+            consumerChannel.basicConsume(queueName, false, consumerTag, new EnvelopeHandlerBasedConsumer(consumerChannel, consumerTag, consumer, acknowledgements,
+                    consumerExecutor == null ? null : new SerialExecutor(consumerExecutor), maxInflatedBodyBytes));
 
             LOG.trace("Begun basicConsume for ConsumerTag [{}].", consumerTag);
 
@@ -406,12 +745,60 @@ public class RabbitMessageBus implements AmqpMessageBus, UnexpectedCloseListener
 
             LOG.error("Failed to initiate basicConsume ConsumerTag [{}].", consumerTag, e);
 
+            closeUnusedConsumerChannel(consumerChannel, consumerTag);
+
             throw new RuntimeException("Failed to initiate basicConsume ConsumerTag: " + consumerTag, e);
+
+        } catch (RuntimeException e) {
+
+            LOG.error("Failed to initiate basicConsume ConsumerTag [{}].", consumerTag, e);
+
+            closeUnusedConsumerChannel(consumerChannel, consumerTag);
+
+            throw e;
+        }
+
+        synchronized (consumerChannels) {
+            consumerChannels.put(consumerTag, consumerChannel);
         }
 
         return consumerTag;
     }
 
+    /**
+     * Closes the dedicated channel of a consumer that could not be started, so that it is not left open on the connection.
+     */
+    private void closeUnusedConsumerChannel(Channel consumerChannel, String consumerTag) {
+        try {
+
+            LOG.trace("Closing dedicated channel for ConsumerTag [{}] as its consumer could not be started.", consumerTag);
+
+            consumerChannel.close();
+
+        } catch (IOException e) {
+
+            LOG.error("Error occurred when trying to close dedicated channel for ConsumerTag [" + consumerTag + "].", e);
+
+        } catch (ShutdownSignalException e) {
+
+            LOG.debug("Dedicated channel for ConsumerTag [{}] was already closed.", consumerTag);
+        }
+    }
+
+    private synchronized ScheduledExecutorService getAckFlushScheduler() {
+        if (ackFlushScheduler == null) {
+            ackFlushScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "event-bus-ack-flush");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return ackFlushScheduler;
+    }
+
     @Override
     public void stopConsumingMessages(String consumerTag) {
         synchronized (consumerChannels) {
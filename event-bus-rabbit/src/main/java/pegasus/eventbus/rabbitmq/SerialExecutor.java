@@ -0,0 +1,99 @@
+package pegasus.eventbus.rabbitmq;
+
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs tasks one at a time, in submission order, on a shared executor. Used to give each consumer its own ordered lane on the configured consumer executor so
+ * that handlers keep their single-threaded, in-order guarantee and acknowledgements remain in delivery order.
+ * <p>
+ * A task rejected when submitted to an idle lane is rejected back to the caller. If the shared executor instead rejects a task the lane had queued, that task
+ * and every task queued behind it are dropped; those implementing {@link DroppableTask} are told so that, for instance, a delivery can be requeued rather than
+ * left unsettled.
+ */
+class SerialExecutor implements Executor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SerialExecutor.class);
+
+    /**
+     * A task which must be told when the lane drops it without running it.
+     */
+    interface DroppableTask extends Runnable {
+
+        void drop();
+    }
+
+    private final Deque<Runnable> tasks = new LinkedList<Runnable>();
+    private final Executor        executor;
+    private boolean               active;
+
+    SerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        tasks.offer(task);
+        if (!active) {
+            try {
+                scheduleNext();
+            } catch (RejectedExecutionException e) {
+                // The lane was idle, so the rejected task is the one just submitted and nothing else is queued.
+                tasks.clear();
+                throw e;
+            }
+        }
+    }
+
+    private synchronized void scheduleNext() {
+
+        final Runnable task = tasks.poll();
+        if (task == null) {
+            active = false;
+            return;
+        }
+
+        active = true;
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        scheduleNextQueued();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            active = false;
+            tasks.addFirst(task);
+            throw e;
+        }
+    }
+
+    private synchronized void scheduleNextQueued() {
+        try {
+            scheduleNext();
+        } catch (RejectedExecutionException e) {
+
+            LOG.error("Executor rejected a queued task; dropping the " + tasks.size() + " tasks queued on this lane.", e);
+
+            Runnable dropped;
+            while ((dropped = tasks.poll()) != null) {
+                if (dropped instanceof DroppableTask) {
+                    try {
+                        ((DroppableTask) dropped).drop();
+                    } catch (RuntimeException ee) {
+                        LOG.error("Failed to drop task.", ee);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package pegasus.eventbus.topology;
 
-import java.util.PriorityQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,17 +15,51 @@ import pegasus.eventbus.amqp.TopologyManager;
 
 import pegasus.eventbus.client.EventManager;
 
-//TODO: PEGA-719 This class need test coverage.
-public class CompositeTopologyManager implements TopologyManager {
+/**
+ * Consults a prioritized list of topology managers, using the first answer found. Routes found for event types are cached so that steady-state publishes never
+ * reach the managers at all, and event types no manager could route are remembered for a short while so that publishing an unknown type does not repeatedly
+ * fall through to a slow (e.g. remote) manager. Both caches are discarded whenever {@link #onTopologyUpdated()} is called, and a lookup that was already under way
+ * when they were discarded does not cache what it found.
+ */
+public class CompositeTopologyManager implements TopologyManager, TopologyUpdateListener {
 
-    protected static final Logger      LOG              = LoggerFactory.getLogger(CompositeTopologyManager.class);
+    protected static final Logger              LOG                          = LoggerFactory.getLogger(CompositeTopologyManager.class);
 
-    private PriorityQueue<TopoWrapper> topologyWrappers = new PriorityQueue<TopoWrapper>();
+    public static final int                    DEFAULT_UNROUTABLE_CACHE_SIZE = 1000;
+    public static final long                   DEFAULT_UNROUTABLE_TTL_MILLS  = 10000;
+
+    // Sorted by priority and replaced wholesale on every add or remove, so lookups can walk it without locking.
+    private volatile TopoWrapper[]             topologyWrappers             = new TopoWrapper[0];
+
+    private final Map<Class<?>, RoutingInfo>   routeCache                   = new ConcurrentHashMap<Class<?>, RoutingInfo>();
+    private final Map<Class<?>, Long>          unroutableEventTypes;
+    private volatile long                      unroutableTtlMills           = DEFAULT_UNROUTABLE_TTL_MILLS;
+
+    // Incremented each time the caches are discarded; both caches are only written while holding cacheLock and only if this is unchanged since the lookup began.
+    private volatile long                      cacheGeneration;
+    private final Object                       cacheLock                    = new Object();
 
     public CompositeTopologyManager() {
+        this(DEFAULT_UNROUTABLE_CACHE_SIZE);
+    }
+
+    /**
+     * @param unroutableCacheSize
+     *            The maximum number of unroutable event types to remember; the least recently missed are forgotten first.
+     */
+    public CompositeTopologyManager(final int unroutableCacheSize) {
 
         LOG.info("Instantiating the Composite Topology Manager.");
 
+        unroutableEventTypes = new LinkedHashMap<Class<?>, Long>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Class<?>, Long> eldest) {
+                return size() > unroutableCacheSize;
+            }
+        };
     }
 
     @Override
@@ -39,16 +78,142 @@ public class CompositeTopologyManager implements TopologyManager {
 
     @Override
     public RoutingInfo getRoutingInfoForEvent(Class<?> eventType) {
-        RoutingInfo route = null;
+
+        RoutingInfo route = routeCache.get(eventType);
+        if (route != null) {
+            return route;
+        }
+
+        if (isKnownToBeUnroutable(eventType)) {
+
+            LOG.trace("Event type [{}] was recently found to be unroutable.", eventType.getName());
+
+            return null;
+        }
+
+        long generation = cacheGeneration;
+
         for (TopoWrapper topoWrapper : topologyWrappers) {
             route = topoWrapper.topologyManager.getRoutingInfoForEvent(eventType);
             if (route != null) {
                 break;
             }
         }
+
+        synchronized (cacheLock) {
+            if (generation == cacheGeneration) {
+                if (route != null) {
+                    routeCache.put(eventType, route);
+                } else {
+                    unroutableEventTypes.put(eventType, System.currentTimeMillis() + unroutableTtlMills);
+                }
+            }
+        }
+
         return route;
     }
 
+    /**
+     * Looks up all the event types not already cached with a single call to each manager in turn, passing each manager only the types that the managers before
+     * it could not route.
+     */
+    @Override
+    public RoutingInfo[] getRoutingInfoForEvents(Class<?>[] eventTypes) {
+
+        RoutingInfo[] routes = new RoutingInfo[eventTypes.length];
+
+        long generation = cacheGeneration;
+
+        List<Integer> unresolved = new ArrayList<Integer>();
+        for (int i = 0; i < eventTypes.length; i++) {
+            routes[i] = routeCache.get(eventTypes[i]);
+            if (routes[i] == null && !isKnownToBeUnroutable(eventTypes[i])) {
+                unresolved.add(i);
+            }
+        }
+
+        for (TopoWrapper topoWrapper : topologyWrappers) {
+
+            if (unresolved.isEmpty()) {
+                break;
+            }
+
+            Class<?>[] unresolvedTypes = new Class<?>[unresolved.size()];
+            for (int i = 0; i < unresolvedTypes.length; i++) {
+                unresolvedTypes[i] = eventTypes[unresolved.get(i)];
+            }
+
+            RoutingInfo[] found = topoWrapper.topologyManager.getRoutingInfoForEvents(unresolvedTypes);
+
+            List<Integer> stillUnresolved = new ArrayList<Integer>();
+            for (int i = 0; i < unresolvedTypes.length; i++) {
+                RoutingInfo route = found == null ? null : found[i];
+                if (route != null) {
+                    routes[unresolved.get(i)] = route;
+                } else {
+                    stillUnresolved.add(unresolved.get(i));
+                }
+            }
+            unresolved = stillUnresolved;
+        }
+
+        synchronized (cacheLock) {
+            if (generation == cacheGeneration) {
+                long expiry = System.currentTimeMillis() + unroutableTtlMills;
+                for (int i = 0; i < eventTypes.length; i++) {
+                    if (routes[i] != null) {
+                        routeCache.put(eventTypes[i], routes[i]);
+                    }
+                }
+                for (int index : unresolved) {
+                    unroutableEventTypes.put(eventTypes[index], expiry);
+                }
+            }
+        }
+
+        return routes;
+    }
+
+    private boolean isKnownToBeUnroutable(Class<?> eventType) {
+        synchronized (cacheLock) {
+            Long expiry = unroutableEventTypes.get(eventType);
+            if (expiry == null) {
+                return false;
+            }
+            if (expiry <= System.currentTimeMillis()) {
+                unroutableEventTypes.remove(eventType);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Discards all cached routes, so that every event type is looked up afresh.
+     */
+    @Override
+    public void onTopologyUpdated() {
+
+        LOG.trace("Topology updated; discarding cached routes.");
+
+        synchronized (cacheLock) {
+            cacheGeneration++;
+            routeCache.clear();
+            unroutableEventTypes.clear();
+        }
+    }
+
+    /**
+     * Sets how long an event type that no manager could route is remembered as unroutable. 0 disables negative caching.
+     */
+    public void setUnroutableTtlMills(long unroutableTtlMills) {
+        this.unroutableTtlMills = unroutableTtlMills;
+    }
+
+    public long getUnroutableTtlMills() {
+        return unroutableTtlMills;
+    }
+
     @Override
     public RoutingInfo[] getRoutingInfoForNamedEventSet(String eventSetName) {
         RoutingInfo[] routes = null;
@@ -62,18 +227,45 @@ public class CompositeTopologyManager implements TopologyManager {
     }
 
     public void addManager(TopologyManager topologyManager) {
-        topologyWrappers.add(new TopoWrapper(topologyManager));
+        addManager(new TopoWrapper(topologyManager));
     }
 
+    /**
+     * Adds a manager to be consulted in order of priority, lowest first. Managers of equal priority are consulted in the order they were added.
+     */
     public void addManager(TopologyManager topologyManager, int priority) {
-        topologyWrappers.add(new TopoWrapper(topologyManager, priority));
+        addManager(new TopoWrapper(topologyManager, priority));
     }
 
-    public void removeManager(TopologyManager topologyManager) {
-        topologyWrappers.remove(topologyManager);
+    private synchronized void addManager(TopoWrapper topoWrapper) {
+
+        TopoWrapper[] wrappers = Arrays.copyOf(topologyWrappers, topologyWrappers.length + 1);
+        wrappers[wrappers.length - 1] = topoWrapper;
+
+        // Arrays.sort is stable for objects, preserving insertion order among equal priorities.
+        Arrays.sort(wrappers);
+
+        topologyWrappers = wrappers;
+
+        onTopologyUpdated();
+    }
+
+    public synchronized void removeManager(TopologyManager topologyManager) {
+
+        TopoWrapper[] wrappers = new TopoWrapper[topologyWrappers.length];
+        int count = 0;
+        for (TopoWrapper topoWrapper : topologyWrappers) {
+            if (topoWrapper.topologyManager != topologyManager) {
+                wrappers[count++] = topoWrapper;
+            }
+        }
+
+        topologyWrappers = Arrays.copyOf(wrappers, count);
+
+        onTopologyUpdated();
     }
 
-    private class TopoWrapper implements Comparable<TopoWrapper> {
+    private static class TopoWrapper implements Comparable<TopoWrapper> {
 
         private static final int DEFAULT_PRIORITY = 1;
 
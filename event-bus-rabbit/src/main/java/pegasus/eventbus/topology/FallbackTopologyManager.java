@@ -1,5 +1,6 @@
 package pegasus.eventbus.topology;
 
+import java.util.Map;
 import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
@@ -8,10 +9,11 @@ import org.slf4j.LoggerFactory;
 import pegasus.eventbus.amqp.RoutingInfo;
 import pegasus.eventbus.amqp.TopologyManager;
 import pegasus.eventbus.client.EventManager;
+import pegasus.eventbus.topology.events.EventTypeRoutes;
 import pegasus.eventbus.topology.events.EventTypeRoutingInfo;
 import pegasus.eventbus.topology.events.GetEventTypeRoute;
+import pegasus.eventbus.topology.events.GetEventTypeRoutes;
 
-//TODO: PEGA-720 This class need test coverage.
 public class FallbackTopologyManager implements TopologyManager {
 
 	   protected static final Logger LOG              = LoggerFactory.getLogger(FallbackTopologyManager.class);
@@ -33,6 +35,37 @@ public class FallbackTopologyManager implements TopologyManager {
 		return null;
 	}
 
+	@Override
+	public RoutingInfo[] getRoutingInfoForEvents(Class<?>[] eventTypes) {
+		RoutingInfo[] routes = new RoutingInfo[eventTypes.length];
+		String[] topics = new String[eventTypes.length];
+		for (int i = 0; i < eventTypes.length; i++) {
+			topics[i] = eventTypes[i].getCanonicalName();
+		}
+		GetEventTypeRoutes request = new GetEventTypeRoutes(topics);
+		try {
+			@SuppressWarnings("unchecked")
+			EventTypeRoutes response = eventManager.getResponseTo(request, 1000, EventTypeRoutes.class);
+			Map<String, RoutingInfo> routesByTopic = response.getRoutes();
+			if (routesByTopic != null) {
+				for (int i = 0; i < topics.length; i++) {
+					routes[i] = routesByTopic.get(topics[i]);
+				}
+			}
+		} catch (InterruptedException e) {
+			LOG.warn("Thread interrupted while waiting for route info for " + topics.length + " event types.", e);
+		} catch (TimeoutException e) {
+			LOG.warn("Timed out while waiting for route info for " + topics.length + " event types; asking for each type in turn.", e);
+			// Topology services that predate GetEventTypeRoutes never answer it, but still answer for one type at a time.
+			for (int i = 0; i < eventTypes.length; i++) {
+				if (routes[i] == null) {
+					routes[i] = getRoutingInfoForEvent(eventTypes[i]);
+				}
+			}
+		}
+		return routes;
+	}
+
 	@Override
 	public RoutingInfo[] getRoutingInfoForNamedEventSet(String eventSetName) {
 		return null;
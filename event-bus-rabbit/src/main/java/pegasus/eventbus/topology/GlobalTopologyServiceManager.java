@@ -1,8 +1,13 @@
 package pegasus.eventbus.topology;
 
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +16,7 @@ import pegasus.eventbus.amqp.RoutingInfo;
 import pegasus.eventbus.amqp.TopologyManager;
 import pegasus.eventbus.topology.events.HeartBeat;
 import pegasus.eventbus.topology.events.RegisterClient;
+import pegasus.eventbus.topology.events.TopologyDelta;
 import pegasus.eventbus.topology.events.TopologyUpdate;
 import pegasus.eventbus.topology.events.UnregisterClient;
 
@@ -24,20 +30,44 @@ public class GlobalTopologyServiceManager implements TopologyManager {
 
     protected static final Logger LOG              = LoggerFactory.getLogger(GlobalTopologyServiceManager.class);
 
-    private TopologyRegistry      topologyRegistry = new TopologyRegistry();
+    private volatile TopologyRegistry topologyRegistry = new TopologyRegistry();
     private String                clientName;
     private int                   hearbeatIntervalSeconds;
     private EventManager          eventManager;
     private SubscriptionToken     subscriptionToken;
 
-	private ScheduledExecutorService scheduler ;
+    // Heartbeats are tiny, so every manager in the process shares a single thread to send them.
+    private static final ScheduledExecutorService HEARTBEAT_SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                                                                          @Override
+                                                                          public Thread newThread(Runnable runnable) {
+                                                                              Thread thread = new Thread(runnable, "event-bus-heartbeat");
+                                                                              thread.setDaemon(true);
+                                                                              return thread;
+                                                                          }
+                                                                      });
+
+    private ScheduledFuture<?>    heartbeat;
+
+    private final Set<TopologyUpdateListener> topologyUpdateListeners = new CopyOnWriteArraySet<TopologyUpdateListener>();
+    private final AtomicBoolean               resynchronizing         = new AtomicBoolean();
+    private final TopologyCache               topologyCache;
+    private boolean                           closed;
 
     public GlobalTopologyServiceManager(String clientName, int hearbeatIntervalSeconds) {
+        this(clientName, hearbeatIntervalSeconds, null);
+    }
+
+    /**
+     * @param topologyCache
+     *            Where the last known topology is kept between runs, or null to always wait for the topology service on start.
+     */
+    public GlobalTopologyServiceManager(String clientName, int hearbeatIntervalSeconds, TopologyCache topologyCache) {
 
         LOG.info("Instantiating the Global Topology Service Manager.");
 
         this.clientName = clientName;
         this.hearbeatIntervalSeconds = hearbeatIntervalSeconds;
+        this.topologyCache = topologyCache;
     }
 
     @Override
@@ -47,18 +77,50 @@ public class GlobalTopologyServiceManager implements TopologyManager {
 
         this.eventManager = eventManager;
 
-        LOG.trace("Subscribing to topology update events.");
+        LOG.trace("Subscribing to topology delta events.");
+
+        // Full snapshots are only ever taken as responses to our own requests. Subscribing to TopologyUpdate would also bind us to every other client's
+        // registration response, each a full copy of the topology.
+        subscriptionToken = eventManager.subscribe(new TopologyDeltaHandler());
+
+        TopologyRegistry cachedRegistry = topologyCache == null ? null : topologyCache.load();
+        if (cachedRegistry != null) {
+
+            LOG.debug("Routing from cached topology version [{}] while registering with the Global Topology Service.", cachedRegistry.getVersion());
 
-        subscriptionToken = eventManager.subscribe(new TopologyUpdateHandler());
+            topologyRegistry = cachedRegistry;
+            notifyTopologyUpdateListeners();
+
+            // Registration reconciles the cached topology with the service by version; routing need not wait for it.
+            Thread registration = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    register();
+                }
+            }, "event-bus-topology-registration");
+            registration.setDaemon(true);
+            registration.start();
+
+        } else {
+            register();
+        }
+    }
+
+    private void register() {
 
         RegisterClient registerClientEvent = new RegisterClient(clientName, topologyRegistry.getVersion());
         try {
 
             LOG.trace("Registering client {} with Global Topology Service.", clientName);
 
+            // A topology service whose registry matches our version answers with an empty delta rather than a snapshot.
             @SuppressWarnings("unchecked")
-            TopologyUpdate topologyUpdateResponseEvent = eventManager.getResponseTo(registerClientEvent, 5000, TopologyUpdate.class);
-            topologyRegistry = topologyUpdateResponseEvent.getTopologyRegistry();
+            Object response = eventManager.getResponseTo(registerClientEvent, 5000, TopologyUpdate.class, TopologyDelta.class);
+            if (response instanceof TopologyUpdate) {
+                applyUpdate((TopologyUpdate) response);
+            } else {
+                applyDelta((TopologyDelta) response);
+            }
         
             startHeartBeat();
             
@@ -74,10 +136,116 @@ public class GlobalTopologyServiceManager implements TopologyManager {
         }
     }
 
-    private void startHeartBeat() {
+    /**
+     * Registers a listener to be notified whenever a new topology is received from the global topology service.
+     */
+    public void attachTopologyUpdateListener(TopologyUpdateListener listener) {
+        topologyUpdateListeners.add(listener);
+    }
+
+    public void detachTopologyUpdateListener(TopologyUpdateListener listener) {
+        topologyUpdateListeners.remove(listener);
+    }
+
+    /**
+     * Applies a full snapshot of the topology, replacing the registry outright.
+     */
+    void applyUpdate(TopologyUpdate update) {
+
+        synchronized (resynchronizing) {
+
+            LOG.trace("Applying topology snapshot at sequence number {}.", update.getTopologyRegistry().getSequenceNumber());
+
+            topologyRegistry = update.getTopologyRegistry();
+
+            if (topologyCache != null) {
+                topologyCache.save(topologyRegistry.snapshot());
+            }
+        }
+
+        notifyTopologyUpdateListeners();
+    }
+
+    /**
+     * Applies a topology delta if it is the next in sequence. A delta from a later sequence number or a different epoch means updates were missed, so a fresh
+     * snapshot is requested instead.
+     */
+    void applyDelta(TopologyDelta delta) {
+
+        synchronized (resynchronizing) {
+
+            TopologyRegistry registry = topologyRegistry;
+            long expectedSequenceNumber = registry.getSequenceNumber() + 1;
+
+            if (!registry.getEpoch().equals(delta.getEpoch()) || delta.getSequenceNumber() > expectedSequenceNumber) {
+
+                LOG.info("Topology update {} received when expecting {}; requesting a full topology.", delta.getSequenceNumber(), expectedSequenceNumber);
+
+                requestSnapshot();
+                return;
+            }
+
+            if (delta.getSequenceNumber() < expectedSequenceNumber) {
+
+                LOG.trace("Ignoring topology update {} as the topology is already at {}.", delta.getSequenceNumber(), registry.getSequenceNumber());
+
+                return;
+            }
+
+            LOG.trace("Applying topology delta at sequence number {}.", delta.getSequenceNumber());
+
+            registry.setRoutes(delta.getEventRoutes(), delta.getEventSetRoutes(), delta.getSequenceNumber());
+
+            if (topologyCache != null) {
+                topologyCache.save(topologyRegistry.snapshot());
+            }
+        }
+
+        notifyTopologyUpdateListeners();
+    }
+
+    /**
+     * Re-registers with the topology service in the background to obtain a full snapshot of the topology, unless a request is already outstanding.
+     */
+    private void requestSnapshot() {
+
+        if (!resynchronizing.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread resync = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    @SuppressWarnings("unchecked")
+                    Object snapshot = eventManager.getResponseTo(new RegisterClient(clientName, topologyRegistry.getVersion()), 5000, TopologyUpdate.class,
+                            TopologyDelta.class);
+                    if (snapshot instanceof TopologyUpdate) {
+                        applyUpdate((TopologyUpdate) snapshot);
+                    }
+                } catch (Exception e) {
+                    LOG.error("Failed to obtain a full topology from the Global Topology Service.", e);
+                } finally {
+                    resynchronizing.set(false);
+                }
+            }
+        }, "event-bus-topology-resync");
+        resync.setDaemon(true);
+        resync.start();
+    }
+
+    private void notifyTopologyUpdateListeners() {
+        for (TopologyUpdateListener listener : topologyUpdateListeners) {
+            listener.onTopologyUpdated();
+        }
+    }
+
+    private synchronized void startHeartBeat() {
+
+		if (closed) {
+			return;
+		}
 
-		scheduler = Executors.newScheduledThreadPool(1);
-		
 		Runnable sender = new Runnable(){
 			@Override
 			public void run() {
@@ -89,22 +257,25 @@ public class GlobalTopologyServiceManager implements TopologyManager {
 				}
 			}};
 		
-		scheduler.scheduleAtFixedRate(sender, hearbeatIntervalSeconds, hearbeatIntervalSeconds, TimeUnit.SECONDS);
+		heartbeat = HEARTBEAT_SCHEDULER.scheduleAtFixedRate(sender, hearbeatIntervalSeconds, hearbeatIntervalSeconds, TimeUnit.SECONDS);
 
-		LOG.debug("HearBeat thread started.");
+		LOG.debug("HearBeat scheduled.");
     }
 
 	@Override
     public void close() {
 		
-		if(scheduler != null && !scheduler.isShutdown()){
-			LOG.trace("Stopping HearBeat thread.");
-        	scheduler.shutdownNow();
+		synchronized (this) {
+			closed = true;
+			if(heartbeat != null){
+				LOG.trace("Stopping HearBeat.");
+	        	heartbeat.cancel(false);
+			}
 		}
 		
         LOG.trace("Global Topology Service Manager closing.");
         eventManager.unsubscribe(subscriptionToken);
-        LOG.trace("Unsubscribed TopologyUpdateHandler.");
+        LOG.trace("Unsubscribed TopologyDeltaHandler.");
         UnregisterClient unregisterClientEvent = new UnregisterClient(clientName);
         LOG.trace("Unregistered client.");
         eventManager.publish(unregisterClientEvent);
@@ -127,6 +298,15 @@ public class GlobalTopologyServiceManager implements TopologyManager {
         return route;
     }
 
+    @Override
+    public RoutingInfo[] getRoutingInfoForEvents(Class<?>[] eventTypes) {
+        RoutingInfo[] routes = new RoutingInfo[eventTypes.length];
+        for (int i = 0; i < eventTypes.length; i++) {
+            routes[i] = getRoutingInfoForEvent(eventTypes[i]);
+        }
+        return routes;
+    }
+
     @Override
     public RoutingInfo[] getRoutingInfoForNamedEventSet(String eventSetName) {
 
@@ -141,20 +321,21 @@ public class GlobalTopologyServiceManager implements TopologyManager {
         return routes;
     }
 
-    public class TopologyUpdateHandler implements EventHandler<TopologyUpdate> {
+    public class TopologyDeltaHandler implements EventHandler<TopologyDelta> {
 
         @SuppressWarnings("unchecked")
         @Override
-        public Class<? extends TopologyUpdate>[] getHandledEventTypes() {
-            return new Class[] { TopologyUpdate.class };
+        public Class<? extends TopologyDelta>[] getHandledEventTypes() {
+            Class<?>[] handledEvents = { TopologyDelta.class };
+            return (Class<? extends TopologyDelta>[]) handledEvents;
         }
 
         @Override
-        public EventResult handleEvent(TopologyUpdate event) {
+        public EventResult handleEvent(TopologyDelta event) {
 
-            LOG.trace("Received topology update.");
+            LOG.trace("Received topology delta.");
 
-            topologyRegistry = event.getTopologyRegistry();
+            applyDelta(event);
             return EventResult.Handled;
         }
 
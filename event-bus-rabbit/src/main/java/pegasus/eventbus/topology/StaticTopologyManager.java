@@ -50,8 +50,14 @@ public class StaticTopologyManager implements TopologyManager {
     	registerType(UnregisterClient.class);
     	registerType(HeartBeat.class);
       	registerType(TopologyUpdate.class);
+      	registerType(TopologyDelta.class);
      	registerType(GetEventTypeRoute.class);
       	registerType(EventTypeRoutingInfo.class);
+      	registerType(ReplicaHeartBeat.class);
+      	registerType(ProposeEventRoute.class);
+      	registerType(GetTopologySnapshot.class);
+      	registerType(GetEventTypeRoutes.class);
+      	registerType(EventTypeRoutes.class);
     }
 
     private void registerType(Class<?> eventType){
@@ -75,6 +81,15 @@ public class StaticTopologyManager implements TopologyManager {
         return route;
     }
 
+    @Override
+    public RoutingInfo[] getRoutingInfoForEvents(Class<?>[] eventTypes) {
+        RoutingInfo[] routes = new RoutingInfo[eventTypes.length];
+        for (int i = 0; i < eventTypes.length; i++) {
+            routes[i] = getRoutingInfoForEvent(eventTypes[i]);
+        }
+        return routes;
+    }
+
     @Override
     public RoutingInfo[] getRoutingInfoForNamedEventSet(String eventSetName) {
 
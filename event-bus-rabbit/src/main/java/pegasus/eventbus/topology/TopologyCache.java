@@ -0,0 +1,117 @@
+package pegasus.eventbus.topology;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Persists the last topology received from the global topology service to a local JSON file, so that a client can route events as soon as it starts rather than
+ * waiting for the service (or routing without it if the service is down).
+ * <p>
+ * The file is replaced by writing the new topology to a temporary file alongside it and renaming that over the old one, so a crash part way through a save
+ * leaves the previous topology in place.
+ */
+public class TopologyCache {
+
+    private static final Logger  LOG     = LoggerFactory.getLogger(TopologyCache.class);
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private final File           file;
+    private final Gson           gson    = new Gson();
+
+    /**
+     * @param file
+     *            The file the topology is kept in. Its directory is created if need be.
+     */
+    public TopologyCache(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return The cached topology, or null if there is none or it cannot be read.
+     */
+    public synchronized TopologyRegistry load() {
+
+        if (!file.isFile()) {
+
+            LOG.debug("No cached topology found at [{}].", file);
+
+            return null;
+        }
+
+        try {
+            Reader reader = new InputStreamReader(new FileInputStream(file), CHARSET);
+            try {
+                TopologyRegistry registry = gson.fromJson(reader, TopologyRegistry.class);
+
+                LOG.debug("Loaded cached topology version [{}] from [{}].", registry == null ? null : registry.getVersion(), file);
+
+                return registry;
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+
+            LOG.warn("Could not read the cached topology at [" + file + "]; it will be ignored.", e);
+
+            return null;
+        } catch (JsonParseException e) {
+
+            LOG.warn("The cached topology at [" + file + "] is corrupt; it will be ignored.", e);
+
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the cached topology with the given one. Failures are logged rather than thrown as the cache is only an optimization.
+     */
+    public synchronized void save(TopologyRegistry registry) {
+
+        File directory = file.getAbsoluteFile().getParentFile();
+        File temporaryFile = new File(directory, file.getName() + ".tmp");
+
+        try {
+            directory.mkdirs();
+
+            Writer writer = new OutputStreamWriter(new FileOutputStream(temporaryFile), CHARSET);
+            try {
+                gson.toJson(registry, writer);
+            } finally {
+                writer.close();
+            }
+
+            if (!temporaryFile.renameTo(file)) {
+                // Some platforms will not rename over an existing file.
+                file.delete();
+                if (!temporaryFile.renameTo(file)) {
+                    throw new IOException("Could not rename " + temporaryFile + " to " + file);
+                }
+            }
+
+            LOG.trace("Saved topology version [{}] to [{}].", registry.getVersion(), file);
+
+        } catch (IOException e) {
+
+            LOG.warn("Could not save the topology to [" + file + "].", e);
+
+            temporaryFile.delete();
+        }
+    }
+}
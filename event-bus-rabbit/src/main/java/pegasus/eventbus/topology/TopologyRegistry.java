@@ -1,52 +1,187 @@
 package pegasus.eventbus.topology;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 import pegasus.eventbus.amqp.RoutingInfo;
 
-//TODO: PEGA-723 This class need test coverage.
+/**
+ * The routes known to the global topology service. Every change replaces the registry's routes with a new immutable copy, so readers never lock and always see a
+ * set of routes together with the sequence number they belong to, even while another thread is changing the registry.
+ * <p>
+ * The registry is serialized as its top level {@code eventMap} and {@code eventSetMap} fields, as it always has been, so that clients and topology services of
+ * different versions can read each other's registries; {@code epoch} and {@code sequenceNumber} sit beside them. These fields always hold the current routes'
+ * values, and are read back into the immutable copy when a deserialized registry is first used.
+ */
 public class TopologyRegistry {
 
-    private static final String        Version     = "1.0";
+    private Map<String, RoutingInfo>   eventMap    = Collections.emptyMap();
+    private Map<String, RoutingInfo[]> eventSetMap = Collections.emptyMap();
+    private String                     epoch       = UUID.randomUUID().toString();
+    private long                       sequenceNumber;
 
-    private Map<String, RoutingInfo>   eventMap    = new HashMap<String, RoutingInfo>();
-    private Map<String, RoutingInfo[]> eventSetMap = new HashMap<String, RoutingInfo[]>();
+    private transient volatile Routes  routes;
 
+    public TopologyRegistry() {
+
+    }
+
+    private TopologyRegistry(Routes routes) {
+        setRoutes(routes);
+    }
+
+    /**
+     * @return A copy of the registry as it stands now, unaffected by later changes to either registry.
+     */
+    public TopologyRegistry snapshot() {
+        return new TopologyRegistry(getRoutes());
+    }
+
+    /**
+     * Replaces the entire contents of this registry, including its epoch and sequence number, with those of the given registry as a single change.
+     */
+    public synchronized void replaceWith(TopologyRegistry registry) {
+        setRoutes(registry.getRoutes());
+    }
+
+    /**
+     * @return The registry's version: its epoch followed by its sequence number. The version changes with every change to the registry, so a client whose version
+     *         matches the topology service's is already current.
+     */
     public String getVersion() {
-        return Version;
+        Routes routes = getRoutes();
+        return routes.epoch + ":" + routes.sequenceNumber;
+    }
+
+    /**
+     * @return Identifies this registry's lineage of sequence numbers; a topology service that starts afresh starts a new one.
+     */
+    public String getEpoch() {
+        return getRoutes().epoch;
+    }
+
+    public synchronized void setEpoch(String epoch) {
+        Routes routes = getRoutes();
+        setRoutes(new Routes(epoch, routes.eventMap, routes.eventSetMap, routes.sequenceNumber));
+    }
+
+    /**
+     * @return The number of changes made to this registry since its epoch began; topology updates carry it so that clients can detect missed updates.
+     */
+    public long getSequenceNumber() {
+        return getRoutes().sequenceNumber;
+    }
+
+    public synchronized void setSequenceNumber(long sequenceNumber) {
+        Routes routes = getRoutes();
+        setRoutes(new Routes(routes.epoch, routes.eventMap, routes.eventSetMap, sequenceNumber));
     }
 
     public boolean hasEventRoute(String topic) {
-        return eventMap.containsKey(topic);
+        return getRoutes().eventMap.containsKey(topic);
     }
 
     public RoutingInfo getEventRoute(String topic) {
-        return eventMap.get(topic);
+        return getRoutes().eventMap.get(topic);
     }
 
-    public void setEventRoute(String topic, RoutingInfo route) {
+    public synchronized void setEventRoute(String topic, RoutingInfo route) {
+        Routes routes = getRoutes();
+        Map<String, RoutingInfo> eventMap = new HashMap<String, RoutingInfo>(routes.eventMap);
         eventMap.put(topic, route);
+        setRoutes(new Routes(routes.epoch, eventMap, routes.eventSetMap, routes.sequenceNumber + 1));
     }
 
     public boolean hasEventSetRoutes(String eventSetName) {
-        return eventSetMap.containsKey(eventSetName);
+        return getRoutes().eventSetMap.containsKey(eventSetName);
     }
 
     public RoutingInfo[] getEventSetRoutes(String eventSetName) {
-        return eventSetMap.get(eventSetName);
+        return getRoutes().eventSetMap.get(eventSetName);
     }
 
-    public void setEventSetRoutes(String eventSetName, RoutingInfo[] routes) {
-        eventSetMap.put(eventSetName, routes);
+    public synchronized void setEventSetRoutes(String eventSetName, RoutingInfo[] eventSetRoutes) {
+        Routes routes = getRoutes();
+        Map<String, RoutingInfo[]> eventSetMap = new HashMap<String, RoutingInfo[]>(routes.eventSetMap);
+        eventSetMap.put(eventSetName, eventSetRoutes);
+        setRoutes(new Routes(routes.epoch, routes.eventMap, eventSetMap, routes.sequenceNumber + 1));
     }
 
-    public void setEventMap(Map<String, RoutingInfo> eventMap) {
-        this.eventMap = eventMap;
+    /**
+     * Sets any number of event and event set routes and the sequence number they bring the registry to as a single change, so that readers see either all of
+     * them or none.
+     */
+    public synchronized void setRoutes(Map<String, RoutingInfo> eventRoutes, Map<String, RoutingInfo[]> eventSetRoutes, long sequenceNumber) {
+        Routes routes = getRoutes();
+        Map<String, RoutingInfo> eventMap = new HashMap<String, RoutingInfo>(routes.eventMap);
+        if (eventRoutes != null) {
+            eventMap.putAll(eventRoutes);
+        }
+        Map<String, RoutingInfo[]> eventSetMap = new HashMap<String, RoutingInfo[]>(routes.eventSetMap);
+        if (eventSetRoutes != null) {
+            eventSetMap.putAll(eventSetRoutes);
+        }
+        setRoutes(new Routes(routes.epoch, eventMap, eventSetMap, sequenceNumber));
     }
 
-    public void setEventSetMap(Map<String, RoutingInfo[]> eventSetMap) {
-        this.eventSetMap = eventSetMap;
+    public synchronized void setEventMap(Map<String, RoutingInfo> eventMap) {
+        Routes routes = getRoutes();
+        setRoutes(new Routes(routes.epoch, new HashMap<String, RoutingInfo>(eventMap), routes.eventSetMap, routes.sequenceNumber + 1));
     }
 
+    public synchronized void setEventSetMap(Map<String, RoutingInfo[]> eventSetMap) {
+        Routes routes = getRoutes();
+        setRoutes(new Routes(routes.epoch, routes.eventMap, new HashMap<String, RoutingInfo[]>(eventSetMap), routes.sequenceNumber + 1));
+    }
+
+    /**
+     * @return The current routes, read from the serialized fields the first time a deserialized registry is used.
+     */
+    private Routes getRoutes() {
+        Routes routes = this.routes;
+        if (routes == null) {
+            synchronized (this) {
+                routes = this.routes;
+                if (routes == null) {
+                    // A registry written by an older topology service has no epoch; it is given one of its own.
+                    routes = new Routes(epoch == null ? UUID.randomUUID().toString() : epoch,
+                                        eventMap == null ? Collections.<String, RoutingInfo> emptyMap() : eventMap,
+                                        eventSetMap == null ? Collections.<String, RoutingInfo[]> emptyMap() : eventSetMap, sequenceNumber);
+                    this.routes = routes;
+                }
+            }
+        }
+        return routes;
+    }
+
+    /**
+     * Publishes the given routes to readers, keeping the serialized fields in step with them. Callers hold the registry's lock.
+     */
+    private void setRoutes(Routes routes) {
+        this.eventMap = routes.eventMap;
+        this.eventSetMap = routes.eventSetMap;
+        this.epoch = routes.epoch;
+        this.sequenceNumber = routes.sequenceNumber;
+        this.routes = routes;
+    }
+
+    /**
+     * An immutable set of routes and the epoch and sequence number of the change that produced it. The maps are never modified once the instance is published.
+     */
+    private static final class Routes {
+
+        private final String                     epoch;
+        private final Map<String, RoutingInfo>   eventMap;
+        private final Map<String, RoutingInfo[]> eventSetMap;
+        private final long                       sequenceNumber;
+
+        private Routes(String epoch, Map<String, RoutingInfo> eventMap, Map<String, RoutingInfo[]> eventSetMap, long sequenceNumber) {
+            this.epoch = epoch;
+            this.eventMap = eventMap;
+            this.eventSetMap = eventSetMap;
+            this.sequenceNumber = sequenceNumber;
+        }
+    }
 }
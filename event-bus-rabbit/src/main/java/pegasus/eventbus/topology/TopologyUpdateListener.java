@@ -0,0 +1,12 @@
+package pegasus.eventbus.topology;
+
+/**
+ * Notified whenever a topology manager's view of the topology changes, e.g. so that routes cached from it can be discarded.
+ */
+public interface TopologyUpdateListener {
+
+    /**
+     * Invoked after the topology has been updated.
+     */
+    void onTopologyUpdated();
+}
@@ -0,0 +1,31 @@
+package pegasus.eventbus.topology.events;
+
+import java.util.Map;
+
+import pegasus.eventbus.amqp.RoutingInfo;
+
+/**
+ * The response to a {@link GetEventTypeRoutes}: the route of each event type requested, keyed by the type's canonical name.
+ */
+public class EventTypeRoutes {
+
+    private Map<String, RoutingInfo> routes;
+
+    //@todo - needed for gson in osgi
+    public EventTypeRoutes() {
+
+    }
+
+    public EventTypeRoutes(Map<String, RoutingInfo> routes) {
+        this.routes = routes;
+    }
+
+    public Map<String, RoutingInfo> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<String, RoutingInfo> routes) {
+        this.routes = routes;
+    }
+
+}
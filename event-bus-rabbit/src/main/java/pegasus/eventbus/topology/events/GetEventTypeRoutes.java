@@ -0,0 +1,28 @@
+package pegasus.eventbus.topology.events;
+
+/**
+ * Asks the topology service for the routes of several event types at once, so that a subscription to many types can be routed in a single round trip. The
+ * response is an {@link EventTypeRoutes}.
+ */
+public class GetEventTypeRoutes {
+
+    private String[] eventTypeCanonicalNames;
+
+    //@todo - needed for gson in osgi
+    public GetEventTypeRoutes() {
+
+    }
+
+    public GetEventTypeRoutes(String... eventTypeCanonicalNames) {
+        this.eventTypeCanonicalNames = eventTypeCanonicalNames;
+    }
+
+    public String[] getEventTypeCanonicalNames() {
+        return eventTypeCanonicalNames;
+    }
+
+    public void setEventTypeCanonicalNames(String[] eventTypeCanonicalNames) {
+        this.eventTypeCanonicalNames = eventTypeCanonicalNames;
+    }
+
+}
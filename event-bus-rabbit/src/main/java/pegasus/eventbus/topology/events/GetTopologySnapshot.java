@@ -0,0 +1,27 @@
+package pegasus.eventbus.topology.events;
+
+/**
+ * Asks the named replica of the topology service to respond with a full snapshot of its registry as a {@link TopologyUpdate}.
+ */
+public class GetTopologySnapshot {
+
+    private String replicaId;
+
+    //@todo - needed for gson in osgi
+    public GetTopologySnapshot() {
+
+    }
+
+    public GetTopologySnapshot(String replicaId) {
+        this.replicaId = replicaId;
+    }
+
+    public String getReplicaId() {
+        return replicaId;
+    }
+
+    public void setReplicaId(String replicaId) {
+        this.replicaId = replicaId;
+    }
+
+}
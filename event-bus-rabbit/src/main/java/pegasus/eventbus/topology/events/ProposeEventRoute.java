@@ -0,0 +1,40 @@
+package pegasus.eventbus.topology.events;
+
+import pegasus.eventbus.amqp.RoutingInfo;
+
+/**
+ * Sent by a replica of the topology service that has handed out a route it does not yet have in its registry, asking the replica that writes the registry to
+ * add it.
+ */
+public class ProposeEventRoute {
+
+    private String      eventTypeCanonicalName;
+    private RoutingInfo route;
+
+    //@todo - needed for gson in osgi
+    public ProposeEventRoute() {
+
+    }
+
+    public ProposeEventRoute(String eventTypeCanonicalName, RoutingInfo route) {
+        this.eventTypeCanonicalName = eventTypeCanonicalName;
+        this.route = route;
+    }
+
+    public String getEventTypeCanonicalName() {
+        return eventTypeCanonicalName;
+    }
+
+    public void setEventTypeCanonicalName(String eventTypeCanonicalName) {
+        this.eventTypeCanonicalName = eventTypeCanonicalName;
+    }
+
+    public RoutingInfo getRoute() {
+        return route;
+    }
+
+    public void setRoute(RoutingInfo route) {
+        this.route = route;
+    }
+
+}
@@ -0,0 +1,62 @@
+package pegasus.eventbus.topology.events;
+
+/**
+ * Broadcast periodically by each replica of the topology service so that the replicas can tell which of them are alive, elect the writer of the registry, and
+ * notice when their copy of the registry has fallen behind the writer's.
+ */
+public class ReplicaHeartBeat {
+
+    private String replicaId;
+    private long   uptimeMills;
+    private String epoch;
+    private long   sequenceNumber;
+
+    //@todo - needed for gson in osgi
+    public ReplicaHeartBeat() {
+
+    }
+
+    public ReplicaHeartBeat(String replicaId, long uptimeMills, String epoch, long sequenceNumber) {
+        this.replicaId = replicaId;
+        this.uptimeMills = uptimeMills;
+        this.epoch = epoch;
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    public String getReplicaId() {
+        return replicaId;
+    }
+
+    public void setReplicaId(String replicaId) {
+        this.replicaId = replicaId;
+    }
+
+    /**
+     * @return How long the replica has been running, measured on its own clock; the longest running replica writes the registry. An elapsed time rather than a
+     *         start time is sent so that replicas need not have synchronized clocks to agree on which of them that is.
+     */
+    public long getUptimeMills() {
+        return uptimeMills;
+    }
+
+    public void setUptimeMills(long uptimeMills) {
+        this.uptimeMills = uptimeMills;
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(String epoch) {
+        this.epoch = epoch;
+    }
+
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public void setSequenceNumber(long sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
+}
@@ -0,0 +1,89 @@
+package pegasus.eventbus.topology.events;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import pegasus.eventbus.amqp.RoutingInfo;
+
+/**
+ * Carries only the routes added or changed by a single change to the topology registry, together with the registry's epoch and the sequence number the change
+ * brings it to. A client holding sequence number n can apply a delta for n + 1 and must fetch a new snapshot if it sees anything later. Deltas are a type of
+ * their own, rather than a kind of {@link TopologyUpdate}, so that clients which only understand full snapshots never receive them.
+ */
+public class TopologyDelta {
+
+    private String                     epoch;
+    private long                       sequenceNumber;
+    private Map<String, RoutingInfo>   eventRoutes;
+    private Map<String, RoutingInfo[]> eventSetRoutes;
+
+    //@todo - needed for gson in osgi
+    public TopologyDelta() {
+
+    }
+
+    /**
+     * Creates an empty delta, which tells a client already holding the given epoch and sequence number that its registry is current.
+     */
+    public TopologyDelta(String epoch, long sequenceNumber) {
+        this.epoch = epoch;
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    /**
+     * Creates a delta which brings a registry of the given epoch up to the given sequence number by setting a single event route.
+     */
+    public TopologyDelta(String epoch, long sequenceNumber, String topic, RoutingInfo route) {
+        this.epoch = epoch;
+        this.sequenceNumber = sequenceNumber;
+        this.eventRoutes = new HashMap<String, RoutingInfo>();
+        this.eventRoutes.put(topic, route);
+    }
+
+    /**
+     * Creates a delta which brings a registry of the given epoch up to the given sequence number by setting any number of event routes.
+     */
+    public TopologyDelta(String epoch, long sequenceNumber, Map<String, RoutingInfo> eventRoutes) {
+        this.epoch = epoch;
+        this.sequenceNumber = sequenceNumber;
+        this.eventRoutes = new HashMap<String, RoutingInfo>(eventRoutes);
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(String epoch) {
+        this.epoch = epoch;
+    }
+
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public void setSequenceNumber(long sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    /**
+     * @return The event routes added or changed by the delta, keyed by topic.
+     */
+    public Map<String, RoutingInfo> getEventRoutes() {
+        return eventRoutes;
+    }
+
+    public void setEventRoutes(Map<String, RoutingInfo> eventRoutes) {
+        this.eventRoutes = eventRoutes;
+    }
+
+    /**
+     * @return The event set routes added or changed by the delta, keyed by event set name.
+     */
+    public Map<String, RoutingInfo[]> getEventSetRoutes() {
+        return eventSetRoutes;
+    }
+
+    public void setEventSetRoutes(Map<String, RoutingInfo[]> eventSetRoutes) {
+        this.eventSetRoutes = eventSetRoutes;
+    }
+}
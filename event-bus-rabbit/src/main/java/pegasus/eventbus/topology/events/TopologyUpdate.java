@@ -2,10 +2,26 @@ package pegasus.eventbus.topology.events;
 
 import pegasus.eventbus.topology.TopologyRegistry;
 
+/**
+ * Carries a full snapshot of the topology registry, which every client, whatever its version, can replace its registry with. Clients receive snapshots as
+ * responses to their own requests and follow changes to the registry through {@link TopologyDelta}s; a snapshot is broadcast alongside each delta only for
+ * clients from before deltas were introduced.
+ */
 public class TopologyUpdate {
 
     private TopologyRegistry topologyRegistry;
 
+    public TopologyUpdate() {
+
+    }
+
+    /**
+     * Creates a full snapshot of the given registry as it stands now.
+     */
+    public TopologyUpdate(TopologyRegistry topologyRegistry) {
+        this.topologyRegistry = topologyRegistry.snapshot();
+    }
+
     public TopologyRegistry getTopologyRegistry() {
         return topologyRegistry;
     }
@@ -0,0 +1,155 @@
+package pegasus.eventbus.amqp;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import pegasus.eventbus.client.Envelope;
+import pegasus.eventbus.client.EnvelopeHandler;
+import pegasus.eventbus.client.EventManager.UnsubscribeListener;
+import pegasus.eventbus.client.SubscriptionToken;
+import pegasus.eventbus.testsupport.TestResponseEvent;
+
+public class AmqpEventManager_AsyncRPCTest extends AmqpEventManager_TestBase {
+
+    private byte[]            bytesOfResponseMessage = { 1 };
+    private TestResponseEvent deserializedResponse   = new TestResponseEvent();
+    private EnvelopeHandler   replyQueueHandler;
+    private Envelope          request;
+
+    @Before
+    @Override
+    public void beforeEachTest() {
+
+        super.beforeEachTest();
+
+        when(serializer.deserialize(bytesOfResponseMessage, TestResponseEvent.class)).thenReturn(deserializedResponse);
+
+        when(messageBus.beginConsumingMessages(anyString(), any(EnvelopeHandler.class))).then(new Answer<String>() {
+
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                replyQueueHandler = (EnvelopeHandler) invocation.getArguments()[1];
+                return null;
+            }
+        });
+
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                request = (Envelope) invocation.getArguments()[1];
+                return null;
+            }
+        }).when(messageBus).publish(any(RoutingInfo.class), any(Envelope.class));
+    }
+
+    private void respond() {
+        Envelope responseEnvelope = new Envelope();
+        responseEnvelope.setEventType(TestResponseEvent.class.getCanonicalName());
+        responseEnvelope.setCorrelationId(request.getId());
+        responseEnvelope.setBody(bytesOfResponseMessage);
+
+        replyQueueHandler.handleEnvelope(responseEnvelope);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void aRequestShouldReturnBeforeAResponseIsReceived() {
+
+        Future<TestResponseEvent> response = manager.request(sendEvent, 1000, TestResponseEvent.class);
+
+        assertFalse(response.isDone());
+        verify(messageBus).publish(any(RoutingInfo.class), any(Envelope.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void aRequestShouldCompleteWithTheFirstResponse() throws Exception {
+
+        Future<TestResponseEvent> response = manager.request(sendEvent, 1000, TestResponseEvent.class);
+
+        respond();
+
+        assertSame(deserializedResponse, response.get(100, TimeUnit.MILLISECONDS));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void aRequestShouldFailWithATimeoutExceptionIfNoResponseIsReceivedInTime() throws Exception {
+
+        Future<TestResponseEvent> response = manager.request(sendEvent, 10, TestResponseEvent.class);
+
+        try {
+            response.get(1, TimeUnit.SECONDS);
+            fail("Expected the request to time out.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void aCompletedRequestShouldBeUnsubscribed() throws Exception {
+
+        UnsubscribeListener listener = mock(UnsubscribeListener.class);
+        manager.attachUnsubscribeListener(listener);
+
+        Future<TestResponseEvent> response = manager.request(sendEvent, 1000, TestResponseEvent.class);
+        respond();
+        response.get(100, TimeUnit.MILLISECONDS);
+
+        verify(listener).onUnsubscribe(any(SubscriptionToken.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void gatheringShouldCompleteOnceTheRequestedNumberOfResponsesAreReceived() throws Exception {
+
+        Future<List<TestResponseEvent>> responses = manager.gatherResponsesTo(sendEvent, 2, 1000, TestResponseEvent.class);
+
+        respond();
+        assertFalse(responses.isDone());
+        respond();
+
+        assertEquals(2, responses.get(100, TimeUnit.MILLISECONDS).size());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void gatheringShouldYieldTheResponsesReceivedByTheDeadline() throws Exception {
+
+        Future<List<TestResponseEvent>> responses = manager.gatherResponsesTo(sendEvent, 0, 50, TestResponseEvent.class);
+
+        respond();
+        respond();
+        respond();
+
+        assertEquals(3, responses.get(1, TimeUnit.SECONDS).size());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void gatheringShouldYieldNoResponsesRatherThanFailIfNoneAreReceived() throws Exception {
+
+        Future<List<TestResponseEvent>> responses = manager.gatherResponsesTo(sendEvent, 5, 10, TestResponseEvent.class);
+
+        assertTrue(responses.get(1, TimeUnit.SECONDS).isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = IllegalArgumentException.class)
+    public void gatheringAllResponsesWithoutATimeoutShouldBeRejected() {
+        manager.gatherResponsesTo(sendEvent, 0, 0, TestResponseEvent.class);
+    }
+}
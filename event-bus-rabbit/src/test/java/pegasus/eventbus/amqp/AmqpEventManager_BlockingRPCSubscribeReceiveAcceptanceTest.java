@@ -5,6 +5,7 @@ import static org.hamcrest.Matchers.lessThan;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
+import java.util.UUID;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.lang.time.StopWatch;
@@ -21,11 +22,20 @@ public class AmqpEventManager_BlockingRPCSubscribeReceiveAcceptanceTest extends
     private byte[]            bytesOfResponseMessage = { 1 };
     private TestResponseEvent deserializedResponse   = new TestResponseEvent();
 
+    private EnvelopeHandler   replyQueueHandler;
+    private boolean           correlateResponses     = true;
+
     private void setupResponseMessage() {
+        setupResponseMessage(null);
+    }
 
-        final Envelope responseEnvelope = new Envelope();
-        responseEnvelope.setEventType(TestResponseEvent.class.getCanonicalName());
-        responseEnvelope.setBody(bytesOfResponseMessage);
+    /**
+     * Arranges for a response to be delivered to the reply-to queue as soon as the request is published.
+     * 
+     * @param correlationId
+     *            The response's correlation id, or null to correlate it with the published request.
+     */
+    private void setupResponseMessage(final UUID correlationId) {
 
         when(serializer.deserialize(bytesOfResponseMessage, TestResponseEvent.class)).thenReturn(deserializedResponse);
 
@@ -33,11 +43,28 @@ public class AmqpEventManager_BlockingRPCSubscribeReceiveAcceptanceTest extends
 
             @Override
             public String answer(InvocationOnMock invocation) throws Throwable {
-                EnvelopeHandler handler = (EnvelopeHandler) invocation.getArguments()[1];
-                handler.handleEnvelope(responseEnvelope);
+                replyQueueHandler = (EnvelopeHandler) invocation.getArguments()[1];
                 return null;
             }
         });
+
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Envelope request = (Envelope) invocation.getArguments()[1];
+
+                Envelope responseEnvelope = new Envelope();
+                responseEnvelope.setEventType(TestResponseEvent.class.getCanonicalName());
+                if (correlateResponses) {
+                    responseEnvelope.setCorrelationId(correlationId == null ? request.getId() : correlationId);
+                }
+                responseEnvelope.setBody(bytesOfResponseMessage);
+
+                replyQueueHandler.handleEnvelope(responseEnvelope);
+                return null;
+            }
+        }).when(messageBus).publish(any(RoutingInfo.class), any(Envelope.class));
     }
 
     @Test
@@ -63,6 +90,41 @@ public class AmqpEventManager_BlockingRPCSubscribeReceiveAcceptanceTest extends
         assertThat(watch.getTime(), lessThan(100L));
     }
 
+    @Test(expected = TimeoutException.class)
+    public void aResponseCorrelatedWithADifferentRequestShouldBeIgnored() throws InterruptedException, TimeoutException {
+
+        setupResponseMessage(UUID.randomUUID());
+
+        @SuppressWarnings({ "unchecked", "unused" })
+        TestResponseEvent response = manager.getResponseTo(sendEvent, 50, TestResponseEvent.class);
+    }
+
+    @Test
+    public void anUncorrelatedResponseShouldBeReturnedToARequestForItsType() throws InterruptedException, TimeoutException {
+
+        correlateResponses = false;
+        setupResponseMessage();
+
+        @SuppressWarnings({ "unchecked" })
+        TestResponseEvent response = manager.getResponseTo(sendEvent, 100, TestResponseEvent.class);
+        assertEquals(deserializedResponse, response);
+    }
+
+    @Test
+    public void consecutiveRequestsShouldEachReceiveTheirOwnResponseOverASingleReplyQueue() throws InterruptedException, TimeoutException {
+
+        setupResponseMessage();
+
+        for (int i = 0; i < 3; i++) {
+            @SuppressWarnings({ "unchecked" })
+            TestResponseEvent response = manager.getResponseTo(sendEvent, 100, TestResponseEvent.class);
+            assertEquals(deserializedResponse, response);
+        }
+
+        verify(messageBus, times(1)).createQueue(anyString(), any(RoutingInfo[].class), anyBoolean());
+        verify(messageBus, times(1)).beginConsumingMessages(anyString(), any(EnvelopeHandler.class));
+    }
+
     @Test(expected = TimeoutException.class)
     public void getResponseToShouldThrowIfAResponseIsNotReceivedWithinTheTimeoutPeriod() throws InterruptedException, TimeoutException {
 
@@ -0,0 +1,79 @@
+package pegasus.eventbus.amqp;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+
+import pegasus.eventbus.client.Envelope;
+
+public class AmqpEventManager_EnvelopesBeingHandledTest extends AmqpEventManager_TestBase {
+
+    @Test
+    public void equalButDistinctEventsShouldNotShareAnEnvelope() {
+
+        Map<Object, Envelope> envelopesBeingHandled = manager.getEnvelopesBeingHandled();
+        String event1 = new String("event");
+        String event2 = new String("event");
+        Envelope envelope1 = new Envelope();
+        Envelope envelope2 = new Envelope();
+
+        envelopesBeingHandled.put(event1, envelope1);
+        envelopesBeingHandled.put(event2, envelope2);
+
+        assertSame(envelope1, envelopesBeingHandled.get(event1));
+        assertSame(envelope2, envelopesBeingHandled.get(event2));
+
+        envelopesBeingHandled.remove(event1);
+
+        assertNull(envelopesBeingHandled.get(event1));
+        assertSame(envelope2, envelopesBeingHandled.get(event2));
+    }
+
+    @Test
+    public void envelopesShouldBeTrackedSafelyFromManyThreadsAtOnce() throws InterruptedException {
+
+        final Map<Object, Envelope> envelopesBeingHandled = manager.getEnvelopesBeingHandled();
+        final int threadCount = 8;
+        final int eventsPerThread = 1000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(threadCount);
+        final boolean[] failures = new boolean[threadCount];
+
+        for (int t = 0; t < threadCount; t++) {
+            final int threadNumber = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < eventsPerThread; i++) {
+                            Object event = new Object();
+                            Envelope envelope = new Envelope();
+                            envelopesBeingHandled.put(event, envelope);
+                            if (envelopesBeingHandled.get(event) != envelope) {
+                                failures[threadNumber] = true;
+                            }
+                            envelopesBeingHandled.remove(event);
+                        }
+                    } catch (InterruptedException e) {
+                        failures[threadNumber] = true;
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        start.countDown();
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+
+        for (boolean failed : failures) {
+            assertFalse(failed);
+        }
+        assertTrue(envelopesBeingHandled.isEmpty());
+    }
+}
@@ -0,0 +1,91 @@
+package pegasus.eventbus.amqp;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import pegasus.eventbus.client.EnvelopeHandler;
+import pegasus.eventbus.client.Subscription;
+import pegasus.eventbus.client.SubscriptionToken;
+import pegasus.eventbus.testsupport.TestSendEvent;
+
+/**
+ * Tests that Subscription.numberOfThreads controls how many consumers are registered for a subscription.
+ */
+public class AmqpEventManager_MultiThreadedSubscribeTest extends AmqpEventManager_TestBase {
+
+    private Subscription subscription;
+
+    @Before
+    @Override
+    public void beforeEachTest() {
+
+        super.beforeEachTest();
+
+        final AtomicInteger consumerCount = new AtomicInteger();
+        when(messageBus.beginConsumingMessages(anyString(), any(EnvelopeHandler.class))).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                return "consumer-" + consumerCount.incrementAndGet();
+            }
+        });
+
+        subscription = new Subscription(new TestEventHandler(TestSendEvent.class));
+    }
+
+    @Test
+    public void aSubscriptionShouldHaveASingleConsumerByDefault() {
+        manager.subscribe(subscription);
+        verify(messageBus, times(1)).beginConsumingMessages(anyString(), any(EnvelopeHandler.class));
+    }
+
+    @Test
+    public void aSubscriptionShouldHaveOneConsumerPerThread() {
+        subscription.setNumberOfThreads(3);
+        manager.subscribe(subscription);
+        verify(messageBus, times(3)).beginConsumingMessages(anyString(), any(EnvelopeHandler.class));
+    }
+
+    @Test
+    public void allConsumersShouldShareTheSameQueue() {
+        subscription.setNumberOfThreads(3);
+        manager.subscribe(subscription);
+        String queueName = getCreatedQueueName();
+        verify(messageBus, times(3)).beginConsumingMessages(eq(queueName), any(EnvelopeHandler.class));
+    }
+
+    @Test
+    public void aSubscriptionsPrefetchCountShouldBePassedToEachConsumer() {
+        subscription.setNumberOfThreads(2);
+        subscription.setPrefetchCount(10);
+        manager.subscribe(subscription);
+        verify(messageBus, times(2)).beginConsumingMessages(anyString(), any(EnvelopeHandler.class), eq(10));
+    }
+
+    @Test
+    public void unsubscribingShouldStopEveryConsumer() {
+        subscription.setNumberOfThreads(3);
+        SubscriptionToken token = manager.subscribe(subscription);
+
+        manager.unsubscribe(token);
+
+        verify(messageBus).stopConsumingMessages("consumer-1");
+        verify(messageBus).stopConsumingMessages("consumer-2");
+        verify(messageBus).stopConsumingMessages("consumer-3");
+    }
+
+    @Test
+    public void resubscribingAfterAConnectionResetShouldRestartEveryConsumer() {
+        subscription.setNumberOfThreads(2);
+        manager.subscribe(subscription);
+
+        manager.onUnexpectedConnectionClose(true);
+
+        verify(messageBus, times(4)).beginConsumingMessages(anyString(), any(EnvelopeHandler.class));
+    }
+}
@@ -1,36 +1,37 @@
 package pegasus.eventbus.amqp;
 
+import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
 import org.junit.*;
-import org.mockito.InOrder;
+import org.mockito.ArgumentCaptor;
 
-import pegasus.eventbus.client.Envelope;
-import pegasus.eventbus.client.EnvelopeHandler;
 import pegasus.eventbus.client.SubscriptionToken;
+import pegasus.eventbus.testsupport.TestResponseEvent;
 
 public class AmqpEventManager_NonBlockingRPCBasicSubscribeTest extends
-		AmqpEventManager_BasicSubscribeTestBase {
+		AmqpEventManager_RPCBasicSubscribeTestBase {
 
 	@Override
 	protected SubscriptionToken subscribe() {
 		return manager.getResponseTo(sendEvent, handler);
 	}
 
-	@Override
-	protected String getRouteSuffix() {
-		//Routing keys for RPC subscriptions should include the reply-to queueName as the final segment.
-		return getCreatedQueueName();
-	}
-	
 	@Test
-	public void theEnvelopeShouldNotBePublishedBeforeTheResponseHandlerIsPolling(){
-		
-		InOrder inOrder = inOrder(messageBus);
-		
+	public void aRequestForANewResponseTypeShouldOnlyBindTheNewTypeToTheReplyQueue(){
+
+		manager.getResponseTo(sendEvent, new TestEventHandler(TestResponseEvent.class));
+
+		String queueName = getCreatedQueueName();
+		RoutingInfo[] expectedRoutes = getExpectedRoutes();
+
 		subscribe();
-		
-		inOrder.verify(messageBus).beginConsumingMessages(anyString(), any(EnvelopeHandler.class));
-		inOrder.verify(messageBus).publish(any(RoutingInfo.class), any(Envelope.class));		}
-}
\ No newline at end of file
+
+		ArgumentCaptor<RoutingInfo[]> routingCaptor = ArgumentCaptor.forClass(RoutingInfo[].class);
+		verify(messageBus, times(2)).createQueue(eq(queueName), routingCaptor.capture(), anyBoolean());
+
+		assertArrayEquals(new RoutingInfo[] { expectedRoutes[2] }, routingCaptor.getAllValues().get(0));
+		assertArrayEquals(new RoutingInfo[] { expectedRoutes[0], expectedRoutes[1] }, routingCaptor.getAllValues().get(1));
+	}
+}
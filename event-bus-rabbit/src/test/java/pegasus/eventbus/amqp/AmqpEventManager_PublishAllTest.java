@@ -0,0 +1,84 @@
+package pegasus.eventbus.amqp;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.*;
+import org.mockito.ArgumentCaptor;
+
+import pegasus.eventbus.client.Envelope;
+import pegasus.eventbus.testsupport.TestSendEvent;
+import pegasus.eventbus.testsupport.TestSendEvent2;
+
+/**
+ * Tests of the AmqpEventManager.publishAll method.
+ */
+public class AmqpEventManager_PublishAllTest extends AmqpEventManager_TestBase {
+
+    private TestSendEvent     sendEventA = new TestSendEvent("John Doe", new Date(), 101, "weather");
+    private TestSendEvent     sendEventB = new TestSendEvent("Jane Doe", new Date(), 102, "wind");
+    private TestSendEvent2    sendEventC = new TestSendEvent2();
+
+    private List<RoutingInfo> publishedRoutes;
+    private List<Envelope>    publishedEnvelopes;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    @Override
+    public void beforeEachTest() {
+
+        super.beforeEachTest();
+
+        when(serializer.serialize(any())).thenReturn(new byte[] { 1, 2, 3 });
+
+        manager.publishAll(Arrays.asList(sendEventA, sendEventB, sendEventC));
+
+        ArgumentCaptor<List> routesCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List> envelopesCaptor = ArgumentCaptor.forClass(List.class);
+
+        verify(messageBus).publishBatch(routesCaptor.capture(), envelopesCaptor.capture());
+
+        publishedRoutes = routesCaptor.getValue();
+        publishedEnvelopes = envelopesCaptor.getValue();
+    }
+
+    @Test
+    public void eachEventShouldBePublishedOnItsOwnRouteInOrder() {
+        assertEquals(Arrays.asList(routingInfo, routingInfo, routingInfo2), publishedRoutes);
+    }
+
+    @Test
+    public void eachEventShouldBeSerializedIntoItsOwnEnvelope() {
+        assertEquals(3, publishedEnvelopes.size());
+        assertEquals(TestSendEvent2.class.getCanonicalName(), publishedEnvelopes.get(2).getEventType());
+        assertFalse(publishedEnvelopes.get(0).getId().equals(publishedEnvelopes.get(1).getId()));
+    }
+
+    @Test
+    public void routesShouldBeResolvedOncePerEventType() {
+        verify(topologyManager, times(1)).getRoutingInfoForEvent(TestSendEvent.class);
+        verify(topologyManager, times(1)).getRoutingInfoForEvent(TestSendEvent2.class);
+    }
+
+    @Test
+    public void eachExchangeShouldBeCreatedOnlyOnce() {
+        verify(messageBus, times(1)).createExchange(routingInfo.getExchange());
+    }
+
+    @Test
+    public void eventsShouldNotBePublishedIndividually() {
+        verify(messageBus, never()).publish(any(RoutingInfo.class), any(Envelope.class));
+    }
+
+    @Test
+    public void anEmptyBatchShouldNotBePublished() {
+        manager.publishAll(new ArrayList<Object>());
+        verify(messageBus, times(1)).publishBatch(anyListOf(RoutingInfo.class), anyListOf(Envelope.class));
+    }
+}
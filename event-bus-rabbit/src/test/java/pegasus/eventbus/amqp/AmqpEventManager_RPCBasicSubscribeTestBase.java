@@ -0,0 +1,96 @@
+package pegasus.eventbus.amqp;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.*;
+import org.mockito.InOrder;
+
+import pegasus.eventbus.client.Envelope;
+import pegasus.eventbus.client.EnvelopeHandler;
+import pegasus.eventbus.client.SubscriptionToken;
+
+/**
+ * Subscription behavior common to both forms of getResponseTo. Responses to every request arrive on a single reply-to queue shared by the manager, so unlike a
+ * regular subscription a request neither creates nor tears down a queue of its own.
+ */
+public abstract class AmqpEventManager_RPCBasicSubscribeTestBase extends AmqpEventManager_BasicSubscribeTestBase {
+
+	@Override
+	protected String getRouteSuffix() {
+		//Routing keys for RPC subscriptions should include the reply-to queueName as the final segment.
+		return getCreatedQueueName();
+	}
+
+	@Override
+	@Test 
+	public void subscribingWithoutSpecifyingAQueueNameShouldUseARandomQueueName(){
+		//Replaced by repeatedRequestsShouldShareASingleReplyQueue.
+	}
+
+	@Override
+	@Test
+	public void unsubscribingShouldStopPollingOnThatQueue() throws InterruptedException{
+		//Replaced by completingARequestShouldNotStopPollingTheReplyQueue.
+	}
+
+	@Override
+	@Test
+	public void unsubscribingASubscriptionSubscribedWithoutAQueueNameShouldDeleteTheQueue() throws InterruptedException{
+		//Replaced by completingARequestShouldNotDeleteTheReplyQueue.
+	}
+
+	@Test 
+	public void repeatedRequestsShouldShareASingleReplyQueue(){
+		
+		subscribe();
+		subscribe();
+		
+		verify(messageBus, times(1)).createQueue(anyString(), any(RoutingInfo[].class), anyBoolean());
+		verify(messageBus, times(1)).beginConsumingMessages(anyString(), any(EnvelopeHandler.class));
+		verify(messageBus, times(2)).publish(any(RoutingInfo.class), any(Envelope.class));
+	}
+
+	@Test
+	public void completingARequestShouldNotStopPollingTheReplyQueue() throws InterruptedException{
+
+		SubscriptionToken token = subscribe();
+
+		unsubscribe(token);
+		
+		verify(messageBus, never()).stopConsumingMessages(anyString());
+	}
+
+	@Test
+	public void completingARequestShouldNotDeleteTheReplyQueue() throws InterruptedException{
+
+		SubscriptionToken token = subscribe();
+
+		unsubscribe(token);
+	
+		verify(messageBus, never()).deleteQueue(anyString());
+	}
+
+	@Test
+	public void closingTheManagerShouldDeleteTheReplyQueue() throws InterruptedException{
+
+		subscribe();
+
+		String queueName = getCreatedQueueName();
+
+		manager.close();
+		
+		verify(messageBus).deleteQueue(queueName);
+	}
+
+	@Test
+	public void theEnvelopeShouldNotBePublishedBeforeTheResponseHandlerIsPolling(){
+
+		InOrder inOrder = inOrder(messageBus);
+		
+		subscribe();
+		
+		inOrder.verify(messageBus).beginConsumingMessages(anyString(), any(EnvelopeHandler.class));
+		inOrder.verify(messageBus).publish(any(RoutingInfo.class), any(Envelope.class));		
+	}
+}
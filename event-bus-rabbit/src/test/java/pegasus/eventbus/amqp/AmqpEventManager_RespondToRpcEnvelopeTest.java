@@ -6,6 +6,7 @@ import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.*;
@@ -28,6 +29,8 @@ public class AmqpEventManager_RespondToRpcEnvelopeTest extends
 
 	private RoutingInfo expectedRoute;
 
+	private UUID requestId = UUID.randomUUID();
+
 	@Override
 	public void beforeEachTest(){
 		super.beforeEachTest();
@@ -42,6 +45,7 @@ public class AmqpEventManager_RespondToRpcEnvelopeTest extends
 		envelopeOfTypeTestSendEvent.setEventType(TestSendEvent2.class.getCanonicalName());
 		envelopeOfTypeTestSendEvent.setBody(bytesForMessageOfTypeTestSendEvent);
 		envelopeOfTypeTestSendEvent.setReplyTo(REPLY_TO_QUEUE);
+		envelopeOfTypeTestSendEvent.setId(requestId);
 		
 		when(serializer.deserialize(bytesForMessageOfTypeTestSendEvent, TestSendEvent2.class)).thenReturn(new TestSendEvent2());
 		
@@ -118,6 +122,17 @@ public class AmqpEventManager_RespondToRpcEnvelopeTest extends
 		assertEquals(REPLY_TO_QUEUE, publishedEnvelope.getReplyTo());
 	}
 	
+	@Override
+	@Test 
+	public void thePublishedEnvelopeShouldNotHaveACorrelationIdAssigned(){
+		//Replaced by thePublishedEnvelopeShouldBeCorrelatedWithTheReceivedEnvelope as responses must carry the request's id.
+	}
+	
+	@Test 
+	public void thePublishedEnvelopeShouldBeCorrelatedWithTheReceivedEnvelope(){
+		assertEquals(requestId, publishedEnvelope.getCorrelationId());
+	}
+	
 	@Test 
 	public void thePublishedRouteShouldBeTheRouteForTheResponseTypePlusTheReplyToValue(){	
 		assertEquals(expectedRoute, publishedRoute);
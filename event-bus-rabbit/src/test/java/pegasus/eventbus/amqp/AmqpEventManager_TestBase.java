@@ -15,6 +15,8 @@ import org.junit.Before;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import pegasus.eventbus.client.Envelope;
 import pegasus.eventbus.client.EnvelopeHandler;
@@ -73,6 +75,19 @@ public class AmqpEventManager_TestBase {
         when(topologyManager.getRoutingInfoForEvent(TestSendEvent2.class)).thenReturn(routingInfo2);
 
         when(topologyManager.getRoutingInfoForEvent(TestResponseEvent.class)).thenReturn(returnRoutingInfo);
+
+        // Batch lookups answer with whatever the per type lookups are stubbed to return, so tests need only stub the latter.
+        when(topologyManager.getRoutingInfoForEvents(any(Class[].class))).thenAnswer(new Answer<RoutingInfo[]>() {
+            @Override
+            public RoutingInfo[] answer(InvocationOnMock invocation) throws Throwable {
+                Class<?>[] eventTypes = (Class<?>[]) invocation.getArguments()[0];
+                RoutingInfo[] routes = new RoutingInfo[eventTypes.length];
+                for (int i = 0; i < eventTypes.length; i++) {
+                    routes[i] = topologyManager.getRoutingInfoForEvent(eventTypes[i]);
+                }
+                return routes;
+            }
+        });
     }
 
     @After
@@ -0,0 +1,54 @@
+package pegasus.eventbus.amqp;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import pegasus.eventbus.testsupport.TestResponseEvent;
+
+public class CallbackHandlerTest {
+
+    private CallbackHandler<TestResponseEvent> handler;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void beforeEachTest() {
+        handler = new CallbackHandler<TestResponseEvent>(TestResponseEvent.class);
+    }
+
+    @Test
+    public void waitingShouldEndAsSoonAsAResponseArrives() throws InterruptedException {
+        final TestResponseEvent response = new TestResponseEvent();
+
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                handler.handleEvent(response);
+            }
+        }.start();
+
+        long start = System.currentTimeMillis();
+        assertSame(response, handler.waitForResponse(5000));
+        assertTrue(System.currentTimeMillis() - start < 2000);
+    }
+
+    @Test
+    public void waitingShouldReturnNullWhenNoResponseArrivesInTime() throws InterruptedException {
+        assertNull(handler.waitForResponse(20));
+    }
+
+    @Test
+    public void theFirstResponseReceivedShouldBeKept() throws InterruptedException {
+        TestResponseEvent first = new TestResponseEvent();
+
+        handler.handleEvent(first);
+        handler.handleEvent(new TestResponseEvent());
+
+        assertSame(first, handler.waitForResponse(0));
+    }
+}
@@ -124,6 +124,54 @@ public class EventEnvelopeHandler_HandleEnvelopeTest{
 		assertThatTheListOfInProcessEventNoLongerContainsTheHandledEvent();
 	}
 
+	@Test 
+	public void anEventTypeNamedByTheCanonicalNameOfANestedClassShouldBeHandled()  {
+		
+		NestedEventHandler nestedEventHandler = new NestedEventHandler();
+		envelopeHandler = new EventEnvelopeHandler(eventManager, nestedEventHandler);
+		when(serializer.deserialize(goodBody, NestedEvent.class)).thenReturn(new NestedEvent());
+		envelope.setEventType(NestedEvent.class.getCanonicalName());
+		
+		EventResult result = envelopeHandler.handleEnvelope(envelope);
+
+		assertEquals(EventResult.Handled, result);
+		assertTrue(nestedEventHandler.handlerWasInvoked);
+	}
+
+	@Test 
+	public void repeatedEnvelopesOfTheSameTypeShouldEachBeHandled()  {
+		
+		givenAHandlerThatReturns(EventResult.Handled);
+		
+		assertEquals(EventResult.Handled, envelopeHandler.handleEnvelope(envelope));
+		assertEquals(EventResult.Handled, envelopeHandler.handleEnvelope(envelope));
+		verify(serializer, times(2)).deserialize(goodBody, TestSendEvent.class);
+	}
+
+	@Test 
+	public void anEnvelopeMarkedWithAContentTypeShouldBeDeserializedByTheSerializerForThatType()  {
+		
+		Serializer binarySerializer = mock(Serializer.class);
+		when(eventManager.getSerializer("application/x-test")).thenReturn(binarySerializer);
+		when(binarySerializer.deserialize(goodBody, TestSendEvent.class)).thenReturn(new TestSendEvent());
+		envelope.setContentType("application/x-test");
+		givenAHandlerThatReturns(EventResult.Handled);
+		
+		assertEquals(EventResult.Handled, envelopeHandler.handleEnvelope(envelope));
+		verify(binarySerializer).deserialize(goodBody, TestSendEvent.class);
+		verify(serializer, never()).deserialize(goodBody, TestSendEvent.class);
+	}
+
+	@Test 
+	public void anEnvelopeOfAnUnknownContentTypeShouldFail()  {
+		
+		envelope.setContentType("application/x-unknown");
+		givenAHandlerThatReturns(EventResult.Handled);
+		
+		assertEquals(EventResult.Failed, envelopeHandler.handleEnvelope(envelope));
+		assertFalse(eventHandler.getHandlerWasInvoked());
+	}
+
 	private void givenAHandlerThatHandlesTestSendEvents(){
 		eventHandler = new ResultSpecifyingEventHandler(EventResult.Handled);
 		envelopeHandler = new EventEnvelopeHandler(eventManager, eventHandler); 
@@ -199,4 +247,25 @@ public class EventEnvelopeHandler_HandleEnvelopeTest{
 			throw new RuntimeException();
 		}
 	}
+	
+	public static class NestedEvent {
+	}
+	
+	public static class NestedEventHandler implements EventHandler<NestedEvent>{
+		
+		boolean handlerWasInvoked;
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public Class<? extends NestedEvent>[] getHandledEventTypes() {
+			Class<?>[] handledTypes = {NestedEvent.class};
+			return  (Class<? extends NestedEvent>[]) handledTypes;
+		}
+
+		@Override
+		public EventResult handleEvent(NestedEvent event) {
+			handlerWasInvoked = true;
+			return EventResult.Handled;
+		}
+	}
 }
@@ -0,0 +1,92 @@
+package pegasus.eventbus.amqp;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.*;
+
+import pegasus.eventbus.client.Envelope;
+
+public class PayloadCompressorTest {
+
+    private PayloadCompressor compressor = new PayloadCompressor(100);
+
+    @Test
+    public void aBodyAtOrAboveTheThresholdShouldBeDeflatedAndMarked() {
+        byte[] body = compressibleBytes(100);
+        Envelope envelope = envelopeWithBody(body);
+
+        compressor.compress(envelope);
+
+        assertEquals(PayloadCompressor.DEFLATE, envelope.getContentEncoding());
+        assertTrue(envelope.getBody().length < body.length);
+        assertArrayEquals(body, PayloadCompressor.inflate(envelope.getBody()));
+    }
+
+    @Test
+    public void aBodyBelowTheThresholdShouldBeLeftAlone() {
+        byte[] body = compressibleBytes(99);
+        Envelope envelope = envelopeWithBody(body);
+
+        compressor.compress(envelope);
+
+        assertNull(envelope.getContentEncoding());
+        assertSame(body, envelope.getBody());
+    }
+
+    @Test
+    public void aBodyThatDeflatingWouldNotShrinkShouldBeLeftAlone() {
+        byte[] body = new byte[1000];
+        new Random(42).nextBytes(body);
+        Envelope envelope = envelopeWithBody(body);
+
+        compressor.compress(envelope);
+
+        assertNull(envelope.getContentEncoding());
+        assertSame(body, envelope.getBody());
+    }
+
+    @Test
+    public void largeBodiesShouldSurviveARoundTrip() {
+        byte[] body = compressibleBytes(1024 * 1024);
+
+        assertArrayEquals(body, PayloadCompressor.inflate(PayloadCompressor.deflate(body)));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void inflatingATruncatedBodyShouldFail() {
+        byte[] deflated = PayloadCompressor.deflate(compressibleBytes(1000));
+
+        PayloadCompressor.inflate(Arrays.copyOf(deflated, deflated.length / 2));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void inflatingABodyBeyondTheLimitShouldFail() {
+        byte[] deflated = PayloadCompressor.deflate(compressibleBytes(1000));
+
+        PayloadCompressor.inflate(deflated, 999);
+    }
+
+    @Test
+    public void aBodyThatInflatesToExactlyTheLimitShouldBeInflated() {
+        byte[] body = compressibleBytes(1000);
+
+        assertArrayEquals(body, PayloadCompressor.inflate(PayloadCompressor.deflate(body), 1000));
+    }
+
+    private static byte[] compressibleBytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) ('a' + i % 7);
+        }
+        return bytes;
+    }
+
+    private static Envelope envelopeWithBody(byte[] body) {
+        Envelope envelope = new Envelope();
+        envelope.setBody(body);
+        return envelope;
+    }
+}
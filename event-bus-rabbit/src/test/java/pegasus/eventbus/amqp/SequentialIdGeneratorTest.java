@@ -0,0 +1,53 @@
+package pegasus.eventbus.amqp;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.*;
+
+public class SequentialIdGeneratorTest {
+
+    private SequentialIdGenerator generator = new SequentialIdGenerator();
+
+    @Test
+    public void successiveIdsShouldBeUnique() {
+        Set<UUID> ids = new HashSet<UUID>();
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(ids.add(generator.nextId()));
+        }
+    }
+
+    @Test
+    public void idsShouldBeFormattedAsType4Uuids() {
+        UUID id = generator.nextId();
+        assertEquals(4, id.version());
+        assertEquals(2, id.variant());
+    }
+
+    @Test
+    public void idsShouldRemainWellFormedWhenTheCounterWraps() {
+        Random seed = new Random() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public long nextLong() {
+                return -2L;
+            }
+        };
+        SequentialIdGenerator wrappingGenerator = new SequentialIdGenerator(seed);
+        UUID beforeWrap = wrappingGenerator.nextId();
+        UUID afterWrap = wrappingGenerator.nextId();
+        assertFalse(beforeWrap.equals(afterWrap));
+        assertEquals(4, afterWrap.version());
+        assertEquals(2, afterWrap.variant());
+    }
+
+    @Test
+    public void separateGeneratorsShouldNotProduceTheSameIds() {
+        assertFalse(generator.nextId().equals(new SequentialIdGenerator().nextId()));
+    }
+}
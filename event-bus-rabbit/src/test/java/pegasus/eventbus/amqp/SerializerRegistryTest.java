@@ -0,0 +1,80 @@
+package pegasus.eventbus.amqp;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.*;
+
+import pegasus.eventbus.binary.BinarySerializer;
+import pegasus.eventbus.gson.GsonSerializer;
+import pegasus.eventbus.testsupport.TestSendEvent;
+import pegasus.eventbus.testsupport.TestSendEvent2;
+
+public class SerializerRegistryTest {
+
+    private Serializer         defaultSerializer;
+    private Serializer         otherSerializer;
+    private SerializerRegistry registry;
+
+    @Before
+    public void beforeEachTest() {
+        ContentTypedSerializer defaultSerializer = mock(ContentTypedSerializer.class);
+        when(defaultSerializer.getContentType()).thenReturn("application/x-default");
+        this.defaultSerializer = defaultSerializer;
+        ContentTypedSerializer otherSerializer = mock(ContentTypedSerializer.class);
+        when(otherSerializer.getContentType()).thenReturn("application/x-other");
+        this.otherSerializer = otherSerializer;
+
+        registry = new SerializerRegistry(defaultSerializer);
+    }
+
+    @Test
+    public void eventTypesShouldBeWrittenByTheDefaultSerializerUnlessAnotherIsRegistered() {
+        registry.register(TestSendEvent2.class, otherSerializer);
+
+        assertSame(defaultSerializer, registry.getSerializerForEventType(TestSendEvent.class));
+        assertSame(otherSerializer, registry.getSerializerForEventType(TestSendEvent2.class));
+    }
+
+    @Test
+    public void envelopesShouldBeReadByTheSerializerForTheirContentType() {
+        registry.register(otherSerializer);
+
+        assertSame(defaultSerializer, registry.getSerializerForContentType("application/x-default"));
+        assertSame(otherSerializer, registry.getSerializerForContentType("application/x-other"));
+    }
+
+    @Test
+    public void registeringASerializerForAnEventTypeShouldAlsoLetItReadItsContentType() {
+        registry.register(TestSendEvent2.class, otherSerializer);
+
+        assertSame(otherSerializer, registry.getSerializerForContentType("application/x-other"));
+    }
+
+    @Test
+    public void envelopesWithoutAContentTypeShouldBeReadByTheDefaultSerializer() {
+        assertSame(defaultSerializer, registry.getSerializerForContentType(null));
+    }
+
+    @Test
+    public void theBuiltInFormatsShouldBeReadableWithoutRegistration() {
+        assertTrue(registry.getSerializerForContentType(GsonSerializer.CONTENT_TYPE) instanceof GsonSerializer);
+        assertTrue(registry.getSerializerForContentType(BinarySerializer.CONTENT_TYPE) instanceof BinarySerializer);
+        assertSame(registry.getSerializerForContentType(BinarySerializer.CONTENT_TYPE), registry.getSerializerForContentType(BinarySerializer.CONTENT_TYPE));
+    }
+
+    @Test
+    public void aSerializerThatDoesNotNameItsContentTypeShouldWriteUnmarkedEnvelopes() {
+        Serializer untypedSerializer = mock(Serializer.class);
+        registry = new SerializerRegistry(untypedSerializer);
+
+        assertNull(SerializerRegistry.getContentType(untypedSerializer));
+        assertSame(untypedSerializer, registry.getSerializerForContentType(null));
+        assertEquals(GsonSerializer.CONTENT_TYPE, SerializerRegistry.getContentType(new GsonSerializer()));
+    }
+
+    @Test
+    public void anUnknownContentTypeShouldHaveNoSerializer() {
+        assertNull(registry.getSerializerForContentType("application/x-unknown"));
+    }
+}
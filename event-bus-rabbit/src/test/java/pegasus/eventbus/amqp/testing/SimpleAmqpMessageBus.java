@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 import pegasus.eventbus.amqp.AmqpMessageBus;
 import pegasus.eventbus.amqp.RoutingInfo;
@@ -18,6 +19,8 @@ import pegasus.eventbus.client.EventResult;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 public class SimpleAmqpMessageBus implements AmqpMessageBus {
 
@@ -192,6 +195,19 @@ public class SimpleAmqpMessageBus implements AmqpMessageBus {
         }
     }
 
+    @Override
+    public ListenableFuture<Boolean> publishWithConfirmation(RoutingInfo route, Envelope message) {
+        publish(route, message);
+        return Futures.immediateFuture(true);
+    }
+
+    @Override
+    public void publishBatch(List<RoutingInfo> routes, List<Envelope> messages) {
+        for (int i = 0; i < messages.size(); i++) {
+            publish(routes.get(i), messages.get(i));
+        }
+    }
+
     private List<MessageQueue> findMatchingQueues(RoutingInfo route) {
         List<MessageQueue> res = Lists.newArrayList();
         for (MessageQueue queue : allQueues.values()) {
@@ -202,6 +218,19 @@ public class SimpleAmqpMessageBus implements AmqpMessageBus {
         return res;
     }
 
+    @Override
+    public void setConsumerExecutor(Executor consumerExecutor) {
+    }
+
+    @Override
+    public void setMaxInflatedBodyBytes(int maxInflatedBodyBytes) {
+    }
+
+    @Override
+    public String beginConsumingMessages(String queueName, EnvelopeHandler consumer, int prefetchCount) {
+        return beginConsumingMessages(queueName, consumer);
+    }
+
     @Override
     public String beginConsumingMessages(String queueName, final EnvelopeHandler consumer) {
         checkStatus("beginConsumingMessages");
@@ -0,0 +1,199 @@
+package pegasus.eventbus.binary;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import pegasus.eventbus.amqp.Serializer;
+import pegasus.eventbus.gson.GsonSerializer;
+
+@RunWith(value = Parameterized.class)
+public class BinarySerializerTest {
+
+	@Parameters
+	public static Collection<Object[]> testObjectsToSerialize(){
+
+		Object[][] data = new Object[][] {
+				{ "Simple string", "adjfoiaj95489" },
+				{ "Json string", "{key: \"value\"}"},
+				{ "Negative number", -8945408342342357L},
+				{ "TestType1", new TestType1()},
+				{ "Immutable Types", new ComplexImmutableType("abc", -42) },
+				};
+		return Arrays.asList(data);
+	}
+
+	private Object objectToSerialize;
+	private String description;
+
+	public BinarySerializerTest(String description, Object objectToSerialize){
+		this.objectToSerialize = objectToSerialize;
+		this.description = description;
+	}
+
+	@Test
+	public void test() throws Exception {
+		Serializer s = new BinarySerializer();
+		byte[] serialized;
+		Object deserializedObject;
+		try{
+			serialized = s.serialize(objectToSerialize);
+		} catch (Exception e) {
+			throw new Exception(description + " failed to serialze.", e);
+		}
+		try{
+			deserializedObject = s.deserialize(serialized, objectToSerialize.getClass());
+		} catch (Exception e) {
+			throw new Exception(description + " failed to deserialze.", e);
+		}
+		assertEquals(description, objectToSerialize, deserializedObject);
+	}
+
+	@Test
+	public void theBinaryFormShouldBeNoLargerThanTheJsonForm() {
+		int binaryLength = new BinarySerializer().serialize(objectToSerialize).length;
+		int jsonLength = new GsonSerializer().serialize(objectToSerialize).length;
+		assertTrue(description + ": " + binaryLength + " bytes vs " + jsonLength, binaryLength <= jsonLength);
+	}
+
+	@Test
+	public void aTruncatedMessageShouldBeRejected() {
+		Serializer s = new BinarySerializer();
+		byte[] serialized = s.serialize(objectToSerialize);
+		try {
+			s.deserialize(Arrays.copyOf(serialized, serialized.length - 1), objectToSerialize.getClass());
+			fail(description + " was deserialized from a truncated message.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void aCountLargerThanTheMessageShouldBeRejectedBeforeAllocating() {
+		// Integer.MAX_VALUE and -1 elements, zig-zag encoded.
+		byte[] hugeCount = { (byte) 0xFE, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F };
+		byte[] negativeCount = { 0x01 };
+		for (byte[] count : new byte[][] { hugeCount, negativeCount }) {
+			assertRejected(BinarySerializer.ARRAY, count, String[].class);
+			assertRejected(BinarySerializer.ARRAY, count, List.class);
+			assertRejected(BinarySerializer.MAP, count, Map.class);
+			assertRejected(BinarySerializer.OBJECT, count, TestType1.class);
+		}
+	}
+
+	private void assertRejected(byte tag, byte[] count, Class<?> type) {
+		byte[] message = new byte[count.length + 1];
+		message[0] = tag;
+		System.arraycopy(count, 0, message, 1, count.length);
+		try {
+			new BinarySerializer().deserialize(message, type);
+			fail(type.getName() + " was deserialized with a count of " + Arrays.toString(count));
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public enum Weather { SUNNY, WINDY }
+
+	public static class TestType1{
+		private Date date = new Date(8945408342342000L);
+		private String string ="ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz1234567890-=+_)(*&^%$#@!`~{}|\\][:\"';/.,<>? é中";
+		private byte[] byteArray= {53,45,72,98,0,34,5,79,80};
+		private char[] charArray = string.toCharArray();
+		private int integer = -890823948;
+		private long longInteger = 8945408342342357L;
+		private short shortInteger = -3;
+		private boolean flag = true;
+		private float floatingPointNumber = 3.40282346638528860e+37f;
+		private double bigFloatingPointNumber = 1.79769313486231570e+308d;
+		private BigDecimal decimal = new BigDecimal("12345.6789");
+		private UUID uuid = UUID.randomUUID();
+		private Weather weather = Weather.WINDY;
+		private Integer boxedInteger = 7;
+		private Map<String,String> map = new HashMap<String,String>();
+		private HashMap<ComplexImmutableType, String> mapWithComplexKeys = new HashMap<ComplexImmutableType, String>();
+		private List<ComplexImmutableType> list = new ArrayList<ComplexImmutableType>();
+		private Set<String> sortedSet = new TreeSet<String>();
+		private String[][] nestedArray = { { "a", null }, {} };
+		private transient String notSerialized = "transient";
+
+		public TestType1(){
+			map.put("1", "one");
+			map.put("2", "two");
+
+			mapWithComplexKeys.put(new ComplexImmutableType("a", 1), "a");
+			mapWithComplexKeys.put(new ComplexImmutableType("b", 2), "b");
+
+			list.add(new ComplexImmutableType("c", Long.MIN_VALUE));
+			list.add(null);
+
+			sortedSet.add("z");
+			sortedSet.add("y");
+		}
+
+		private Object[] state() {
+			return new Object[] { date, string, byteArray, charArray, integer, longInteger, shortInteger, flag, floatingPointNumber, bigFloatingPointNumber,
+					decimal, uuid, weather, boxedInteger, map, mapWithComplexKeys, list, sortedSet, nestedArray };
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.deepHashCode(state());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof TestType1))
+				return false;
+			return Arrays.deepEquals(state(), ((TestType1) obj).state());
+		}
+
+		@Override
+		public String toString() {
+			return Arrays.deepToString(state()) + notSerialized;
+		}
+	}
+
+	private static class ComplexImmutableType {
+		private final String string;
+		private final long time;
+
+		private ComplexImmutableType(String string, long time) {
+			this.string = string;
+			this.time = time;
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(new Object[] { string, time });
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ComplexImmutableType))
+				return false;
+			ComplexImmutableType other = (ComplexImmutableType) obj;
+			return time == other.time && (string == null ? other.string == null : string.equals(other.string));
+		}
+
+		@Override
+		public String toString() {
+			return string + time;
+		}
+	}
+}
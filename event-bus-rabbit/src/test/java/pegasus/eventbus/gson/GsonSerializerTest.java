@@ -14,6 +14,9 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
 import pegasus.eventbus.amqp.Serializer;
 
 @RunWith(value = Parameterized.class)
@@ -56,6 +59,15 @@ public class GsonSerializerTest {
 		}
 		assertTrue(description, objectToSerialize.equals(deserializedObject));
 	}
+
+	@Test
+	public void serializedJsonShouldBeWhatGsonWouldProduce() throws Exception {
+		Gson gson = new GsonBuilder().enableComplexMapKeySerialization().create();
+		byte[] expected = gson.toJson(objectToSerialize).getBytes("UTF-8");
+		Serializer s = new GsonSerializer();
+		assertArrayEquals(description, expected, s.serialize(objectToSerialize));
+		assertArrayEquals(description + " (buffer reused)", expected, s.serialize(objectToSerialize));
+	}
 	
 	public static class TestType1{
 		private Date date = new Date(8945408342342000L);
@@ -0,0 +1,39 @@
+package pegasus.eventbus.gson;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+
+import pegasus.eventbus.amqp.Serializer;
+
+public class GsonSerializer_DeserializeTest {
+
+	private Serializer serializer = new GsonSerializer();
+
+	@Test(expected = JsonSyntaxException.class)
+	public void malformedJsonShouldBeReportedAsASyntaxError() throws Exception {
+		serializer.deserialize("{\"key\": ".getBytes("UTF-8"), TestType.class);
+	}
+
+	@Test
+	public void aBodyOfOnlyWhitespaceShouldDeserializeToNull() throws Exception {
+		assertNull(serializer.deserialize(" \r\n\t ".getBytes("UTF-8"), TestType.class));
+	}
+
+	@Test(expected = JsonIOException.class)
+	public void trailingContentAfterTheDocumentShouldBeRejected() throws Exception {
+		serializer.deserialize("{\"key\": \"value\"} garbage".getBytes("UTF-8"), TestType.class);
+	}
+
+	@Test
+	public void trailingWhitespaceAfterTheDocumentShouldBeIgnored() throws Exception {
+		assertEquals("value", serializer.deserialize("{\"key\": \"value\"}\n".getBytes("UTF-8"), TestType.class).key);
+	}
+
+	public static class TestType {
+		private String key;
+	}
+}
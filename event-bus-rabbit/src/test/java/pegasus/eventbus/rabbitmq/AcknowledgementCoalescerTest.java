@@ -0,0 +1,92 @@
+package pegasus.eventbus.rabbitmq;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.rabbitmq.client.Channel;
+
+public class AcknowledgementCoalescerTest {
+
+    @Mock
+    private Channel                  channel;
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    private AcknowledgementCoalescer acknowledgements;
+
+    @Before
+    public void beforeEachTest() {
+        MockitoAnnotations.initMocks(this);
+        acknowledgements = new AcknowledgementCoalescer(channel, 3, 100, scheduler);
+    }
+
+    @Test
+    public void handledMessagesShouldNotBeAcknowledgedUntilTheBatchIsFull() throws IOException {
+        acknowledgements.acknowledge(1);
+        acknowledgements.acknowledge(2);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void aFullBatchShouldBeAcknowledgedWithASingleMultipleAck() throws IOException {
+        acknowledgements.acknowledge(1);
+        acknowledgements.acknowledge(2);
+        acknowledgements.acknowledge(3);
+        verify(channel, times(1)).basicAck(3, true);
+        verifyNoMoreInteractions(channel);
+    }
+
+    @Test
+    public void aFlushShouldBeScheduledOncePerPartialBatch() throws IOException {
+        acknowledgements.acknowledge(1);
+        acknowledgements.acknowledge(2);
+        verify(scheduler, times(1)).schedule(any(Runnable.class), eq(100L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void theScheduledFlushShouldAcknowledgeAPartialBatch() throws IOException {
+        acknowledgements.acknowledge(1);
+        acknowledgements.acknowledge(2);
+
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(flush.capture(), anyLong(), any(TimeUnit.class));
+        flush.getValue().run();
+
+        verify(channel).basicAck(2, true);
+    }
+
+    @Test
+    public void rejectingShouldFirstAcknowledgeEarlierHandledMessages() throws IOException {
+        acknowledgements.acknowledge(1);
+        acknowledgements.reject(2, true);
+
+        InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicAck(1, true);
+        inOrder.verify(channel).basicReject(2, true);
+    }
+
+    @Test
+    public void rejectingWithNothingPendingShouldNotAcknowledge() throws IOException {
+        acknowledgements.reject(1, false);
+        verify(channel).basicReject(1, false);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void aBatchSizeOfOneShouldAcknowledgeEveryMessageImmediately() throws IOException {
+        acknowledgements = new AcknowledgementCoalescer(channel, 1, 100, scheduler);
+        acknowledgements.acknowledge(1);
+        verify(channel).basicAck(1, true);
+        verifyZeroInteractions(scheduler);
+    }
+}
@@ -0,0 +1,152 @@
+package pegasus.eventbus.rabbitmq;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+
+public class ChannelPoolTest {
+
+    @Mock
+    private RabbitConnection connection;
+    @Mock
+    private Channel          channel1;
+    @Mock
+    private Channel          channel2;
+    @Mock
+    private Channel          channel3;
+
+    private ChannelPool      pool;
+
+    @Before
+    public void beforeEachTest() throws IOException {
+
+        MockitoAnnotations.initMocks(this);
+
+        when(connection.createChannel()).thenReturn(channel1).thenReturn(channel2).thenReturn(channel3).thenThrow(new RuntimeException("Too many channels opened!"));
+
+        pool = new ChannelPool(connection, 2);
+    }
+
+    @Test
+    public void channelsShouldNotBeCreatedUntilNeeded() throws IOException {
+        verify(connection, never()).createChannel();
+    }
+
+    @Test
+    public void warmingUpShouldCreateASingleIdleChannel() throws IOException {
+        pool.warmUp();
+        verify(connection, times(1)).createChannel();
+        assertEquals(1, pool.getIdleChannelCount());
+        assertEquals(0, pool.getActiveChannelCount());
+    }
+
+    @Test
+    public void aReleasedChannelShouldBeReused() throws IOException {
+        pool.release(pool.acquire());
+        assertSame(channel1, pool.acquire());
+        verify(connection, times(1)).createChannel();
+    }
+
+    @Test
+    public void concurrentLeasesShouldEachGetTheirOwnChannel() {
+        Channel first = pool.acquire();
+        Channel second = pool.acquire();
+        assertNotSame(first, second);
+        assertEquals(2, pool.getActiveChannelCount());
+        assertEquals(2, pool.getChannelsCreatedCount());
+    }
+
+    @Test
+    public void acquiringBeyondTheMaximumShouldWaitForARelease() throws InterruptedException {
+        final Channel first = pool.acquire();
+        pool.acquire();
+
+        final CountDownLatch acquired = new CountDownLatch(1);
+        new Thread() {
+            @Override
+            public void run() {
+                assertSame(first, pool.acquire());
+                acquired.countDown();
+            }
+        }.start();
+
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        pool.release(first);
+        assertTrue(acquired.await(1, TimeUnit.SECONDS));
+        assertEquals(1, pool.getContendedAcquisitionCount());
+        assertEquals(3, pool.getAcquisitionCount());
+    }
+
+    @Test
+    public void aChannelThatIsShutDownShouldBeDiscarded() {
+        ArgumentCaptor<ShutdownListener> listener = ArgumentCaptor.forClass(ShutdownListener.class);
+        Channel channel = pool.acquire();
+        verify(channel1).addShutdownListener(listener.capture());
+
+        listener.getValue().shutdownCompleted(mock(ShutdownSignalException.class));
+        pool.release(channel);
+
+        assertEquals(0, pool.getIdleChannelCount());
+        assertSame(channel2, pool.acquire());
+    }
+
+    @Test
+    public void afterAResetChannelsFromThePreviousConnectionShouldNotBeReused() {
+        Channel leased = pool.acquire();
+        pool.release(pool.acquire());
+
+        pool.reset();
+        pool.release(leased);
+
+        assertEquals(0, pool.getIdleChannelCount());
+        assertSame(channel3, pool.acquire());
+    }
+
+    @Test
+    public void closingShouldCloseIdleChannels() throws IOException {
+        when(channel1.isOpen()).thenReturn(true);
+        pool.warmUp();
+        pool.close();
+        verify(channel1).close();
+        assertEquals(0, pool.getIdleChannelCount());
+    }
+
+    @Test
+    public void aChannelThatFailsToInitializeShouldBeClosedAndItsLeaseReturned() throws IOException {
+        pool.setChannelInitializer(new ChannelPool.ChannelInitializer() {
+            @Override
+            public void initialize(Channel channel) throws IOException {
+                throw new IOException("confirm.select failed");
+            }
+        });
+
+        try {
+            pool.acquire();
+            fail("The channel should not have been leased.");
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        verify(channel1).close();
+        assertEquals(0, pool.getActiveChannelCount());
+        assertEquals(0, pool.getIdleChannelCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aPoolMustAllowAtLeastOneChannel() {
+        new ChannelPool(connection, 0);
+    }
+}
@@ -0,0 +1,98 @@
+package pegasus.eventbus.rabbitmq;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.*;
+
+import pegasus.eventbus.amqp.PayloadCompressor;
+import pegasus.eventbus.client.Envelope;
+
+import com.google.gson.Gson;
+import com.rabbitmq.client.AMQP.BasicProperties;
+
+public class DeliveryEnvelopeTest {
+
+    private UUID                id            = UUID.randomUUID();
+    private UUID                correlationId = UUID.randomUUID();
+    private Date                timestamp     = new Date(3290830423452L);
+    private byte[]              body          = { 35, 74, 3, 50, 93 };
+    private Map<String, Object> headers       = new HashMap<String, Object>();
+
+    @Before
+    public void beforeEachTest() {
+        headers.put(RabbitMessageBus.TOPIC_HEADER_KEY, "test.topic");
+        headers.put(RabbitMessageBus.PUB_TIMESTAMP_HEADER_KEY, timestamp.getTime());
+        headers.put("custom", 42);
+    }
+
+    @Test
+    public void thePropertiesOfTheDeliveryShouldBeDecoded() {
+        Envelope envelope = new DeliveryEnvelope(new BasicProperties.Builder().messageId(id.toString()).correlationId(correlationId.toString())
+                .type("test.event").replyTo("reply.queue").contentType("application/json").headers(headers).build(), body);
+
+        assertEquals(id, envelope.getId());
+        assertEquals(correlationId, envelope.getCorrelationId());
+        assertEquals("test.event", envelope.getEventType());
+        assertEquals("reply.queue", envelope.getReplyTo());
+        assertEquals("application/json", envelope.getContentType());
+        assertEquals("test.topic", envelope.getTopic());
+        assertEquals(timestamp, envelope.getTimestamp());
+        assertArrayEquals(body, envelope.getBody());
+    }
+
+    @Test
+    public void internalHeadersShouldNotAppearAmongTheEnvelopesHeaders() {
+        Envelope envelope = new DeliveryEnvelope(new BasicProperties.Builder().headers(headers).build(), body);
+
+        assertEquals(1, envelope.getHeaders().size());
+        assertEquals("42", envelope.getHeaders().get("custom"));
+    }
+
+    @Test
+    public void aDeliveryWithoutPropertiesShouldDecodeToNulls() {
+        Envelope envelope = new DeliveryEnvelope(new BasicProperties(), body);
+
+        assertNull(envelope.getId());
+        assertNull(envelope.getCorrelationId());
+        assertNull(envelope.getTopic());
+        assertNull(envelope.getTimestamp());
+        assertTrue(envelope.getHeaders().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void anInvalidMessageIdShouldFailTheDelivery() {
+        new DeliveryEnvelope(new BasicProperties.Builder().messageId("not-a-uuid").type("test.event").build(), body);
+    }
+
+    @Test
+    public void theEnvelopeShouldBeFullyDecodedWhenSerializedByItsFields() {
+        Envelope envelope = new DeliveryEnvelope(new BasicProperties.Builder().messageId(id.toString()).correlationId(correlationId.toString())
+                .type("test.event").headers(headers).build(), body);
+
+        Gson gson = new Gson();
+        Envelope copy = gson.fromJson(gson.toJson(envelope, Envelope.class), Envelope.class);
+
+        assertEquals(id, copy.getId());
+        assertEquals(correlationId, copy.getCorrelationId());
+        assertEquals("test.event", copy.getEventType());
+        assertEquals("test.topic", copy.getTopic());
+        assertEquals(timestamp, copy.getTimestamp());
+        assertEquals("42", copy.getHeaders().get("custom"));
+        assertArrayEquals(body, copy.getBody());
+    }
+
+    @Test
+    public void aDeflatedBodyShouldBeInflated() {
+        Envelope envelope = new DeliveryEnvelope(new BasicProperties.Builder().contentEncoding(PayloadCompressor.DEFLATE).build(),
+                PayloadCompressor.deflate(body));
+
+        assertNull(envelope.getContentEncoding());
+        assertArrayEquals(body, envelope.getBody());
+        assertSame(envelope.getBody(), envelope.getBody());
+    }
+}
@@ -0,0 +1,167 @@
+package pegasus.eventbus.rabbitmq;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.*;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import pegasus.eventbus.amqp.PayloadCompressor;
+import pegasus.eventbus.client.Envelope;
+import pegasus.eventbus.client.EnvelopeHandler;
+import pegasus.eventbus.client.EventResult;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+
+public class EnvelopeHandlerBasedConsumerTest {
+
+    @Mock
+    private Channel                      channel;
+    @Mock
+    private EnvelopeHandler              handler;
+    @Mock
+    private Executor                     executor;
+
+    private com.rabbitmq.client.Envelope delivery = new com.rabbitmq.client.Envelope(7, false, "exchange", "route");
+
+    private BasicProperties              properties = new BasicProperties();
+
+    private AcknowledgementCoalescer     acknowledgements;
+
+    @Before
+    public void beforeEachTest() {
+        MockitoAnnotations.initMocks(this);
+        acknowledgements = new AcknowledgementCoalescer(channel, 1, 100, mock(ScheduledExecutorService.class));
+        when(handler.handleEnvelope(any(Envelope.class))).thenReturn(EventResult.Handled);
+    }
+
+    @Test
+    public void withoutAnExecutorDeliveriesShouldBeHandledImmediately() throws IOException {
+        EnvelopeHandlerBasedConsumer consumer = new EnvelopeHandlerBasedConsumer(channel, "queue", handler, acknowledgements, null);
+
+        consumer.handleDelivery("tag", delivery, properties, new byte[0]);
+
+        verify(handler).handleEnvelope(any(Envelope.class));
+        verify(channel).basicAck(7, true);
+    }
+
+    @Test
+    public void withAnExecutorDeliveriesShouldBeHandedOff() throws IOException {
+        EnvelopeHandlerBasedConsumer consumer = new EnvelopeHandlerBasedConsumer(channel, "queue", handler, acknowledgements, executor);
+
+        consumer.handleDelivery("tag", delivery, properties, new byte[0]);
+
+        verify(handler, never()).handleEnvelope(any(Envelope.class));
+
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).execute(task.capture());
+        task.getValue().run();
+
+        verify(handler).handleEnvelope(any(Envelope.class));
+        verify(channel).basicAck(7, true);
+    }
+
+    @Test
+    public void aDeliveryTheExecutorRejectsShouldBeRequeuedBeforeLaterDeliveriesAreAcknowledged() throws IOException {
+        EnvelopeHandlerBasedConsumer consumer = new EnvelopeHandlerBasedConsumer(channel, "queue", handler, acknowledgements, executor);
+        doThrow(new RejectedExecutionException()).doNothing().when(executor).execute(any(Runnable.class));
+
+        consumer.handleDelivery("tag", delivery, properties, new byte[0]);
+        consumer.handleDelivery("tag", new com.rabbitmq.client.Envelope(8, false, "exchange", "route"), properties, new byte[0]);
+
+        ArgumentCaptor<Runnable> tasks = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(2)).execute(tasks.capture());
+        tasks.getAllValues().get(1).run();
+
+        InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicReject(7, true);
+        inOrder.verify(channel).basicAck(8, true);
+    }
+
+    @Test
+    public void aDeliveryTheLaneDropsShouldBeRequeued() throws IOException {
+        EnvelopeHandlerBasedConsumer consumer = new EnvelopeHandlerBasedConsumer(channel, "queue", handler, acknowledgements, executor);
+
+        consumer.handleDelivery("tag", delivery, properties, new byte[0]);
+
+        ArgumentCaptor<SerialExecutor.DroppableTask> task = ArgumentCaptor.forClass(SerialExecutor.DroppableTask.class);
+        verify(executor).execute(task.capture());
+        task.getValue().drop();
+
+        verify(handler, never()).handleEnvelope(any(Envelope.class));
+        verify(channel).basicReject(7, true);
+    }
+
+    @Test
+    public void aFailedEnvelopeShouldBeRejected() throws IOException {
+        when(handler.handleEnvelope(any(Envelope.class))).thenReturn(EventResult.Failed);
+        EnvelopeHandlerBasedConsumer consumer = new EnvelopeHandlerBasedConsumer(channel, "queue", handler, acknowledgements, null);
+
+        consumer.handleDelivery("tag", delivery, properties, new byte[0]);
+
+        verify(channel).basicReject(7, false);
+    }
+
+    @Test
+    public void aDeliveryThatInflatesBeyondTheLimitShouldBeRejectedWithoutBeingHandled() throws IOException {
+        EnvelopeHandlerBasedConsumer consumer = new EnvelopeHandlerBasedConsumer(channel, "queue", handler, acknowledgements, null, 1000);
+        BasicProperties deflated = new BasicProperties.Builder().contentEncoding(PayloadCompressor.DEFLATE).build();
+
+        consumer.handleDelivery("tag", delivery, deflated, PayloadCompressor.deflate(new byte[1001]));
+
+        verify(handler, never()).handleEnvelope(any(Envelope.class));
+        verify(channel).basicReject(7, false);
+    }
+
+    @Test
+    public void aDeliveryThatCannotBeHandledShouldBeRejectedBeforeLaterDeliveriesAreAcknowledged() throws IOException {
+        when(handler.handleEnvelope(any(Envelope.class))).thenReturn(null).thenReturn(EventResult.Handled);
+        EnvelopeHandlerBasedConsumer consumer = new EnvelopeHandlerBasedConsumer(channel, "queue", handler, acknowledgements, null);
+
+        consumer.handleDelivery("tag", delivery, properties, new byte[0]);
+        consumer.handleDelivery("tag", new com.rabbitmq.client.Envelope(8, false, "exchange", "route"), properties, new byte[0]);
+
+        InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicReject(7, false);
+        inOrder.verify(channel).basicAck(8, true);
+    }
+
+    @Test
+    public void cancellingTheConsumerShouldCloseItsChannel() throws IOException {
+        EnvelopeHandlerBasedConsumer consumer = new EnvelopeHandlerBasedConsumer(channel, "queue", handler, acknowledgements, null);
+
+        consumer.handleCancelOk("tag");
+
+        verify(channel).close();
+    }
+
+    @Test
+    public void withAnExecutorTheChannelShouldBeClosedOnlyAfterDeliveriesHandedOffBeforeCancellationAreAcknowledged() throws IOException {
+        acknowledgements = new AcknowledgementCoalescer(channel, 10, 100, mock(ScheduledExecutorService.class));
+        EnvelopeHandlerBasedConsumer consumer = new EnvelopeHandlerBasedConsumer(channel, "queue", handler, acknowledgements, executor);
+
+        consumer.handleDelivery("tag", delivery, properties, new byte[0]);
+        consumer.handleCancelOk("tag");
+
+        verify(channel, never()).close();
+
+        ArgumentCaptor<Runnable> tasks = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(2)).execute(tasks.capture());
+        for (Runnable task : tasks.getAllValues()) {
+            task.run();
+        }
+
+        InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicAck(7, true);
+        inOrder.verify(channel).close();
+    }
+}
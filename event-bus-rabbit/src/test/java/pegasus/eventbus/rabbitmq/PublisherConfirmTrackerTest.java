@@ -0,0 +1,106 @@
+package pegasus.eventbus.rabbitmq;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.junit.*;
+
+import com.google.common.util.concurrent.SettableFuture;
+import com.rabbitmq.client.ShutdownSignalException;
+
+public class PublisherConfirmTrackerTest {
+
+    private Semaphore               window;
+    private PublisherConfirmTracker tracker;
+
+    @Before
+    public void beforeEachTest() {
+        window = new Semaphore(10);
+        tracker = new PublisherConfirmTracker(window);
+    }
+
+    @Test
+    public void trackingAPublishShouldTakeRoomInTheWindow() {
+        tracker.track(1);
+        assertEquals(9, window.availablePermits());
+        assertEquals(1, tracker.getUnconfirmedCount());
+    }
+
+    @Test
+    public void anAckShouldConfirmOnlyTheMatchingPublish() throws Exception {
+        SettableFuture<Boolean> first = tracker.track(1);
+        SettableFuture<Boolean> second = tracker.track(2);
+
+        tracker.handleAck(2, false);
+
+        assertFalse(first.isDone());
+        assertTrue(second.get());
+        assertEquals(9, window.availablePermits());
+    }
+
+    @Test
+    public void aMultipleAckShouldConfirmAllPublishesUpToTheTag() throws Exception {
+        SettableFuture<Boolean> first = tracker.track(1);
+        SettableFuture<Boolean> second = tracker.track(2);
+        SettableFuture<Boolean> third = tracker.track(3);
+
+        tracker.handleAck(2, true);
+
+        assertTrue(first.get());
+        assertTrue(second.get());
+        assertFalse(third.isDone());
+        assertEquals(1, tracker.getUnconfirmedCount());
+        assertEquals(9, window.availablePermits());
+    }
+
+    @Test
+    public void aNackShouldCompleteThePublishAsRejected() throws Exception {
+        SettableFuture<Boolean> first = tracker.track(1);
+
+        tracker.handleNack(1, false);
+
+        assertFalse(first.get());
+        assertEquals(10, window.availablePermits());
+    }
+
+    @Test
+    public void aFailedPublishShouldFailItsFutureAndFreeItsRoom() throws Exception {
+        SettableFuture<Boolean> first = tracker.track(1);
+
+        tracker.publishFailed(1, new IOException("Boom"));
+
+        assertEquals(10, window.availablePermits());
+        try {
+            first.get();
+            fail("Expected the confirmation to fail.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void aChannelShutdownShouldFailAllOutstandingPublishes() throws Exception {
+        SettableFuture<Boolean> first = tracker.track(1);
+        SettableFuture<Boolean> second = tracker.track(2);
+
+        tracker.shutdownCompleted(new ShutdownSignalException(false, false, null, null));
+
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertEquals(0, tracker.getUnconfirmedCount());
+        assertEquals(10, window.availablePermits());
+    }
+
+    @Test
+    public void lateConfirmsForFailedPublishesShouldBeIgnored() throws Exception {
+        tracker.track(1);
+        tracker.publishFailed(1, new IOException("Boom"));
+
+        tracker.handleAck(1, true);
+
+        assertEquals(10, window.availablePermits());
+    }
+}
@@ -1,23 +1,28 @@
 package pegasus.eventbus.rabbitmq;
 
+import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
 
 import org.junit.*;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import pegasus.eventbus.amqp.AmqpMessageBus.UnexpectedConnectionCloseListener;
+import pegasus.eventbus.amqp.PayloadCompressor;
 import pegasus.eventbus.amqp.RoutingInfo;
 import pegasus.eventbus.client.Envelope;
+import pegasus.eventbus.client.EnvelopeHandler;
 import pegasus.eventbus.rabbitmq.RabbitConnection.UnexpectedCloseListener;
 
 import com.rabbitmq.client.AMQP.BasicProperties;
 import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Consumer;
 
 public class RabbitMessageBusTest {
 
@@ -61,6 +66,26 @@ public class RabbitMessageBusTest {
         
 	}
 	
+	@Test
+	public void theContentTypeOfAnEnvelopeShouldBePublishedAsTheAmqpContentType() throws IOException{
+		Envelope envelope = new Envelope();
+		envelope.setContentType("application/json");
+		messageBus.publish(route, envelope);
+		ArgumentCaptor<BasicProperties> propertiesCaptor = ArgumentCaptor.forClass(BasicProperties.class);
+		verify(channel1).basicPublish(eq(route.getExchange().getName()), eq(route.getRoutingKey()), propertiesCaptor.capture(), eq(new byte[0]));
+		assertEquals("application/json", propertiesCaptor.getValue().getContentType());
+		assertEquals("application/json", RabbitMessageBus.createEnvelope(propertiesCaptor.getValue(), new byte[0]).getContentType());
+	}
+
+	@Test
+	public void aDeflatedBodyShouldBeInflatedWhenTheEnvelopeIsCreated() {
+		byte[] body = "a body that has been deflated".getBytes();
+		BasicProperties props = new BasicProperties.Builder().contentEncoding(PayloadCompressor.DEFLATE).build();
+		Envelope envelope = RabbitMessageBus.createEnvelope(props, PayloadCompressor.deflate(body));
+		assertArrayEquals(body, envelope.getBody());
+		assertNull(envelope.getContentEncoding());
+	}
+
 	@Test
 	public void priorToAconnectionResetATheOriginalCommandChannelShouldBeUsed() throws IOException{
 		messageBus.publish(route, new Envelope());
@@ -87,6 +112,37 @@ public class RabbitMessageBusTest {
 		verifyNoMoreInteractions(channel1);
 	}
 
+	@Test
+	public void consumersShouldBeLimitedToTheDefaultPrefetchCount() throws IOException{
+		messageBus.beginConsumingMessages("queue", mock(EnvelopeHandler.class));
+		verify(channel2).basicQos(RabbitMessageBus.DEFAULT_PREFETCH_COUNT);
+		verify(channel2).basicConsume(eq("queue"), eq(false), anyString(), any(Consumer.class));
+	}
+
+	@Test
+	public void consumersShouldBeLimitedToTheRequestedPrefetchCount() throws IOException{
+		messageBus.beginConsumingMessages("queue", mock(EnvelopeHandler.class), 7);
+		verify(channel2).basicQos(7);
+	}
+
+	@Test
+	public void aPrefetchCountOfZeroShouldNotLimitConsumers() throws IOException{
+		messageBus.setDefaultPrefetchCount(0);
+		messageBus.beginConsumingMessages("queue", mock(EnvelopeHandler.class));
+		verify(channel2, never()).basicQos(anyInt());
+	}
+
+	@Test
+	public void aConsumerThatCannotStartShouldHaveItsChannelClosed() throws IOException{
+		when(channel2.basicConsume(eq("queue"), eq(false), anyString(), any(Consumer.class))).thenThrow(new IOException("Queue not found."));
+		try {
+			messageBus.beginConsumingMessages("queue", mock(EnvelopeHandler.class));
+			fail("Expected the failure to start consuming to be rethrown.");
+		} catch (RuntimeException e) {
+			verify(channel2).close();
+		}
+	}
+
 	@Test
 	public void afterAconnectionResetTheXShouldBeCalled(){
 		conectionCloseListener.onUnexpectedClose(true);
@@ -0,0 +1,125 @@
+package pegasus.eventbus.rabbitmq;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Future;
+
+import org.junit.*;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import pegasus.eventbus.amqp.RoutingInfo;
+import pegasus.eventbus.client.Envelope;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+
+public class RabbitMessageBus_PublisherConfirmTest {
+
+    @Mock
+    private RabbitConnection connection;
+    @Mock
+    private Channel          channel;
+
+    private RabbitMessageBus messageBus;
+
+    private RoutingInfo      route = new RoutingInfo("TestExchange", "route1");
+
+    @Before
+    public void beforeEachTest() throws IOException {
+
+        MockitoAnnotations.initMocks(this);
+
+        when(connection.createChannel()).thenReturn(channel);
+        when(channel.getNextPublishSeqNo()).thenReturn(1L, 2L, 3L);
+
+        messageBus = new RabbitMessageBus(connection, 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void publishingWithConfirmationShouldFailIfConfirmsAreNotEnabled() {
+        messageBus.start();
+        messageBus.publishWithConfirmation(route, new Envelope());
+    }
+
+    @Test
+    public void enablingConfirmsShouldPutPublishingChannelsIntoConfirmMode() throws IOException {
+        messageBus.setPublisherConfirmWindow(10);
+        messageBus.start();
+        verify(channel).confirmSelect();
+    }
+
+    @Test
+    public void aConfirmedPublishShouldCompleteWhenTheBrokerAcksIt() throws Exception {
+        messageBus.setPublisherConfirmWindow(10);
+        messageBus.start();
+        ArgumentCaptor<ConfirmListener> listener = ArgumentCaptor.forClass(ConfirmListener.class);
+        verify(channel).addConfirmListener(listener.capture());
+
+        Future<Boolean> first = messageBus.publishWithConfirmation(route, new Envelope());
+        Future<Boolean> second = messageBus.publishWithConfirmation(route, new Envelope());
+        assertEquals(2, messageBus.getUnconfirmedPublishCount());
+
+        listener.getValue().handleAck(2, true);
+
+        assertTrue(first.get());
+        assertTrue(second.get());
+        assertEquals(0, messageBus.getUnconfirmedPublishCount());
+        verify(channel, times(2)).basicPublish(eq(route.getExchange().getName()), eq(route.getRoutingKey()), any(BasicProperties.class), eq(new byte[0]));
+    }
+
+    @Test
+    public void plainPublishesShouldStillCountAgainstTheWindow() throws Exception {
+        messageBus.setPublisherConfirmWindow(10);
+        messageBus.start();
+        messageBus.publish(route, new Envelope());
+        assertEquals(1, messageBus.getUnconfirmedPublishCount());
+    }
+
+    @Test(timeout = 5000)
+    public void aBatchShouldBePublishedOnOneChannelAndWaitForAllConfirms() throws Exception {
+        messageBus.setPublisherConfirmWindow(10);
+        messageBus.start();
+        ArgumentCaptor<ConfirmListener> listener = ArgumentCaptor.forClass(ConfirmListener.class);
+        verify(channel).addConfirmListener(listener.capture());
+        final ConfirmListener confirmListener = listener.getValue();
+
+        doNothing().doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                confirmListener.handleAck(2, true);
+                return null;
+            }
+        }).when(channel).basicPublish(anyString(), anyString(), any(BasicProperties.class), any(byte[].class));
+
+        messageBus.publishBatch(Arrays.asList(route, route), Arrays.asList(new Envelope(), new Envelope()));
+    }
+
+    @Test(expected = RuntimeException.class, timeout = 5000)
+    public void aBatchShouldFailIfTheBrokerRejectsAnyOfIt() throws Exception {
+        messageBus.setPublisherConfirmWindow(10);
+        messageBus.start();
+        ArgumentCaptor<ConfirmListener> listener = ArgumentCaptor.forClass(ConfirmListener.class);
+        verify(channel).addConfirmListener(listener.capture());
+        final ConfirmListener confirmListener = listener.getValue();
+
+        doNothing().doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                confirmListener.handleAck(1, false);
+                confirmListener.handleNack(2, false);
+                return null;
+            }
+        }).when(channel).basicPublish(anyString(), anyString(), any(BasicProperties.class), any(byte[].class));
+
+        messageBus.publishBatch(Arrays.asList(route, route), Arrays.asList(new Envelope(), new Envelope()));
+    }
+}
@@ -0,0 +1,152 @@
+package pegasus.eventbus.rabbitmq;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+
+public class SerialExecutorTest {
+
+    private ExecutorService pool;
+    private SerialExecutor  lane;
+
+    @Before
+    public void beforeEachTest() {
+        pool = Executors.newFixedThreadPool(4);
+        lane = new SerialExecutor(pool);
+    }
+
+    @After
+    public void afterEachTest() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void tasksShouldRunInSubmissionOrder() throws InterruptedException {
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            final int taskNumber = i;
+            lane.execute(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(taskNumber);
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+    }
+
+    @Test
+    public void tasksShouldNeverRunConcurrently() throws InterruptedException {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(20);
+        for (int i = 0; i < 20; i++) {
+            lane.execute(new Runnable() {
+                @Override
+                public void run() {
+                    maxRunning.set(Math.max(maxRunning.get(), running.incrementAndGet()));
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    public void aFailingTaskShouldNotStallTheLane() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        lane.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw new RuntimeException("Boom");
+            }
+        });
+        lane.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void aTaskRejectedWhenTheLaneIsIdleShouldBeRejectedToTheCaller() {
+        pool.shutdown();
+
+        lane.execute(new RecordingTask(new ArrayList<String>(), "first"));
+    }
+
+    @Test
+    public void tasksQueuedBehindARejectedTaskShouldBeDroppedInOrder() {
+        final List<Runnable> handedOff = new ArrayList<Runnable>();
+        final boolean[] rejecting = { false };
+        lane = new SerialExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                if (rejecting[0]) {
+                    throw new RejectedExecutionException();
+                }
+                handedOff.add(command);
+            }
+        });
+        List<String> events = new ArrayList<String>();
+
+        lane.execute(new RecordingTask(events, "first"));
+        lane.execute(new RecordingTask(events, "second"));
+        lane.execute(new RecordingTask(events, "third"));
+        rejecting[0] = true;
+        handedOff.get(0).run();
+
+        assertEquals(Arrays.asList("ran first", "dropped second", "dropped third"), events);
+
+        rejecting[0] = false;
+        lane.execute(new RecordingTask(events, "fourth"));
+        assertEquals(2, handedOff.size());
+    }
+
+    private static class RecordingTask implements SerialExecutor.DroppableTask {
+
+        private final List<String> events;
+        private final String       name;
+
+        RecordingTask(List<String> events, String name) {
+            this.events = events;
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            events.add("ran " + name);
+        }
+
+        @Override
+        public void drop() {
+            events.add("dropped " + name);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package pegasus.eventbus.topology;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.*;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import pegasus.eventbus.amqp.RoutingInfo;
+import pegasus.eventbus.amqp.TopologyManager;
+import pegasus.eventbus.testsupport.TestSendEvent;
+import pegasus.eventbus.testsupport.TestSendEvent2;
+
+public class CompositeTopologyManagerTest {
+
+    @Mock
+    private TopologyManager          firstManager;
+    @Mock
+    private TopologyManager          secondManager;
+
+    private RoutingInfo              route = new RoutingInfo("test-exchange", RoutingInfo.ExchangeType.Topic, false, "test-route-key");
+
+    private CompositeTopologyManager manager;
+
+    @Before
+    public void beforeEachTest() {
+
+        MockitoAnnotations.initMocks(this);
+
+        manager = new CompositeTopologyManager();
+        manager.addManager(firstManager, 1);
+        manager.addManager(secondManager, 2);
+    }
+
+    @Test
+    public void theFirstManagerToKnowARouteShouldWin() {
+        when(secondManager.getRoutingInfoForEvent(TestSendEvent.class)).thenReturn(route);
+
+        assertSame(route, manager.getRoutingInfoForEvent(TestSendEvent.class));
+        verify(firstManager).getRoutingInfoForEvent(TestSendEvent.class);
+    }
+
+    @Test
+    public void managersShouldBeConsultedInPriorityOrderRegardlessOfTheOrderAdded() {
+        TopologyManager thirdManager = mock(TopologyManager.class);
+        TopologyManager fourthManager = mock(TopologyManager.class);
+        manager = new CompositeTopologyManager();
+        manager.addManager(fourthManager, 4);
+        manager.addManager(secondManager, 2);
+        manager.addManager(thirdManager, 3);
+        manager.addManager(firstManager, 1);
+
+        manager.getRoutingInfoForEvent(TestSendEvent.class);
+
+        InOrder inOrder = inOrder(firstManager, secondManager, thirdManager, fourthManager);
+        inOrder.verify(firstManager).getRoutingInfoForEvent(TestSendEvent.class);
+        inOrder.verify(secondManager).getRoutingInfoForEvent(TestSendEvent.class);
+        inOrder.verify(thirdManager).getRoutingInfoForEvent(TestSendEvent.class);
+        inOrder.verify(fourthManager).getRoutingInfoForEvent(TestSendEvent.class);
+    }
+
+    @Test
+    public void managersOfEqualPriorityShouldBeConsultedInTheOrderAdded() {
+        manager = new CompositeTopologyManager();
+        manager.addManager(secondManager);
+        manager.addManager(firstManager);
+
+        manager.getRoutingInfoForNamedEventSet("test-event-set");
+
+        InOrder inOrder = inOrder(firstManager, secondManager);
+        inOrder.verify(secondManager).getRoutingInfoForNamedEventSet("test-event-set");
+        inOrder.verify(firstManager).getRoutingInfoForNamedEventSet("test-event-set");
+    }
+
+    @Test
+    public void aRemovedManagerShouldNoLongerBeConsulted() {
+        manager.removeManager(firstManager);
+
+        manager.getRoutingInfoForEvent(TestSendEvent.class);
+
+        verify(firstManager, never()).getRoutingInfoForEvent(TestSendEvent.class);
+        verify(secondManager).getRoutingInfoForEvent(TestSendEvent.class);
+    }
+
+    @Test
+    public void aFoundRouteShouldBeServedFromCacheThereafter() {
+        when(secondManager.getRoutingInfoForEvent(TestSendEvent.class)).thenReturn(route);
+
+        manager.getRoutingInfoForEvent(TestSendEvent.class);
+        assertSame(route, manager.getRoutingInfoForEvent(TestSendEvent.class));
+
+        verify(firstManager, times(1)).getRoutingInfoForEvent(TestSendEvent.class);
+        verify(secondManager, times(1)).getRoutingInfoForEvent(TestSendEvent.class);
+    }
+
+    @Test
+    public void anUnroutableEventTypeShouldNotBeLookedUpAgainWithinTheTtl() {
+        assertNull(manager.getRoutingInfoForEvent(TestSendEvent.class));
+        assertNull(manager.getRoutingInfoForEvent(TestSendEvent.class));
+
+        verify(secondManager, times(1)).getRoutingInfoForEvent(TestSendEvent.class);
+    }
+
+    @Test
+    public void anUnroutableEventTypeShouldBeLookedUpAgainOnceTheTtlExpires() throws InterruptedException {
+        manager.setUnroutableTtlMills(10);
+
+        assertNull(manager.getRoutingInfoForEvent(TestSendEvent.class));
+        Thread.sleep(20);
+        when(secondManager.getRoutingInfoForEvent(TestSendEvent.class)).thenReturn(route);
+
+        assertSame(route, manager.getRoutingInfoForEvent(TestSendEvent.class));
+    }
+
+    @Test
+    public void theUnroutableCacheShouldBeBounded() {
+        manager = new CompositeTopologyManager(1);
+        manager.addManager(secondManager);
+
+        manager.getRoutingInfoForEvent(TestSendEvent.class);
+        manager.getRoutingInfoForEvent(TestSendEvent2.class);
+        manager.getRoutingInfoForEvent(TestSendEvent.class);
+
+        verify(secondManager, times(2)).getRoutingInfoForEvent(TestSendEvent.class);
+    }
+
+    @Test
+    public void aBatchLookupShouldPassEachManagerOnlyTheTypesNotYetRouted() {
+        when(firstManager.getRoutingInfoForEvents(new Class<?>[] { TestSendEvent.class, TestSendEvent2.class })).thenReturn(new RoutingInfo[] { route, null });
+        when(secondManager.getRoutingInfoForEvents(new Class<?>[] { TestSendEvent2.class })).thenReturn(new RoutingInfo[] { null });
+
+        RoutingInfo[] routes = manager.getRoutingInfoForEvents(new Class<?>[] { TestSendEvent.class, TestSendEvent2.class });
+
+        assertArrayEquals(new RoutingInfo[] { route, null }, routes);
+        verify(secondManager).getRoutingInfoForEvents(new Class<?>[] { TestSendEvent2.class });
+    }
+
+    @Test
+    public void aBatchLookupShouldUseAndFillTheCaches() {
+        when(secondManager.getRoutingInfoForEvent(TestSendEvent.class)).thenReturn(route);
+        manager.getRoutingInfoForEvent(TestSendEvent.class);
+        when(secondManager.getRoutingInfoForEvents(new Class<?>[] { TestSendEvent2.class })).thenReturn(new RoutingInfo[] { null });
+
+        manager.getRoutingInfoForEvents(new Class<?>[] { TestSendEvent.class, TestSendEvent2.class });
+        manager.getRoutingInfoForEvents(new Class<?>[] { TestSendEvent.class, TestSendEvent2.class });
+
+        verify(firstManager, times(1)).getRoutingInfoForEvents(new Class<?>[] { TestSendEvent2.class });
+        verify(secondManager, times(1)).getRoutingInfoForEvents(new Class<?>[] { TestSendEvent2.class });
+    }
+
+    @Test
+    public void aTopologyUpdateShouldDiscardCachedRoutes() {
+        RoutingInfo newRoute = new RoutingInfo("new-exchange", RoutingInfo.ExchangeType.Topic, false, "new-route-key");
+        when(secondManager.getRoutingInfoForEvent(TestSendEvent.class)).thenReturn(route).thenReturn(newRoute);
+        manager.getRoutingInfoForEvent(TestSendEvent.class);
+
+        manager.onTopologyUpdated();
+
+        assertSame(newRoute, manager.getRoutingInfoForEvent(TestSendEvent.class));
+    }
+
+    @Test
+    public void aTopologyUpdateShouldForgetUnroutableEventTypes() {
+        manager.getRoutingInfoForEvent(TestSendEvent.class);
+        when(secondManager.getRoutingInfoForEvent(TestSendEvent.class)).thenReturn(route);
+
+        manager.onTopologyUpdated();
+
+        assertSame(route, manager.getRoutingInfoForEvent(TestSendEvent.class));
+    }
+
+    @Test
+    public void aRouteFoundFromTheTopologyBeforeAnUpdateShouldNotBeCached() {
+        RoutingInfo newRoute = new RoutingInfo("new-exchange", RoutingInfo.ExchangeType.Topic, false, "new-route-key");
+        when(secondManager.getRoutingInfoForEvent(TestSendEvent.class)).thenAnswer(new Answer<RoutingInfo>() {
+            @Override
+            public RoutingInfo answer(InvocationOnMock invocation) throws Throwable {
+                manager.onTopologyUpdated();
+                return route;
+            }
+        }).thenReturn(newRoute);
+
+        assertSame(route, manager.getRoutingInfoForEvent(TestSendEvent.class));
+        assertSame(newRoute, manager.getRoutingInfoForEvent(TestSendEvent.class));
+    }
+
+    @Test
+    public void anEventTypeFoundUnroutableBeforeAnUpdateShouldNotBeRemembered() {
+        when(secondManager.getRoutingInfoForEvents(new Class<?>[] { TestSendEvent.class })).thenAnswer(new Answer<RoutingInfo[]>() {
+            @Override
+            public RoutingInfo[] answer(InvocationOnMock invocation) throws Throwable {
+                manager.onTopologyUpdated();
+                return new RoutingInfo[1];
+            }
+        });
+        manager.getRoutingInfoForEvents(new Class<?>[] { TestSendEvent.class });
+        when(secondManager.getRoutingInfoForEvent(TestSendEvent.class)).thenReturn(route);
+
+        assertSame(route, manager.getRoutingInfoForEvent(TestSendEvent.class));
+    }
+}
@@ -0,0 +1,64 @@
+package pegasus.eventbus.topology;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.*;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import pegasus.eventbus.amqp.RoutingInfo;
+import pegasus.eventbus.client.EventManager;
+import pegasus.eventbus.topology.events.EventTypeRoutes;
+import pegasus.eventbus.topology.events.EventTypeRoutingInfo;
+import pegasus.eventbus.topology.events.GetEventTypeRoute;
+import pegasus.eventbus.topology.events.GetEventTypeRoutes;
+
+public class FallbackTopologyManagerTest {
+
+    @Mock
+    private EventManager            eventManager;
+
+    private FallbackTopologyManager manager;
+
+    private RoutingInfo             stringRoute  = new RoutingInfo("exchange", "string");
+    private RoutingInfo             integerRoute = new RoutingInfo("exchange", "integer");
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void beforeEachTest() throws InterruptedException, TimeoutException {
+        MockitoAnnotations.initMocks(this);
+
+        when(eventManager.getResponseTo(any(GetEventTypeRoute.class), anyInt(), eq(EventTypeRoutingInfo.class))).thenReturn(
+                new EventTypeRoutingInfo(String.class.getCanonicalName(), stringRoute),
+                new EventTypeRoutingInfo(Integer.class.getCanonicalName(), integerRoute));
+
+        manager = new FallbackTopologyManager();
+        manager.start(eventManager);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void allRoutesShouldBeRequestedTogether() throws InterruptedException, TimeoutException {
+        Map<String, RoutingInfo> routes = new HashMap<String, RoutingInfo>();
+        routes.put(String.class.getCanonicalName(), stringRoute);
+        routes.put(Integer.class.getCanonicalName(), integerRoute);
+        when(eventManager.getResponseTo(any(GetEventTypeRoutes.class), anyInt(), eq(EventTypeRoutes.class))).thenReturn(new EventTypeRoutes(routes));
+
+        assertArrayEquals(new RoutingInfo[] { stringRoute, integerRoute }, manager.getRoutingInfoForEvents(new Class<?>[] { String.class, Integer.class }));
+        verify(eventManager, never()).getResponseTo(any(GetEventTypeRoute.class), anyInt(), eq(EventTypeRoutingInfo.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void routesShouldBeRequestedOneAtATimeIfATopologyServiceDoesNotAnswerForThemTogether() throws InterruptedException, TimeoutException {
+        when(eventManager.getResponseTo(any(GetEventTypeRoutes.class), anyInt(), eq(EventTypeRoutes.class))).thenThrow(new TimeoutException());
+
+        assertArrayEquals(new RoutingInfo[] { stringRoute, integerRoute }, manager.getRoutingInfoForEvents(new Class<?>[] { String.class, Integer.class }));
+        verify(eventManager, times(2)).getResponseTo(any(GetEventTypeRoute.class), anyInt(), eq(EventTypeRoutingInfo.class));
+    }
+}
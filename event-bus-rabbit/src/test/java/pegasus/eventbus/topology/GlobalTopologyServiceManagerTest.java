@@ -1,32 +1,49 @@
 package pegasus.eventbus.topology;
 
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeoutException;
 
 import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import pegasus.eventbus.amqp.RoutingInfo;
+import pegasus.eventbus.client.EventHandler;
 import pegasus.eventbus.client.EventManager;
 import pegasus.eventbus.topology.events.HeartBeat;
+import pegasus.eventbus.topology.events.RegisterClient;
+import pegasus.eventbus.topology.events.TopologyDelta;
 import pegasus.eventbus.topology.events.TopologyUpdate;
 
 //TODO: Need to add tests to cover non-heartbeat related functionality.
 public class GlobalTopologyServiceManagerTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Mock
 	private EventManager eventManager;
+	
+	private TopologyRegistry startingRegistry;
 
 	@SuppressWarnings("unchecked")
 	@Before
 	public void beforeEachTest() throws InterruptedException, TimeoutException{
 		MockitoAnnotations.initMocks(this);
 	       
-		when(eventManager.getResponseTo(anyObject(), anyInt(), eq(TopologyUpdate.class)))
-	    	.thenReturn(new TopologyUpdate());
+		startingRegistry = new TopologyRegistry();
+		startingRegistry.setSequenceNumber(3);
+		
+		when(eventManager.getResponseTo(anyObject(), anyInt(), eq(TopologyUpdate.class), eq(TopologyDelta.class)))
+	    	.thenReturn(new TopologyUpdate(startingRegistry));
 	}
 	
 	@Test
@@ -78,4 +95,165 @@ public class GlobalTopologyServiceManagerTest {
 		verify(eventManager, never()).publish(any(HeartBeat.class));
 	}
 	
+	@Test
+	public void listenersShouldBeNotifiedOfTheTopologyReceivedOnStart() {
+		GlobalTopologyServiceManager manager = new GlobalTopologyServiceManager("testClient", 300);
+		TopologyUpdateListener listener = mock(TopologyUpdateListener.class);
+		manager.attachTopologyUpdateListener(listener);
+		
+		manager.start(eventManager);
+		try{
+			verify(listener).onTopologyUpdated();
+		} finally { 
+			manager.close();
+		}
+	}
+
+	@Test
+	public void listenersShouldBeNotifiedOfEachTopologyDeltaApplied() {
+		GlobalTopologyServiceManager manager = new GlobalTopologyServiceManager("testClient", 300);
+		TopologyUpdateListener listener = mock(TopologyUpdateListener.class);
+		manager.start(eventManager);
+		manager.attachTopologyUpdateListener(listener);
+		
+		try{
+			getTopologyDeltaHandler().handleEvent(new TopologyDelta(startingRegistry.getEpoch(), 4, String.class.getCanonicalName(), new RoutingInfo("exchange", "route")));
+
+			verify(listener).onTopologyUpdated();
+		} finally { 
+			manager.close();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void fullTopologiesShouldOnlyBeReceivedAsResponsesToTheManagersOwnRequests() {
+		GlobalTopologyServiceManager manager = new GlobalTopologyServiceManager("testClient", 300);
+		manager.start(eventManager);
+		
+		try{
+			ArgumentCaptor<EventHandler> handler = ArgumentCaptor.forClass(EventHandler.class);
+			verify(eventManager).subscribe(handler.capture());
+			assertArrayEquals(new Class[] { TopologyDelta.class }, handler.getValue().getHandledEventTypes());
+		} finally { 
+			manager.close();
+		}
+	}
+
+	@Test
+	public void aDeltaNextInSequenceShouldBeAppliedToTheTopology() {
+		GlobalTopologyServiceManager manager = new GlobalTopologyServiceManager("testClient", 300);
+		manager.start(eventManager);
+		
+		try{
+			RoutingInfo route = new RoutingInfo("exchange", "route");
+			getTopologyDeltaHandler().handleEvent(new TopologyDelta(startingRegistry.getEpoch(), 4, String.class.getCanonicalName(), route));
+
+			assertEquals(route, manager.getRoutingInfoForEvent(String.class));
+		} finally { 
+			manager.close();
+		}
+	}
+
+	@Test
+	public void aDeltaAlreadyAppliedShouldBeIgnored() {
+		GlobalTopologyServiceManager manager = new GlobalTopologyServiceManager("testClient", 300);
+		manager.start(eventManager);
+		TopologyUpdateListener listener = mock(TopologyUpdateListener.class);
+		manager.attachTopologyUpdateListener(listener);
+		
+		try{
+			getTopologyDeltaHandler().handleEvent(new TopologyDelta(startingRegistry.getEpoch(), 3, String.class.getCanonicalName(), new RoutingInfo("exchange", "route")));
+
+			assertNull(manager.getRoutingInfoForEvent(String.class));
+			verify(listener, never()).onTopologyUpdated();
+		} finally { 
+			manager.close();
+		}
+	}
+
+	@Test
+	public void aGapInTheSequenceShouldCauseTheFullTopologyToBeRequested() throws InterruptedException, TimeoutException {
+		GlobalTopologyServiceManager manager = new GlobalTopologyServiceManager("testClient", 300);
+		manager.start(eventManager);
+		
+		try{
+			getTopologyDeltaHandler().handleEvent(new TopologyDelta(startingRegistry.getEpoch(), 5, String.class.getCanonicalName(), new RoutingInfo("exchange", "route")));
+
+			verify(eventManager, timeout(1000).times(2)).getResponseTo(any(RegisterClient.class), anyInt(), eq(TopologyUpdate.class), eq(TopologyDelta.class));
+			assertNull(manager.getRoutingInfoForEvent(String.class));
+		} finally { 
+			manager.close();
+		}
+	}
+
+	@Test
+	public void aDeltaFromAnotherEpochShouldCauseTheFullTopologyToBeRequested() throws InterruptedException, TimeoutException {
+		GlobalTopologyServiceManager manager = new GlobalTopologyServiceManager("testClient", 300);
+		manager.start(eventManager);
+		
+		try{
+			getTopologyDeltaHandler().handleEvent(new TopologyDelta("anotherEpoch", 4, String.class.getCanonicalName(), new RoutingInfo("exchange", "route")));
+
+			verify(eventManager, timeout(1000).times(2)).getResponseTo(any(RegisterClient.class), anyInt(), eq(TopologyUpdate.class), eq(TopologyDelta.class));
+		} finally { 
+			manager.close();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void aCachedTopologyShouldBeRoutedFromWithoutWaitingForTheService() throws InterruptedException, TimeoutException {
+		RoutingInfo route = new RoutingInfo("exchange", "route");
+		TopologyRegistry cachedRegistry = new TopologyRegistry();
+		cachedRegistry.setEventRoute(String.class.getCanonicalName(), route);
+		TopologyCache cache = new TopologyCache(new File(folder.getRoot(), "topology.json"));
+		cache.save(cachedRegistry);
+
+		final CountDownLatch serviceResponding = new CountDownLatch(1);
+		when(eventManager.getResponseTo(anyObject(), anyInt(), eq(TopologyUpdate.class), eq(TopologyDelta.class))).thenAnswer(new Answer<TopologyUpdate>() {
+			@Override
+			public TopologyUpdate answer(InvocationOnMock invocation) throws Throwable {
+				serviceResponding.await();
+				return new TopologyUpdate(startingRegistry);
+			}
+		});
+
+		GlobalTopologyServiceManager manager = new GlobalTopologyServiceManager("testClient", 300, cache);
+		manager.start(eventManager);
+		try{
+			assertEquals(route, manager.getRoutingInfoForEvent(String.class));
+
+			ArgumentCaptor<RegisterClient> registration = ArgumentCaptor.forClass(RegisterClient.class);
+			verify(eventManager, timeout(1000)).getResponseTo(registration.capture(), anyInt(), eq(TopologyUpdate.class), eq(TopologyDelta.class));
+			assertEquals(cachedRegistry.getVersion(), registration.getValue().getVersion());
+		} finally { 
+			serviceResponding.countDown();
+			manager.close();
+		}
+	}
+
+	@Test
+	public void topologiesReceivedShouldBeSavedToTheCache() {
+		TopologyCache cache = new TopologyCache(new File(folder.getRoot(), "topology.json"));
+		GlobalTopologyServiceManager manager = new GlobalTopologyServiceManager("testClient", 300, cache);
+		manager.start(eventManager);
+		
+		try{
+			assertEquals(startingRegistry.getVersion(), cache.load().getVersion());
+
+			getTopologyDeltaHandler().handleEvent(new TopologyDelta(startingRegistry.getEpoch(), 4, String.class.getCanonicalName(), new RoutingInfo("exchange", "route")));
+
+			assertEquals(new RoutingInfo("exchange", "route"), cache.load().getEventRoute(String.class.getCanonicalName()));
+		} finally { 
+			manager.close();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private EventHandler<TopologyDelta> getTopologyDeltaHandler() {
+		ArgumentCaptor<EventHandler> handler = ArgumentCaptor.forClass(EventHandler.class);
+		verify(eventManager).subscribe(handler.capture());
+		return handler.getValue();
+	}
 }
@@ -0,0 +1,66 @@
+package pegasus.eventbus.topology;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import pegasus.eventbus.amqp.RoutingInfo;
+
+public class TopologyCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RoutingInfo    route  = new RoutingInfo("test-exchange", "test-route-key");
+
+    private TopologyCache  cache;
+
+    @Before
+    public void beforeEachTest() {
+        cache = new TopologyCache(new File(folder.getRoot(), "cache/topology.json"));
+    }
+
+    @Test
+    public void loadingWhenNothingHasBeenSavedShouldReturnNull() {
+        assertNull(cache.load());
+    }
+
+    @Test
+    public void aSavedTopologyShouldBeLoadedWithTheSameVersionAndRoutes() {
+        TopologyRegistry registry = new TopologyRegistry();
+        registry.setEventRoute("topic", route);
+
+        cache.save(registry);
+        TopologyRegistry loaded = new TopologyCache(cache.getFile()).load();
+
+        assertEquals(registry.getVersion(), loaded.getVersion());
+        assertEquals(route, loaded.getEventRoute("topic"));
+    }
+
+    @Test
+    public void savingShouldReplaceThePreviouslySavedTopology() {
+        TopologyRegistry registry = new TopologyRegistry();
+        cache.save(registry);
+        registry.setEventRoute("topic", route);
+
+        cache.save(registry);
+
+        assertEquals(registry.getVersion(), cache.load().getVersion());
+        assertFalse(new File(cache.getFile().getParentFile(), "topology.json.tmp").exists());
+    }
+
+    @Test
+    public void aCorruptCacheShouldBeIgnored() throws IOException {
+        cache.getFile().getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(cache.getFile());
+        out.write("{ not json".getBytes("UTF-8"));
+        out.close();
+
+        assertNull(cache.load());
+    }
+}
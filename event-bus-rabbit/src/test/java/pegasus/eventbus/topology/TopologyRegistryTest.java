@@ -0,0 +1,119 @@
+package pegasus.eventbus.topology;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.*;
+
+import pegasus.eventbus.amqp.RoutingInfo;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class TopologyRegistryTest {
+
+    private RoutingInfo      route = new RoutingInfo("test-exchange", "test-route-key");
+
+    private TopologyRegistry registry;
+
+    @Before
+    public void beforeEachTest() {
+        registry = new TopologyRegistry();
+    }
+
+    @Test
+    public void everyChangeShouldAdvanceTheVersion() {
+        String initialVersion = registry.getVersion();
+
+        registry.setEventRoute("topic", route);
+        String versionAfterRoute = registry.getVersion();
+
+        registry.setEventSetRoutes("eventSet", new RoutingInfo[] { route });
+
+        assertFalse(initialVersion.equals(versionAfterRoute));
+        assertFalse(versionAfterRoute.equals(registry.getVersion()));
+        assertEquals(2, registry.getSequenceNumber());
+    }
+
+    @Test
+    public void registriesOfDifferentEpochsShouldHaveDifferentVersions() {
+        assertFalse(registry.getVersion().equals(new TopologyRegistry().getVersion()));
+    }
+
+    @Test
+    public void aSnapshotShouldNotSeeLaterChanges() {
+        registry.setEventRoute("topic", route);
+
+        TopologyRegistry snapshot = registry.snapshot();
+        registry.setEventRoute("anotherTopic", route);
+
+        assertEquals(route, snapshot.getEventRoute("topic"));
+        assertFalse(snapshot.hasEventRoute("anotherTopic"));
+        assertEquals(1, snapshot.getSequenceNumber());
+        assertEquals(registry.getEpoch(), snapshot.getEpoch());
+    }
+
+    @Test
+    public void changesToASnapshotShouldNotAffectTheRegistry() {
+        TopologyRegistry snapshot = registry.snapshot();
+
+        snapshot.setEventRoute("topic", route);
+
+        assertFalse(registry.hasEventRoute("topic"));
+        assertEquals(0, registry.getSequenceNumber());
+    }
+
+    @Test
+    public void settingRoutesShouldApplyThemAndTheSequenceNumberTogether() {
+        Map<String, RoutingInfo> eventRoutes = new HashMap<String, RoutingInfo>();
+        eventRoutes.put("topic", route);
+        Map<String, RoutingInfo[]> eventSetRoutes = new HashMap<String, RoutingInfo[]>();
+        eventSetRoutes.put("eventSet", new RoutingInfo[] { route });
+
+        registry.setRoutes(eventRoutes, eventSetRoutes, 7);
+
+        assertEquals(route, registry.getEventRoute("topic"));
+        assertEquals(route, registry.getEventSetRoutes("eventSet")[0]);
+        assertEquals(7, registry.getSequenceNumber());
+    }
+
+    @Test
+    public void theRegistryShouldSurviveSerialization() {
+        registry.setEventRoute("topic", route);
+        registry.setEventSetRoutes("eventSet", new RoutingInfo[] { route });
+
+        Gson gson = new Gson();
+        TopologyRegistry deserialized = gson.fromJson(gson.toJson(registry), TopologyRegistry.class);
+
+        assertEquals(registry.getVersion(), deserialized.getVersion());
+        assertEquals(route, deserialized.getEventRoute("topic"));
+        assertEquals(route, deserialized.getEventSetRoutes("eventSet")[0]);
+    }
+
+    @Test
+    public void theRoutesShouldBeSerializedAsTopLevelMapsBesideTheEpochAndSequenceNumber() {
+        registry.setEventRoute("topic", route);
+
+        JsonObject json = new JsonParser().parse(new Gson().toJson(registry)).getAsJsonObject();
+
+        assertTrue(json.getAsJsonObject("eventMap").has("topic"));
+        assertTrue(json.has("eventSetMap"));
+        assertEquals(registry.getEpoch(), json.get("epoch").getAsString());
+        assertEquals(1, json.get("sequenceNumber").getAsLong());
+    }
+
+    @Test
+    public void aRegistryWithoutAnEpochOrSequenceNumberShouldStillYieldItsRoutes() {
+        // The form in which registries were serialized before they had an epoch or sequence number.
+        String json = "{\"eventMap\":{\"topic\":" + new Gson().toJson(route) + "},\"eventSetMap\":{}}";
+
+        TopologyRegistry deserialized = new Gson().fromJson(json, TopologyRegistry.class);
+
+        assertEquals(route, deserialized.getEventRoute("topic"));
+        assertEquals(0, deserialized.getSequenceNumber());
+        assertNotNull(deserialized.getEpoch());
+    }
+}
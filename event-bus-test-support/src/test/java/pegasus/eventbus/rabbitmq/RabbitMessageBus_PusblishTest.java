@@ -46,6 +46,7 @@ public class RabbitMessageBus_PusblishTest extends RabbitMessageBus_TestBase {
         envelope.setEventType("test.event");
         envelope.setTopic("test.topic");
         envelope.setReplyTo("replyTo.routing_key");
+        envelope.setContentType("application/json");
         envelope.setTimestamp(new Date(3290830423452L));  
         return envelope;
     }
@@ -130,6 +131,11 @@ public class RabbitMessageBus_PusblishTest extends RabbitMessageBus_TestBase {
         assertEquals(sentEnvelope.getEventType(), receivedMessage.getProps().getType());
     }
 
+    @Test
+    public void publishShouldTransmitContentTypeAsAmqpContentTypeHeader() throws IOException {
+        assertEquals(sentEnvelope.getContentType(), receivedMessage.getProps().getContentType());
+    }
+
     @Test
     public void publishShouldTransmitReplyToAsAmqpReplyToHeader() throws IOException {
         assertEquals(sentEnvelope.getReplyTo(), receivedMessage.getProps().getReplyTo());
@@ -0,0 +1,15 @@
+package pegasus.eventbus.topology.service;
+
+import pegasus.eventbus.topology.events.RegisterClient;
+
+/**
+ * Notified when a client stops sending heartbeats for long enough that the topology service considers it dead.
+ */
+public interface ClientExpiryListener {
+
+    /**
+     * @param client
+     *            The registration of the client that has been dropped from the registry.
+     */
+    void onClientExpired(RegisterClient client);
+}
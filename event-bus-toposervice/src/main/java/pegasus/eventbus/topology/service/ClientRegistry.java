@@ -1,8 +1,16 @@
 package pegasus.eventbus.topology.service;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,37 +18,174 @@ import org.slf4j.LoggerFactory;
 import pegasus.eventbus.topology.events.RegisterClient;
 import pegasus.eventbus.topology.events.UnregisterClient;
 
+/**
+ * The clients registered with the topology service. Every registration and heartbeat pushes back the client's deadline on a {@link TimingWheel}; once started,
+ * the registry periodically drops the clients whose deadlines have passed and notifies its {@link ClientExpiryListener}s.
+ */
 public class ClientRegistry implements Iterable<RegisterClient> {
 
-    protected static final Logger       LOG               = LoggerFactory.getLogger(RegistrationHandler.class);
+    protected static final Logger                      LOG                          = LoggerFactory.getLogger(RegistrationHandler.class);
 
-    private Map<String, RegisterClient> registeredClients = new HashMap<String, RegisterClient>();
+    /**
+     * Three times the default interval at which clients send heartbeats.
+     */
+    public static final long                           DEFAULT_CLIENT_TIMEOUT_MILLS = 15 * 60 * 1000;
+    public static final long                           DEFAULT_REAP_INTERVAL_MILLS  = 5000;
+
+    private final ConcurrentMap<String, RegisterClient> registeredClients            = new ConcurrentHashMap<String, RegisterClient>();
+    private final Set<ClientExpiryListener>            expiryListeners              = new CopyOnWriteArraySet<ClientExpiryListener>();
+    private final TimingWheel<String>                  liveness;
+    private final long                                 reapIntervalMills;
+    private ScheduledExecutorService                   reaper;
+
+    public ClientRegistry() {
+        this(DEFAULT_CLIENT_TIMEOUT_MILLS, DEFAULT_REAP_INTERVAL_MILLS);
+    }
+
+    /**
+     * @param clientTimeoutMills
+     *            How long after its last registration or heartbeat a client is considered dead.
+     * @param reapIntervalMills
+     *            How often to look for dead clients.
+     */
+    public ClientRegistry(long clientTimeoutMills, long reapIntervalMills) {
+        this.liveness = new TimingWheel<String>(clientTimeoutMills, reapIntervalMills, System.currentTimeMillis());
+        this.reapIntervalMills = reapIntervalMills;
+    }
 
     public void registerClient(RegisterClient registerEvent) {
         String clientName = registerEvent.getClientName();
 
+        if (clientName == null) {
+            LOG.warn("Ignoring registration without a client name.");
+            return;
+        }
+
         LOG.trace("Registering client {} in Topology Service.", clientName);
 
         // if the client is already registered then assume that the client went down and
         // has restarted and is re-registering with the topology service.
-        // TODO: is this a safe assumption?  What if by configuration error, two separate 
+        // TODO: is this a safe assumption?  What if by configuration error, two separate
         // services registered with the same name?  Should we use client name or a UUID?
-        if (registeredClients.containsKey(clientName)) {
-            registeredClients.remove(clientName);
-        }
+        // The client is tracked before it is registered so that the reaper never sees a registration it could mistake for an expired one.
+        liveness.touch(clientName, System.currentTimeMillis());
         registeredClients.put(clientName, registerEvent);
     }
 
     public void unregisterClient(UnregisterClient unregisterEvent) {
         String clientName = unregisterEvent.getClientName();
 
+        if (clientName == null) {
+            return;
+        }
+
         LOG.trace("Unregistering client {} in Topology Service.", clientName);
 
-        if (registeredClients.containsKey(clientName)) {
-            registeredClients.remove(clientName);
+        registeredClients.remove(clientName);
+        liveness.remove(clientName);
+    }
+
+    /**
+     * Records that the client is alive. A heartbeat from a client that is not registered (e.g. one that registered with an earlier instance of the topology
+     * service) registers it.
+     */
+    public void heartbeat(String clientName) {
+
+        if (clientName == null) {
+            return;
         }
+
+        liveness.touch(clientName, System.currentTimeMillis());
+        if (!registeredClients.containsKey(clientName) && registeredClients.putIfAbsent(clientName, new RegisterClient(clientName, null)) == null) {
+            LOG.debug("Registering client {} on receipt of its heartbeat.", clientName);
+        }
+    }
+
+    public boolean isRegistered(String clientName) {
+        return registeredClients.containsKey(clientName);
+    }
+
+    public void attachClientExpiryListener(ClientExpiryListener listener) {
+        expiryListeners.add(listener);
+    }
+
+    public void detachClientExpiryListener(ClientExpiryListener listener) {
+        expiryListeners.remove(listener);
     }
-    
+
+    /**
+     * Begins dropping dead clients in the background.
+     */
+    public synchronized void start() {
+
+        if (reaper != null) {
+            return;
+        }
+
+        reaper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "topology-service-client-reaper");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        reaper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reapExpiredClients();
+                } catch (Throwable e) {
+                    LOG.error("Exception occurred reaping dead clients.", e);
+                }
+            }
+        }, reapIntervalMills, reapIntervalMills, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (reaper != null) {
+            reaper.shutdownNow();
+            reaper = null;
+        }
+    }
+
+    /**
+     * Drops every client whose deadline has passed.
+     *
+     * @return The registrations of the clients dropped.
+     */
+    public List<RegisterClient> reapExpiredClients() {
+        return reapExpiredClients(System.currentTimeMillis());
+    }
+
+    List<RegisterClient> reapExpiredClients(long now) {
+
+        List<RegisterClient> expiredClients = new ArrayList<RegisterClient>();
+
+        for (String clientName : liveness.advance(now)) {
+
+            // A client that re-registered since it expired is tracked again and must be kept. Only the registration seen here is removed, so one made after
+            // the check is kept too.
+            RegisterClient client = registeredClients.get(clientName);
+            if (client == null || liveness.contains(clientName) || !registeredClients.remove(clientName, client)) {
+                continue;
+            }
+
+            LOG.info("Client {} has stopped sending heartbeats and has been dropped.", clientName);
+
+            expiredClients.add(client);
+            for (ClientExpiryListener listener : expiryListeners) {
+                try {
+                    listener.onClientExpired(client);
+                } catch (RuntimeException e) {
+                    LOG.error("ClientExpiryListener threw an exception.", e);
+                }
+            }
+        }
+
+        return expiredClients;
+    }
+
     @Override
     public Iterator<RegisterClient> iterator() {
         return registeredClients.values().iterator();
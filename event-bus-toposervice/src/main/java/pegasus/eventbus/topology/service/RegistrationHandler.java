@@ -12,6 +12,7 @@ import pegasus.eventbus.topology.TopologyRegistry;
 import pegasus.eventbus.topology.events.HeartBeat;
 import pegasus.eventbus.topology.events.RegisterClient;
 import pegasus.eventbus.topology.events.Registration;
+import pegasus.eventbus.topology.events.TopologyDelta;
 import pegasus.eventbus.topology.events.TopologyUpdate;
 import pegasus.eventbus.topology.events.UnregisterClient;
 
@@ -23,6 +24,8 @@ public class RegistrationHandler implements EventHandler<Registration> {
     private ClientRegistry        clientRegistry;
     private TopologyRegistry      topologyRegistry;
     private SubscriptionToken     subscriptionToken;
+    private SubscriptionToken     livenessSubscriptionToken;
+    private String                queueName;
 
     public RegistrationHandler(EventManager eventManager, ClientRegistry clientRegistry, TopologyRegistry topologyRegistry) {
         this.clientRegistry = clientRegistry;
@@ -30,17 +33,37 @@ public class RegistrationHandler implements EventHandler<Registration> {
         this.eventManager = eventManager;
     }
 
+    /**
+     * Sets a named queue for this handler to consume registrations from. Replicas of the topology service given the same queue name share registrations between
+     * them as competing consumers, while each replica still receives every heartbeat and unregistration so that it can track the liveness of all clients.
+     */
+    public void setQueueName(String queueName) {
+        this.queueName = queueName;
+    }
+
     public void start() {
-        subscriptionToken = eventManager.subscribe(this);
+        if (queueName == null) {
+            subscriptionToken = eventManager.subscribe(this);
+        } else {
+            subscriptionToken = eventManager.subscribe(new RegistrationSubset(RegisterClient.class), queueName);
+            livenessSubscriptionToken = eventManager.subscribe(new RegistrationSubset(UnregisterClient.class, HeartBeat.class));
+        }
+        clientRegistry.start();
     }
 
     public void stop() {
+        clientRegistry.stop();
         eventManager.unsubscribe(subscriptionToken);
+        if (livenessSubscriptionToken != null) {
+            eventManager.unsubscribe(livenessSubscriptionToken);
+            livenessSubscriptionToken = null;
+        }
     }
 
     @SuppressWarnings("unchecked")
     public Class<Registration>[] getHandledEventTypes() {
-        return new Class[] { RegisterClient.class, UnregisterClient.class, HeartBeat.class };
+        Class<?>[] handledEvents = { RegisterClient.class, UnregisterClient.class, HeartBeat.class };
+        return (Class<Registration>[]) handledEvents;
     }
 
     public EventResult handleEvent(Registration event) {
@@ -53,11 +76,16 @@ public class RegistrationHandler implements EventHandler<Registration> {
                 LOG.info("Received RegisterClient event [{}]", registerEvent);
 
                 clientRegistry.registerClient(registerEvent);
-                // respond with topology registry
-                TopologyUpdate topologyUpdateEvent = new TopologyUpdate();
-                topologyUpdateEvent.setTopologyRegistry(topologyRegistry);
+                // respond with topology registry, unless the client's copy is already current
+                TopologyRegistry snapshot = topologyRegistry.snapshot();
+                Object topologyUpdateEvent;
+                if (snapshot.getVersion().equals(registerEvent.getVersion())) {
+                    topologyUpdateEvent = new TopologyDelta(snapshot.getEpoch(), snapshot.getSequenceNumber());
+                } else {
+                    topologyUpdateEvent = new TopologyUpdate(snapshot);
+                }
 
-                LOG.info("Responding to RegisterClient event with TopologyUpdate event [{}]", topologyUpdateEvent);
+                LOG.info("Responding to RegisterClient event with topology event [{}]", topologyUpdateEvent);
 
                 eventManager.respondTo(event, topologyUpdateEvent);
                 return EventResult.Handled;
@@ -75,6 +103,8 @@ public class RegistrationHandler implements EventHandler<Registration> {
             	
             	LOG.debug("Received HeartBeat event for {}", heartbeat.getClientName());
 
+                clientRegistry.heartbeat(heartbeat.getClientName());
+
                 return EventResult.Handled;
             } else {
                 // unknown event type
@@ -84,4 +114,26 @@ public class RegistrationHandler implements EventHandler<Registration> {
             return EventResult.Failed;
         }
     }
+
+    /**
+     * Passes a subset of the registration events to this handler, so that they can be subscribed to separately.
+     */
+    private class RegistrationSubset implements EventHandler<Registration> {
+
+        private final Class<? extends Registration>[] handledEventTypes;
+
+        private RegistrationSubset(Class<? extends Registration>... handledEventTypes) {
+            this.handledEventTypes = handledEventTypes;
+        }
+
+        @Override
+        public Class<? extends Registration>[] getHandledEventTypes() {
+            return handledEventTypes;
+        }
+
+        @Override
+        public EventResult handleEvent(Registration event) {
+            return RegistrationHandler.this.handleEvent(event);
+        }
+    }
 }
@@ -0,0 +1,404 @@
+package pegasus.eventbus.topology.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import pegasus.eventbus.amqp.RoutingInfo;
+import pegasus.eventbus.client.EventHandler;
+import pegasus.eventbus.client.EventManager;
+import pegasus.eventbus.client.EventResult;
+import pegasus.eventbus.client.SubscriptionToken;
+import pegasus.eventbus.topology.TopologyRegistry;
+import pegasus.eventbus.topology.events.GetTopologySnapshot;
+import pegasus.eventbus.topology.events.ProposeEventRoute;
+import pegasus.eventbus.topology.events.ReplicaHeartBeat;
+import pegasus.eventbus.topology.events.TopologyDelta;
+import pegasus.eventbus.topology.events.TopologyUpdate;
+
+/**
+ * Keeps the registries of several replicas of the topology service consistent by electing a single writer among them.
+ * <p>
+ * Every replica broadcasts a {@link ReplicaHeartBeat}, and the longest running live replica is the writer. Only the writer changes the registry and publishes
+ * topology deltas, so the epoch and sequence numbers clients see remain a single unbroken lineage. The other replicas (followers) answer requests from their
+ * own copy of the registry, forward the routes they hand out to the writer as {@link ProposeEventRoute}s, and keep their copy current by applying the writer's
+ * topology deltas, fetching a full snapshot from the writer whenever they find they have fallen behind. A follower that becomes the writer therefore carries on
+ * the writer's lineage where it left off.
+ * <p>
+ * A replica does not put itself forward as the writer until it has been listening for other replicas for a full replica timeout, so that a newly started replica
+ * does not briefly write over the registry of one that is already running.
+ * <p>
+ * Proposals are kept until the proposing replica sees the route in its own registry, and are sent again with every heartbeat until then. So routes handed out
+ * while there is no writer, or while a writer that has died is still thought to be live, are recorded once a writer is elected; if that is this replica, it
+ * records them itself.
+ * <p>
+ * The election does not depend on the replicas' clocks agreeing. Heartbeats carry each replica's uptime, and a replica places the others' start times on its own
+ * clock from the first heartbeat it receives from each. Those estimates are off by the heartbeat's delivery time, so replicas started within that time of each
+ * other could disagree on the writer; replicas should not be started at the same instant.
+ */
+public class ReplicaCoordinator {
+
+    protected static final Logger           LOG                              = LoggerFactory.getLogger(ReplicaCoordinator.class);
+
+    public static final long                DEFAULT_HEARTBEAT_INTERVAL_MILLS = 5000;
+    public static final long                DEFAULT_REPLICA_TIMEOUT_MILLS    = 15000;
+
+    private final EventManager              eventManager;
+    private final TopologyRegistry          topologyRegistry;
+    private final long                      heartbeatIntervalMills;
+    private final long                      replicaTimeoutMills;
+    private final String                    replicaId                        = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, Replica> otherReplicas               = new ConcurrentHashMap<String, Replica>();
+    private final ConcurrentMap<String, RoutingInfo> proposedRoutes          = new ConcurrentHashMap<String, RoutingInfo>();
+    private final AtomicBoolean             resynchronizing                  = new AtomicBoolean();
+    private final List<SubscriptionToken>   subscriptionTokens               = new ArrayList<SubscriptionToken>();
+    private volatile UnknownEventTypeHandler routeWriter;
+    private volatile long                   startedAt;
+    private ScheduledExecutorService        scheduler;
+
+    public ReplicaCoordinator(EventManager eventManager, TopologyRegistry topologyRegistry) {
+        this(eventManager, topologyRegistry, DEFAULT_HEARTBEAT_INTERVAL_MILLS, DEFAULT_REPLICA_TIMEOUT_MILLS);
+    }
+
+    /**
+     * @param heartbeatIntervalMills
+     *            How often this replica announces itself to the others.
+     * @param replicaTimeoutMills
+     *            How long after its last heartbeat a replica is considered dead.
+     */
+    public ReplicaCoordinator(EventManager eventManager, TopologyRegistry topologyRegistry, long heartbeatIntervalMills, long replicaTimeoutMills) {
+        this.eventManager = eventManager;
+        this.topologyRegistry = topologyRegistry;
+        this.heartbeatIntervalMills = heartbeatIntervalMills;
+        this.replicaTimeoutMills = replicaTimeoutMills;
+        this.startedAt = System.currentTimeMillis();
+    }
+
+    public String getReplicaId() {
+        return replicaId;
+    }
+
+    /**
+     * Sets the handler through which the writer records the routes proposed by followers.
+     */
+    void setRouteWriter(UnknownEventTypeHandler routeWriter) {
+        this.routeWriter = routeWriter;
+    }
+
+    public synchronized void start() {
+
+        LOG.debug("Replica {} starting.", replicaId);
+
+        startedAt = System.currentTimeMillis();
+
+        subscriptionTokens.add(eventManager.subscribe(new ReplicaHeartBeatHandler()));
+        subscriptionTokens.add(eventManager.subscribe(new ProposeEventRouteHandler()));
+        subscriptionTokens.add(eventManager.subscribe(new GetTopologySnapshotHandler()));
+        subscriptionTokens.add(eventManager.subscribe(new TopologyDeltaHandler()));
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "topology-service-replica-heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    long uptime = System.currentTimeMillis() - startedAt;
+                    eventManager.publish(new ReplicaHeartBeat(replicaId, uptime, topologyRegistry.getEpoch(), topologyRegistry.getSequenceNumber()));
+                } catch (Throwable e) {
+                    LOG.error("Exception occurred attempting to send replica heartbeat.", e);
+                }
+                try {
+                    retryProposedRoutes(System.currentTimeMillis());
+                } catch (Throwable e) {
+                    LOG.error("Exception occurred attempting to re-send proposed routes.", e);
+                }
+            }
+        }, 0, heartbeatIntervalMills, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+
+        LOG.debug("Replica {} stopping.", replicaId);
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        for (SubscriptionToken token : subscriptionTokens) {
+            eventManager.unsubscribe(token);
+        }
+        subscriptionTokens.clear();
+    }
+
+    /**
+     * @return Is this replica the one that writes the registry?
+     */
+    public boolean isWriter() {
+        return replicaId.equals(getWriterId(System.currentTimeMillis()));
+    }
+
+    /**
+     * @return The id of the longest running live replica, or null if there is none (i.e. this replica has only just started and has heard from no other).
+     */
+    String getWriterId(long now) {
+
+        String writerId = null;
+        long writerStartedAt = 0;
+
+        if (now - startedAt >= replicaTimeoutMills) {
+            writerId = replicaId;
+            writerStartedAt = startedAt;
+        }
+
+        for (Map.Entry<String, Replica> entry : otherReplicas.entrySet()) {
+
+            Replica replica = entry.getValue();
+
+            if (now - replica.lastSeen > replicaTimeoutMills) {
+
+                LOG.info("Replica {} has stopped sending heartbeats.", entry.getKey());
+
+                otherReplicas.remove(entry.getKey(), replica);
+                continue;
+            }
+
+            if (writerId == null || replica.startedAt < writerStartedAt || (replica.startedAt == writerStartedAt && entry.getKey().compareTo(writerId) < 0)) {
+                writerId = entry.getKey();
+                writerStartedAt = replica.startedAt;
+            }
+        }
+
+        return writerId;
+    }
+
+    /**
+     * Asks the writer to add a route this replica has handed out. The proposal is sent again with each heartbeat until the route reaches this replica's registry.
+     */
+    void proposeRoute(String topic, RoutingInfo route) {
+
+        LOG.trace("Proposing route for event type {} to the writer.", topic);
+
+        proposedRoutes.put(topic, route);
+
+        eventManager.publish(new ProposeEventRoute(topic, route));
+    }
+
+    /**
+     * Forgets the proposed routes that have reached the registry, and sends the rest to the writer again, or records them if this replica is now the writer.
+     * Proposals are held while there is no writer at all.
+     */
+    void retryProposedRoutes(long now) {
+
+        for (Map.Entry<String, RoutingInfo> entry : proposedRoutes.entrySet()) {
+            if (entry.getValue().equals(topologyRegistry.getEventRoute(entry.getKey()))) {
+                proposedRoutes.remove(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (proposedRoutes.isEmpty()) {
+            return;
+        }
+
+        String writerId = getWriterId(now);
+        if (writerId == null) {
+
+            LOG.trace("No writer yet; holding {} proposed routes.", proposedRoutes.size());
+
+            return;
+        }
+
+        UnknownEventTypeHandler routeWriter = this.routeWriter;
+        if (writerId.equals(replicaId) && routeWriter != null) {
+
+            LOG.debug("Recording {} routes proposed while this replica was not the writer.", proposedRoutes.size());
+
+            Map<String, RoutingInfo> routes = new HashMap<String, RoutingInfo>(proposedRoutes);
+            for (Map.Entry<String, RoutingInfo> entry : routes.entrySet()) {
+                proposedRoutes.remove(entry.getKey(), entry.getValue());
+            }
+            routeWriter.writeRoutes(routes);
+            return;
+        }
+
+        LOG.trace("Proposing {} routes to writer {} again.", proposedRoutes.size(), writerId);
+
+        for (Map.Entry<String, RoutingInfo> entry : proposedRoutes.entrySet()) {
+            eventManager.publish(new ProposeEventRoute(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    void handleReplicaHeartBeat(ReplicaHeartBeat heartbeat, long now) {
+
+        if (replicaId.equals(heartbeat.getReplicaId())) {
+            return;
+        }
+
+        // The start time is estimated once, so that variations in delivery time cannot reorder replicas from one heartbeat to the next.
+        Replica known = otherReplicas.get(heartbeat.getReplicaId());
+        long startedAt = known == null ? now - heartbeat.getUptimeMills() : known.startedAt;
+        otherReplicas.put(heartbeat.getReplicaId(), new Replica(startedAt, now));
+
+        // Deltas normally keep a follower current; the writer's heartbeat catches any it has missed.
+        if (heartbeat.getReplicaId().equals(getWriterId(now))
+                && (!heartbeat.getEpoch().equals(topologyRegistry.getEpoch()) || heartbeat.getSequenceNumber() > topologyRegistry.getSequenceNumber())) {
+
+            LOG.debug("Registry at {} is behind writer's at {}; requesting a snapshot.", topologyRegistry.getVersion(), heartbeat.getEpoch() + ":"
+                    + heartbeat.getSequenceNumber());
+
+            requestSnapshot(heartbeat.getReplicaId());
+        }
+    }
+
+    void handleTopologyDelta(TopologyDelta update) {
+
+        if (isWriter()) {
+            return;
+        }
+
+        synchronized (topologyRegistry) {
+
+            long expectedSequenceNumber = topologyRegistry.getSequenceNumber() + 1;
+
+            if (!topologyRegistry.getEpoch().equals(update.getEpoch()) || update.getSequenceNumber() > expectedSequenceNumber) {
+
+                String writerId = getWriterId(System.currentTimeMillis());
+                if (writerId != null) {
+                    requestSnapshot(writerId);
+                }
+
+            } else if (update.getSequenceNumber() == expectedSequenceNumber) {
+
+                LOG.trace("Applying writer's topology delta at sequence number {}.", update.getSequenceNumber());
+
+                topologyRegistry.setRoutes(update.getEventRoutes(), update.getEventSetRoutes(), update.getSequenceNumber());
+            }
+        }
+    }
+
+    private void requestSnapshot(final String writerId) {
+
+        if (!resynchronizing.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread resync = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    @SuppressWarnings("unchecked")
+                    TopologyUpdate snapshot = eventManager.getResponseTo(new GetTopologySnapshot(writerId), 5000, TopologyUpdate.class);
+                    if (snapshot.getTopologyRegistry() != null) {
+
+                        LOG.debug("Adopting writer's registry at {}.", snapshot.getTopologyRegistry().getVersion());
+
+                        topologyRegistry.replaceWith(snapshot.getTopologyRegistry());
+                    }
+                } catch (Exception e) {
+                    LOG.error("Failed to obtain a snapshot of the registry from replica " + writerId + ".", e);
+                } finally {
+                    resynchronizing.set(false);
+                }
+            }
+        }, "topology-service-replica-resync");
+        resync.setDaemon(true);
+        resync.start();
+    }
+
+    private static final class Replica {
+
+        private final long startedAt;
+        private final long lastSeen;
+
+        private Replica(long startedAt, long lastSeen) {
+            this.startedAt = startedAt;
+            this.lastSeen = lastSeen;
+        }
+    }
+
+    private class ReplicaHeartBeatHandler implements EventHandler<ReplicaHeartBeat> {
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Class<? extends ReplicaHeartBeat>[] getHandledEventTypes() {
+            Class<?>[] handledEvents = { ReplicaHeartBeat.class };
+            return (Class<? extends ReplicaHeartBeat>[]) handledEvents;
+        }
+
+        @Override
+        public EventResult handleEvent(ReplicaHeartBeat event) {
+            handleReplicaHeartBeat(event, System.currentTimeMillis());
+            return EventResult.Handled;
+        }
+    }
+
+    private class ProposeEventRouteHandler implements EventHandler<ProposeEventRoute> {
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Class<? extends ProposeEventRoute>[] getHandledEventTypes() {
+            Class<?>[] handledEvents = { ProposeEventRoute.class };
+            return (Class<? extends ProposeEventRoute>[]) handledEvents;
+        }
+
+        @Override
+        public EventResult handleEvent(ProposeEventRoute event) {
+            UnknownEventTypeHandler routeWriter = ReplicaCoordinator.this.routeWriter;
+            if (routeWriter != null && isWriter()) {
+                routeWriter.recordRoute(event.getEventTypeCanonicalName(), event.getRoute());
+            }
+            return EventResult.Handled;
+        }
+    }
+
+    private class GetTopologySnapshotHandler implements EventHandler<GetTopologySnapshot> {
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Class<? extends GetTopologySnapshot>[] getHandledEventTypes() {
+            Class<?>[] handledEvents = { GetTopologySnapshot.class };
+            return (Class<? extends GetTopologySnapshot>[]) handledEvents;
+        }
+
+        @Override
+        public EventResult handleEvent(GetTopologySnapshot event) {
+            if (replicaId.equals(event.getReplicaId())) {
+                eventManager.respondTo(event, new TopologyUpdate(topologyRegistry));
+            }
+            return EventResult.Handled;
+        }
+    }
+
+    private class TopologyDeltaHandler implements EventHandler<TopologyDelta> {
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Class<? extends TopologyDelta>[] getHandledEventTypes() {
+            Class<?>[] handledEvents = { TopologyDelta.class };
+            return (Class<? extends TopologyDelta>[]) handledEvents;
+        }
+
+        @Override
+        public EventResult handleEvent(TopologyDelta event) {
+            handleTopologyDelta(event);
+            return EventResult.Handled;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package pegasus.eventbus.topology.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tracks a deadline for each of a set of keys and reports the keys whose deadlines have passed, at a cost proportional to the number of keys touched or
+ * expiring rather than the number tracked.
+ * <p>
+ * Deadlines are hashed into a ring of buckets, one per tick. Touching a key records its new deadline and adds it to that deadline's bucket without removing it
+ * from the bucket of its old deadline; such stale entries are discarded when their bucket comes round. Each call to {@link #advance(long)} visits only the
+ * buckets for the ticks that have fully elapsed since the last call.
+ * @param <K>
+ *            Type of the keys tracked.
+ */
+class TimingWheel<K> {
+
+    private final long                  timeoutMills;
+    private final long                  tickMills;
+    private final List<Set<K>>          buckets;
+    private final ConcurrentMap<K, Long> deadlines = new ConcurrentHashMap<K, Long>();
+    private long                        nextTick;
+
+    /**
+     * @param timeoutMills
+     *            How long after it is last touched a key expires.
+     * @param tickMills
+     *            The resolution of the wheel; a key is reported up to one tick after it expires.
+     * @param now
+     *            The current time.
+     */
+    TimingWheel(long timeoutMills, long tickMills, long now) {
+
+        if (tickMills < 1) {
+            throw new IllegalArgumentException("tickMills must be at least 1 but was " + tickMills);
+        }
+
+        this.timeoutMills = timeoutMills;
+        this.tickMills = tickMills;
+
+        // Enough buckets that no deadline can be a full turn of the wheel away.
+        int wheelSize = (int) (timeoutMills / tickMills) + 2;
+        buckets = new ArrayList<Set<K>>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(Collections.newSetFromMap(new ConcurrentHashMap<K, Boolean>()));
+        }
+
+        nextTick = now / tickMills;
+    }
+
+    /**
+     * Starts tracking the key, or pushes back its deadline if it is already tracked.
+     */
+    void touch(K key, long now) {
+        long deadline = now + timeoutMills;
+        deadlines.put(key, deadline);
+        bucketFor(deadline).add(key);
+    }
+
+    /**
+     * Stops tracking the key.
+     */
+    void remove(K key) {
+        deadlines.remove(key);
+    }
+
+    /**
+     * @return Is the key tracked and not yet reported as expired?
+     */
+    boolean contains(K key) {
+        return deadlines.containsKey(key);
+    }
+
+    /**
+     * Stops tracking and returns every key whose deadline is before now.
+     */
+    synchronized List<K> advance(long now) {
+
+        List<K> expired = new ArrayList<K>();
+
+        long currentTick = now / tickMills;
+        for (; nextTick < currentTick; nextTick++) {
+
+            Set<K> bucket = bucketFor(nextTick * tickMills);
+
+            for (Iterator<K> keys = bucket.iterator(); keys.hasNext();) {
+
+                K key = keys.next();
+                Long deadline = deadlines.get(key);
+
+                if (deadline == null) {
+                    keys.remove();
+                } else if (deadline < now) {
+                    keys.remove();
+                    // Fails if the key was touched since its deadline was read, in which case it has not expired.
+                    if (deadlines.remove(key, deadline)) {
+                        expired.add(key);
+                    }
+                } else if (bucketFor(deadline) != bucket) {
+                    // The key has been touched since it was put in this bucket.
+                    keys.remove();
+                }
+            }
+        }
+
+        return expired;
+    }
+
+    private Set<K> bucketFor(long time) {
+        return buckets.get((int) ((time / tickMills) % buckets.size()));
+    }
+}
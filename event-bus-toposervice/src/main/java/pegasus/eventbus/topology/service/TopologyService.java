@@ -12,20 +12,36 @@ public class TopologyService {
 
     private final RegistrationHandler   registrationHandler;
     private final UnknownEventTypeHandler unknownEventTypeHandler;
+    private final ReplicaCoordinator    replicaCoordinator;
     
     public TopologyService(
     		RegistrationHandler registrationHandler,
     		UnknownEventTypeHandler unknownEventTypeHandler) {
+        this(registrationHandler, unknownEventTypeHandler, null);
+    }
+
+    /**
+     * Creates one replica of a topology service run as several. The handlers should be given the same queue names in every replica so that the replicas share
+     * the load, and the unknown event type handler should be given the same replica coordinator.
+     */
+    public TopologyService(
+    		RegistrationHandler registrationHandler,
+    		UnknownEventTypeHandler unknownEventTypeHandler,
+    		ReplicaCoordinator replicaCoordinator) {
 
         LOG.debug("Initializing topology service object.");
 
         this.registrationHandler = registrationHandler;
         this.unknownEventTypeHandler = unknownEventTypeHandler;
+        this.replicaCoordinator = replicaCoordinator;
     }
 
     public void start() {
 
         LOG.trace("Starting topology service.");
+        if (replicaCoordinator != null) {
+            replicaCoordinator.start();
+        }
         registrationHandler.start();
         unknownEventTypeHandler.start();
     }
@@ -36,6 +52,9 @@ public class TopologyService {
 
         unknownEventTypeHandler.stop();
         registrationHandler.stop();
+        if (replicaCoordinator != null) {
+            replicaCoordinator.stop();
+        }
     }
 
     public static void main(String[] args) throws IOException {
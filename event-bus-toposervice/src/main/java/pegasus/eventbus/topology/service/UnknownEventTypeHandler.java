@@ -1,5 +1,8 @@
 package pegasus.eventbus.topology.service;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,8 +13,11 @@ import pegasus.eventbus.client.EventResult;
 import pegasus.eventbus.client.SubscriptionToken;
 
 import pegasus.eventbus.topology.TopologyRegistry;
+import pegasus.eventbus.topology.events.EventTypeRoutes;
 import pegasus.eventbus.topology.events.EventTypeRoutingInfo;
 import pegasus.eventbus.topology.events.GetEventTypeRoute;
+import pegasus.eventbus.topology.events.GetEventTypeRoutes;
+import pegasus.eventbus.topology.events.TopologyDelta;
 import pegasus.eventbus.topology.events.TopologyUpdate;
 
 public class UnknownEventTypeHandler implements EventHandler<GetEventTypeRoute> {
@@ -21,27 +27,63 @@ public class UnknownEventTypeHandler implements EventHandler<GetEventTypeRoute>
 	private EventManager eventManager;
 	private TopologyRegistry topologyRegistry;
 	private SubscriptionToken subscriptionToken;
+	private SubscriptionToken batchSubscriptionToken;
+	private String queueName;
+	private ReplicaCoordinator replicaCoordinator;
+	private boolean publishingLegacyTopologyUpdates;
 
 	public UnknownEventTypeHandler(EventManager eventManager, TopologyRegistry topologyRegistry) {
 		this.topologyRegistry = topologyRegistry;
 		this.eventManager = eventManager;
 	}
 
+	/**
+	 * Sets a named queue for this handler to consume from. Replicas of the topology service given the same queue name share the lookups between them as
+	 * competing consumers.
+	 */
+	public void setQueueName(String queueName) {
+		this.queueName = queueName;
+	}
+
+	/**
+	 * Coordinates this handler with the other replicas of the topology service: routes are only added to the registry by the replica elected to write it, to
+	 * which the others forward the routes they hand out.
+	 */
+	public void setReplicaCoordinator(ReplicaCoordinator replicaCoordinator) {
+		this.replicaCoordinator = replicaCoordinator;
+		replicaCoordinator.setRouteWriter(this);
+	}
+
+	/**
+	 * Sets whether the whole registry is also published as a TopologyUpdate after every delta, for clients from before deltas were introduced, which only
+	 * understand full snapshots. Off by default, as each snapshot carries every route and is sent on every change.
+	 */
+	public void setPublishingLegacyTopologyUpdates(boolean publishingLegacyTopologyUpdates) {
+		this.publishingLegacyTopologyUpdates = publishingLegacyTopologyUpdates;
+	}
+
 	public void start() {
 		LOG.debug("UnknownEventTypeHandler starting...");
-		subscriptionToken = eventManager.subscribe(this);
+		subscriptionToken = queueName == null ? eventManager.subscribe(this) : eventManager.subscribe(this, queueName);
+		GetEventTypeRoutesHandler batchHandler = new GetEventTypeRoutesHandler();
+		batchSubscriptionToken = queueName == null ? eventManager.subscribe(batchHandler) : eventManager.subscribe(batchHandler, queueName + ".batch");
 		LOG.debug("UnknownEventTypeHandler started.");
 	}
 
 	public void stop() {
 		LOG.debug("UnknownEventTypeHandler stopping...");
 		eventManager.unsubscribe(subscriptionToken);
+		if (batchSubscriptionToken != null) {
+			eventManager.unsubscribe(batchSubscriptionToken);
+			batchSubscriptionToken = null;
+		}
 		LOG.debug("UnknownEventTypeHandler stopped.");
 	}
 
 	@SuppressWarnings("unchecked")
 	public Class<GetEventTypeRoute>[] getHandledEventTypes() {
-		return new Class[] { GetEventTypeRoute.class };
+		Class<?>[] handledEvents = { GetEventTypeRoute.class };
+		return (Class<GetEventTypeRoute>[]) handledEvents;
 	}
 
 	public EventResult handleEvent(GetEventTypeRoute event) {
@@ -52,14 +94,109 @@ public class UnknownEventTypeHandler implements EventHandler<GetEventTypeRoute>
 			EventTypeRoutingInfo response = new EventTypeRoutingInfo(topic, route);
 			LOG.trace("Sending EventTypeRoutingInfo for event type: " + event.getEventTypeCanonicalName());
 			eventManager.respondTo(event, response);
-			topologyRegistry.setEventRoute(topic, route);
-			TopologyUpdate update = new TopologyUpdate();
-			update.setTopologyRegistry(topologyRegistry);
-			LOG.trace("Publishing TopologyUpdate after adding event type: " + event.getEventTypeCanonicalName());
-			eventManager.publish(update);
+			recordRoute(topic, route);
 			return EventResult.Handled;
 		} catch (Exception e) {
 			return EventResult.Failed;
 		}
 	}
+
+	/**
+	 * Records the route and, if it is new or has changed, broadcasts a delta carrying just that route. Recording and publishing happen under the registry's lock
+	 * so that deltas are published in sequence number order. A replica that does not write the registry proposes the route to the one that does instead.
+	 */
+	void recordRoute(String topic, RoutingInfo route) {
+		ReplicaCoordinator replicaCoordinator = this.replicaCoordinator;
+		if (replicaCoordinator != null && !replicaCoordinator.isWriter()) {
+			if (!route.equals(topologyRegistry.getEventRoute(topic))) {
+				replicaCoordinator.proposeRoute(topic, route);
+			}
+			return;
+		}
+		synchronized (topologyRegistry) {
+			if (topologyRegistry.hasEventRoute(topic) && route.equals(topologyRegistry.getEventRoute(topic))) {
+				LOG.trace("Route for event type " + topic + " is unchanged; no TopologyDelta needed.");
+				return;
+			}
+			topologyRegistry.setEventRoute(topic, route);
+			TopologyDelta update = new TopologyDelta(topologyRegistry.getEpoch(), topologyRegistry.getSequenceNumber(), topic, route);
+			LOG.trace("Publishing TopologyDelta after adding event type: " + topic);
+			publish(update);
+		}
+	}
+
+	/**
+	 * Records the routes as {@link #recordRoute(String, RoutingInfo)} does, but broadcasts those that are new or have changed together as a single delta.
+	 */
+	void recordRoutes(Map<String, RoutingInfo> routes) {
+		ReplicaCoordinator replicaCoordinator = this.replicaCoordinator;
+		if (replicaCoordinator != null && !replicaCoordinator.isWriter()) {
+			for (Map.Entry<String, RoutingInfo> entry : routes.entrySet()) {
+				if (!entry.getValue().equals(topologyRegistry.getEventRoute(entry.getKey()))) {
+					replicaCoordinator.proposeRoute(entry.getKey(), entry.getValue());
+				}
+			}
+			return;
+		}
+		writeRoutes(routes);
+	}
+
+	/**
+	 * Adds those of the routes that are new or have changed to the registry and broadcasts them as a single delta, whether or not this replica is the writer.
+	 */
+	void writeRoutes(Map<String, RoutingInfo> routes) {
+		synchronized (topologyRegistry) {
+			Map<String, RoutingInfo> changedRoutes = new HashMap<String, RoutingInfo>();
+			for (Map.Entry<String, RoutingInfo> entry : routes.entrySet()) {
+				if (!entry.getValue().equals(topologyRegistry.getEventRoute(entry.getKey()))) {
+					changedRoutes.put(entry.getKey(), entry.getValue());
+				}
+			}
+			if (changedRoutes.isEmpty()) {
+				LOG.trace("Routes for all " + routes.size() + " event types are unchanged; no TopologyDelta needed.");
+				return;
+			}
+			long sequenceNumber = topologyRegistry.getSequenceNumber() + 1;
+			topologyRegistry.setRoutes(changedRoutes, null, sequenceNumber);
+			TopologyDelta update = new TopologyDelta(topologyRegistry.getEpoch(), sequenceNumber, changedRoutes);
+			LOG.trace("Publishing TopologyDelta after adding " + changedRoutes.size() + " event types.");
+			publish(update);
+		}
+	}
+
+	/**
+	 * Publishes the delta, followed by the whole registry as a TopologyUpdate if legacy snapshots are enabled. Current clients do not subscribe to
+	 * TopologyUpdate, so the snapshot is only delivered to the older ones.
+	 */
+	private void publish(TopologyDelta delta) {
+		eventManager.publish(delta);
+		if (publishingLegacyTopologyUpdates) {
+			eventManager.publish(new TopologyUpdate(topologyRegistry));
+		}
+	}
+
+	private class GetEventTypeRoutesHandler implements EventHandler<GetEventTypeRoutes> {
+
+		@SuppressWarnings("unchecked")
+		public Class<? extends GetEventTypeRoutes>[] getHandledEventTypes() {
+			Class<?>[] handledEvents = { GetEventTypeRoutes.class };
+			return (Class<? extends GetEventTypeRoutes>[]) handledEvents;
+		}
+
+		public EventResult handleEvent(GetEventTypeRoutes event) {
+			try {
+				String[] topics = event.getEventTypeCanonicalNames();
+				LOG.debug("Handling GetEventTypeRoutes for " + topics.length + " event types.");
+				Map<String, RoutingInfo> routes = new HashMap<String, RoutingInfo>();
+				for (String topic : topics) {
+					routes.put(topic, new RoutingInfo("pegasus", topic));
+				}
+				eventManager.respondTo(event, new EventTypeRoutes(routes));
+				recordRoutes(routes);
+				return EventResult.Handled;
+			} catch (Exception e) {
+				return EventResult.Failed;
+			}
+		}
+	}
 }
@@ -20,7 +20,7 @@ import pegasus.eventbus.client.EventHandler;
 import pegasus.eventbus.client.EventResult;
 import pegasus.eventbus.topology.events.EventTypeRoutingInfo;
 import pegasus.eventbus.topology.events.GetEventTypeRoute;
-import pegasus.eventbus.topology.events.TopologyUpdate;
+import pegasus.eventbus.topology.events.TopologyDelta;
 import com.berico.testsupport.IntegrationTest;
 
 @Category(IntegrationTest.class)
@@ -52,7 +52,7 @@ public class FallbackTopologyManagerTest extends IntegrationTestBase {
             waitAtMost(5, TimeUnit.SECONDS).untilCall(to(handler).getReceivedEvent(), notNullValue());
         } catch (Exception e) {
             e.printStackTrace();
-            fail("Timeout occurred while waiting for TopologyUpdate event.");
+            fail("Timeout occurred while waiting for TopologyDelta event.");
         }
     }
 
@@ -65,29 +65,29 @@ public class FallbackTopologyManagerTest extends IntegrationTestBase {
 
     @Ignore
     @Test
-    public void gettingTheRouteForAnUnknownEventTypeShouldCauseATopologyUpdateContainingTheNewRouteToBeBroadcase() {
+    public void gettingTheRouteForAnUnknownEventTypeShouldCauseATopologyDeltaContainingTheNewRouteToBeBroadcase() {
         assertNotNull(handler.getReceivedEvent());
-        assertEquals(routeInfoResponseForNewType.getRouteInfo(), handler.getReceivedEvent().getTopologyRegistry().getEventRoute(nameOfNewType));
+        assertEquals(routeInfoResponseForNewType.getRouteInfo(), handler.getReceivedEvent().getEventRoutes().get(nameOfNewType));
     }
 
-    public class UpdateHandler implements EventHandler<TopologyUpdate> {
+    public class UpdateHandler implements EventHandler<TopologyDelta> {
 
-        private TopologyUpdate receivedEvent;
+        private TopologyDelta receivedEvent;
 
         @SuppressWarnings("unchecked")
         @Override
-        public Class<? extends TopologyUpdate>[] getHandledEventTypes() {
-            Class<?>[] handledEvents = { TopologyUpdate.class };
-            return (Class<? extends TopologyUpdate>[]) handledEvents;
+        public Class<? extends TopologyDelta>[] getHandledEventTypes() {
+            Class<?>[] handledEvents = { TopologyDelta.class };
+            return (Class<? extends TopologyDelta>[]) handledEvents;
         }
 
         @Override
-        public EventResult handleEvent(TopologyUpdate event) {
+        public EventResult handleEvent(TopologyDelta event) {
             receivedEvent = event;
             return EventResult.Handled;
         }
 
-        public TopologyUpdate getReceivedEvent() {
+        public TopologyDelta getReceivedEvent() {
             return receivedEvent;
         }
     }
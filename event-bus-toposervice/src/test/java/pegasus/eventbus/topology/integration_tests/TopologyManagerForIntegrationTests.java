@@ -11,6 +11,15 @@ public class TopologyManagerForIntegrationTests implements TopologyManager {
 		return new RoutingInfo("pegasus-test", RoutingInfo.ExchangeType.Topic, true, eventType.getCanonicalName());
 	}
 
+	@Override
+	public RoutingInfo[] getRoutingInfoForEvents(Class<?>[] eventTypes) {
+		RoutingInfo[] routes = new RoutingInfo[eventTypes.length];
+		for (int i = 0; i < eventTypes.length; i++) {
+			routes[i] = getRoutingInfoForEvent(eventTypes[i]);
+		}
+		return routes;
+	}
+
 	@Override
 	public RoutingInfo[] getRoutingInfoForNamedEventSet(String eventSetName) {
 		RoutingInfo[] routes = { new RoutingInfo("pegasus-test", RoutingInfo.ExchangeType.Topic, true, "#") };
@@ -1,12 +1,14 @@
 package pegasus.eventbus.topology.service;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 import pegasus.eventbus.topology.events.RegisterClient;
@@ -24,8 +26,9 @@ public class ClientRegistryTest {
     @Before
     public void beforeEachTest() {
         MockitoAnnotations.initMocks(this);
+        when(registerEvent.getClientName()).thenReturn("mockClient");
 
-        clientRegistry = new ClientRegistry();
+        clientRegistry = new ClientRegistry(1000, 100);
     }
 
     @Test
@@ -67,4 +70,53 @@ public class ClientRegistryTest {
         assertNotNull(clientRegistry);
     }
 
+    @Test
+    public void aClientThatStopsSendingHeartbeatsShouldBeReaped() {
+        RegisterClient client = new RegisterClient("clientName", "1.0");
+        clientRegistry.registerClient(client);
+
+        assertEquals(Arrays.asList(client), clientRegistry.reapExpiredClients(System.currentTimeMillis() + 5000));
+        assertFalse(clientRegistry.isRegistered("clientName"));
+    }
+
+    @Test
+    public void aClientSendingHeartbeatsShouldNotBeReaped() {
+        clientRegistry.registerClient(new RegisterClient("clientName", "1.0"));
+        clientRegistry.heartbeat("clientName");
+
+        assertTrue(clientRegistry.reapExpiredClients(System.currentTimeMillis()).isEmpty());
+        assertTrue(clientRegistry.isRegistered("clientName"));
+    }
+
+    @Test
+    public void aHeartbeatFromAnUnknownClientShouldRegisterIt() {
+        clientRegistry.heartbeat("clientName");
+
+        assertTrue(clientRegistry.isRegistered("clientName"));
+        assertEquals("clientName", clientRegistry.iterator().next().getClientName());
+    }
+
+    @Test
+    public void expiryListenersShouldBeNotifiedOfReapedClients() {
+        ClientExpiryListener listener = mock(ClientExpiryListener.class);
+        clientRegistry.attachClientExpiryListener(listener);
+        RegisterClient client = new RegisterClient("clientName", "1.0");
+        clientRegistry.registerClient(client);
+
+        clientRegistry.reapExpiredClients(System.currentTimeMillis() + 5000);
+
+        verify(listener).onClientExpired(client);
+    }
+
+    @Test
+    public void startingTheRegistryShouldReapDeadClientsInTheBackground() throws InterruptedException {
+        clientRegistry.registerClient(new RegisterClient("clientName", "1.0"));
+        clientRegistry.start();
+        try {
+            Thread.sleep(1500);
+            assertFalse(clientRegistry.isRegistered("clientName"));
+        } finally {
+            clientRegistry.stop();
+        }
+    }
 }
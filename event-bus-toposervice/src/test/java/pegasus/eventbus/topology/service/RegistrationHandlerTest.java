@@ -8,9 +8,12 @@ import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import pegasus.eventbus.amqp.RoutingInfo;
+import pegasus.eventbus.client.EventHandler;
 import pegasus.eventbus.client.EventManager;
 import pegasus.eventbus.client.EventResult;
 import pegasus.eventbus.client.SubscriptionToken;
@@ -18,6 +21,8 @@ import pegasus.eventbus.topology.TopologyRegistry;
 import pegasus.eventbus.topology.events.HeartBeat;
 import pegasus.eventbus.topology.events.RegisterClient;
 import pegasus.eventbus.topology.events.Registration;
+import pegasus.eventbus.topology.events.TopologyDelta;
+import pegasus.eventbus.topology.events.TopologyUpdate;
 import pegasus.eventbus.topology.events.UnregisterClient;
 import pegasus.eventbus.topology.service.ClientRegistry;
 import pegasus.eventbus.topology.service.RegistrationHandler;
@@ -29,7 +34,6 @@ public class RegistrationHandlerTest {
     private EventManager        eventManager;
     @Mock
     private ClientRegistry      clientRegistry;
-    @Mock
     private TopologyRegistry    topologyRegistry;
     @Mock
     private SubscriptionToken   subscriptionToken;
@@ -38,6 +42,9 @@ public class RegistrationHandlerTest {
     public void beforeEachTest() {
         MockitoAnnotations.initMocks(this);
 
+        topologyRegistry = new TopologyRegistry();
+        topologyRegistry.setEventRoute("topic", new RoutingInfo("exchange", "topic"));
+
         registrationHandler = new RegistrationHandler(eventManager, clientRegistry, topologyRegistry);
     }
 
@@ -46,6 +53,7 @@ public class RegistrationHandlerTest {
         when(eventManager.subscribe(registrationHandler)).thenReturn(subscriptionToken);
         registrationHandler.start();
         verify(eventManager).subscribe(registrationHandler);
+        verify(clientRegistry).start();
     }
 
     @Test
@@ -54,6 +62,27 @@ public class RegistrationHandlerTest {
         registrationHandler.start();
         registrationHandler.stop();
         verify(eventManager).unsubscribe(subscriptionToken);
+        verify(clientRegistry).stop();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void settingAQueueNameShouldShareRegistrationsButNotHeartbeats() {
+        registrationHandler.setQueueName("topology-service");
+        registrationHandler.start();
+
+        ArgumentCaptor<EventHandler> sharedHandler = ArgumentCaptor.forClass(EventHandler.class);
+        verify(eventManager).subscribe(sharedHandler.capture(), eq("topology-service"));
+        assertEquals(Arrays.asList(RegisterClient.class), Arrays.asList(sharedHandler.getValue().getHandledEventTypes()));
+
+        ArgumentCaptor<EventHandler> replicaHandler = ArgumentCaptor.forClass(EventHandler.class);
+        verify(eventManager).subscribe(replicaHandler.capture());
+        List<Class<?>> replicaEventTypes = Arrays.<Class<?>> asList(replicaHandler.getValue().getHandledEventTypes());
+        assertTrue(replicaEventTypes.contains(HeartBeat.class));
+        assertTrue(replicaEventTypes.contains(UnregisterClient.class));
+
+        replicaHandler.getValue().handleEvent(new HeartBeat("clientName"));
+        verify(clientRegistry).heartbeat("clientName");
     }
 
     @Test
@@ -73,6 +102,29 @@ public class RegistrationHandlerTest {
         verify(clientRegistry).registerClient(registerEvent);
     }
 
+    @Test
+    public void registeringAClientWithAnOutdatedVersionShouldRespondWithTheFullTopology() {
+        RegisterClient registerEvent = new RegisterClient("clientName", "1.0");
+        registrationHandler.handleEvent(registerEvent);
+
+        ArgumentCaptor<TopologyUpdate> updateCaptor = ArgumentCaptor.forClass(TopologyUpdate.class);
+        verify(eventManager).respondTo(eq(registerEvent), updateCaptor.capture());
+        assertEquals(topologyRegistry.getVersion(), updateCaptor.getValue().getTopologyRegistry().getVersion());
+        assertEquals(new RoutingInfo("exchange", "topic"), updateCaptor.getValue().getTopologyRegistry().getEventRoute("topic"));
+    }
+
+    @Test
+    public void registeringAClientWithTheCurrentVersionShouldNotResendTheTopology() {
+        RegisterClient registerEvent = new RegisterClient("clientName", topologyRegistry.getVersion());
+        registrationHandler.handleEvent(registerEvent);
+
+        ArgumentCaptor<TopologyDelta> deltaCaptor = ArgumentCaptor.forClass(TopologyDelta.class);
+        verify(eventManager).respondTo(eq(registerEvent), deltaCaptor.capture());
+        assertEquals(topologyRegistry.getEpoch(), deltaCaptor.getValue().getEpoch());
+        assertEquals(topologyRegistry.getSequenceNumber(), deltaCaptor.getValue().getSequenceNumber());
+        assertNull(deltaCaptor.getValue().getEventRoutes());
+    }
+
     @Test
     public void handleUnregisterClientEventTest() {
         String clientName = "clientName";
@@ -86,6 +138,7 @@ public class RegistrationHandlerTest {
         String clientName = "clientName";
         HeartBeat heartbeatEvent = new HeartBeat(clientName);
         assertEquals(EventResult.Handled, registrationHandler.handleEvent(heartbeatEvent));
+        verify(clientRegistry).heartbeat(clientName);
         verify(clientRegistry, never()).registerClient(any(RegisterClient.class));
         verify(clientRegistry, never()).unregisterClient(any(UnregisterClient.class));
     }
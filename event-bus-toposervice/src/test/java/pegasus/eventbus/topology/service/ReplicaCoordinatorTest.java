@@ -0,0 +1,147 @@
+package pegasus.eventbus.topology.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import pegasus.eventbus.amqp.RoutingInfo;
+import pegasus.eventbus.client.EventManager;
+import pegasus.eventbus.topology.TopologyRegistry;
+import pegasus.eventbus.topology.events.GetTopologySnapshot;
+import pegasus.eventbus.topology.events.ProposeEventRoute;
+import pegasus.eventbus.topology.events.ReplicaHeartBeat;
+import pegasus.eventbus.topology.events.TopologyDelta;
+import pegasus.eventbus.topology.events.TopologyUpdate;
+
+public class ReplicaCoordinatorTest {
+
+    private static final long  TIMEOUT = 60000;
+
+    @Mock
+    private EventManager       eventManager;
+
+    private TopologyRegistry   topologyRegistry;
+    private ReplicaCoordinator coordinator;
+    private long               now;
+    private RoutingInfo        route   = new RoutingInfo("pegasus", "topic");
+
+    @Before
+    public void beforeEachTest() {
+        MockitoAnnotations.initMocks(this);
+
+        topologyRegistry = new TopologyRegistry();
+        coordinator = new ReplicaCoordinator(eventManager, topologyRegistry, 1000, TIMEOUT);
+        now = System.currentTimeMillis();
+
+        new UnknownEventTypeHandler(eventManager, topologyRegistry).setReplicaCoordinator(coordinator);
+    }
+
+    @Test
+    public void aNewReplicaShouldNotWriteUntilItHasListenedForOtherReplicas() {
+        assertNull(coordinator.getWriterId(now));
+        assertEquals(coordinator.getReplicaId(), coordinator.getWriterId(now + TIMEOUT));
+    }
+
+    @Test
+    public void theLongestRunningReplicaShouldWrite() {
+        coordinator.handleReplicaHeartBeat(new ReplicaHeartBeat("older", 1000, topologyRegistry.getEpoch(), 0), now);
+        coordinator.handleReplicaHeartBeat(new ReplicaHeartBeat("newer", 0, topologyRegistry.getEpoch(), 0), now);
+
+        assertEquals("older", coordinator.getWriterId(now + TIMEOUT));
+    }
+
+    @Test
+    public void replicasShouldBeOrderedByTheUptimeTheyFirstReported() {
+        coordinator.handleReplicaHeartBeat(new ReplicaHeartBeat("older", 1000, topologyRegistry.getEpoch(), 0), now);
+        coordinator.handleReplicaHeartBeat(new ReplicaHeartBeat("newer", 990, topologyRegistry.getEpoch(), 0), now);
+        // A heartbeat delivered faster than the first does not make its replica any older.
+        coordinator.handleReplicaHeartBeat(new ReplicaHeartBeat("newer", 1020, topologyRegistry.getEpoch(), 0), now + 10);
+
+        assertEquals("older", coordinator.getWriterId(now + TIMEOUT));
+    }
+
+    @Test
+    public void aReplicaThatStopsSendingHeartbeatsShouldNoLongerWrite() {
+        coordinator.handleReplicaHeartBeat(new ReplicaHeartBeat("older", 1000, topologyRegistry.getEpoch(), 0), now);
+
+        assertEquals(coordinator.getReplicaId(), coordinator.getWriterId(now + TIMEOUT + 1));
+    }
+
+    @Test
+    public void aFollowerShouldApplyTheWritersDeltasInSequence() {
+        coordinator.handleReplicaHeartBeat(new ReplicaHeartBeat("writer", 1000, topologyRegistry.getEpoch(), 0), now);
+        RoutingInfo route = new RoutingInfo("pegasus", "topic");
+
+        coordinator.handleTopologyDelta(new TopologyDelta(topologyRegistry.getEpoch(), 1, "topic", route));
+
+        assertEquals(route, topologyRegistry.getEventRoute("topic"));
+        assertEquals(1, topologyRegistry.getSequenceNumber());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void aFollowerBehindTheWriterShouldAdoptTheWritersRegistry() throws InterruptedException, TimeoutException {
+        TopologyRegistry writersRegistry = new TopologyRegistry();
+        writersRegistry.setEventRoute("topic", new RoutingInfo("pegasus", "topic"));
+        when(eventManager.getResponseTo(any(GetTopologySnapshot.class), anyInt(), eq(TopologyUpdate.class))).thenReturn(new TopologyUpdate(writersRegistry));
+
+        coordinator.handleReplicaHeartBeat(new ReplicaHeartBeat("writer", 1000, writersRegistry.getEpoch(), writersRegistry.getSequenceNumber()), now);
+
+        verify(eventManager, timeout(1000)).getResponseTo(any(GetTopologySnapshot.class), anyInt(), eq(TopologyUpdate.class));
+        for (int i = 0; i < 100 && !writersRegistry.getVersion().equals(topologyRegistry.getVersion()); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(writersRegistry.getVersion(), topologyRegistry.getVersion());
+        assertTrue(topologyRegistry.hasEventRoute("topic"));
+    }
+
+    @Test
+    public void aFollowerInStepWithTheWriterShouldNotRequestASnapshot() throws InterruptedException, TimeoutException {
+        coordinator.handleReplicaHeartBeat(new ReplicaHeartBeat("writer", 1000, topologyRegistry.getEpoch(), topologyRegistry.getSequenceNumber()), now);
+
+        Thread.sleep(100);
+        verify(eventManager, never()).getResponseTo(any(GetTopologySnapshot.class), anyInt(), eq(TopologyUpdate.class));
+    }
+
+    @Test
+    public void routesProposedBeforeAnyWriterIsElectedShouldBeRecordedOnceOneIs() {
+        coordinator.proposeRoute("topic", route);
+
+        coordinator.retryProposedRoutes(now);
+        assertFalse(topologyRegistry.hasEventRoute("topic"));
+
+        coordinator.retryProposedRoutes(now + TIMEOUT);
+        assertEquals(route, topologyRegistry.getEventRoute("topic"));
+        verify(eventManager).publish(isA(TopologyDelta.class));
+    }
+
+    @Test
+    public void routesProposedToADeadWriterShouldBeProposedAgainUntilTheyAreRecorded() {
+        coordinator.handleReplicaHeartBeat(new ReplicaHeartBeat("writer", 1000, topologyRegistry.getEpoch(), 0), now);
+        coordinator.proposeRoute("topic", route);
+
+        coordinator.retryProposedRoutes(now + 1000);
+        verify(eventManager, times(2)).publish(isA(ProposeEventRoute.class));
+        assertFalse(topologyRegistry.hasEventRoute("topic"));
+
+        coordinator.retryProposedRoutes(now + TIMEOUT + 1);
+        assertEquals(route, topologyRegistry.getEventRoute("topic"));
+    }
+
+    @Test
+    public void routesThatHaveReachedTheRegistryShouldNotBeProposedAgain() {
+        coordinator.handleReplicaHeartBeat(new ReplicaHeartBeat("writer", 1000, topologyRegistry.getEpoch(), 0), now);
+        coordinator.proposeRoute("topic", route);
+
+        coordinator.handleTopologyDelta(new TopologyDelta(topologyRegistry.getEpoch(), 1, "topic", route));
+        coordinator.retryProposedRoutes(now + 1000);
+
+        verify(eventManager, times(1)).publish(isA(ProposeEventRoute.class));
+    }
+}
@@ -0,0 +1,79 @@
+package pegasus.eventbus.topology.service;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+    private static final long   START = 1000000;
+
+    private TimingWheel<String> wheel;
+
+    @Before
+    public void beforeEachTest() {
+        wheel = new TimingWheel<String>(1000, 100, START);
+    }
+
+    @Test
+    public void aKeyShouldNotExpireBeforeItsTimeout() {
+        wheel.touch("client", START);
+
+        assertEquals(Collections.emptyList(), wheel.advance(START + 900));
+        assertTrue(wheel.contains("client"));
+    }
+
+    @Test
+    public void aKeyShouldExpireWithinOneTickOfItsTimeout() {
+        wheel.touch("client", START);
+
+        assertEquals(Arrays.asList("client"), wheel.advance(START + 1100));
+        assertFalse(wheel.contains("client"));
+    }
+
+    @Test
+    public void anExpiredKeyShouldOnlyBeReportedOnce() {
+        wheel.touch("client", START);
+        wheel.advance(START + 1100);
+
+        assertEquals(Collections.emptyList(), wheel.advance(START + 5000));
+    }
+
+    @Test
+    public void touchingAKeyShouldPushBackItsDeadline() {
+        wheel.touch("client", START);
+        wheel.advance(START + 800);
+        wheel.touch("client", START + 800);
+
+        assertEquals(Collections.emptyList(), wheel.advance(START + 1500));
+        assertEquals(Arrays.asList("client"), wheel.advance(START + 1900));
+    }
+
+    @Test
+    public void aRemovedKeyShouldNotExpire() {
+        wheel.touch("client", START);
+        wheel.remove("client");
+
+        assertEquals(Collections.emptyList(), wheel.advance(START + 1100));
+    }
+
+    @Test
+    public void keysShouldExpireEvenIfTheWheelIsAdvancedLate() {
+        wheel.touch("client", START);
+        wheel.touch("anotherClient", START + 500);
+
+        assertEquals(2, wheel.advance(START + 10000).size());
+    }
+
+    @Test
+    public void keysTouchedAfterALateAdvanceShouldStillExpire() {
+        wheel.advance(START + 10000);
+        wheel.touch("client", START + 10000);
+
+        assertEquals(Arrays.asList("client"), wheel.advance(START + 11100));
+    }
+}
@@ -42,4 +42,16 @@ public class TopologyServiceTest {
         topologyService.stop();
         verify(registrationHandler).stop();
     }
+
+    @Test
+    public void aReplicatedServiceShouldStartAndStopItsReplicaCoordinator() {
+        ReplicaCoordinator replicaCoordinator = mock(ReplicaCoordinator.class);
+        topologyService = new TopologyService(registrationHandler, unknownEventTypeHandler, replicaCoordinator);
+
+        topologyService.start();
+        verify(replicaCoordinator).start();
+
+        topologyService.stop();
+        verify(replicaCoordinator).stop();
+    }
 }
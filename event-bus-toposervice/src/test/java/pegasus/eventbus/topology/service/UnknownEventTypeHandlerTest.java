@@ -3,6 +3,9 @@ package pegasus.eventbus.topology.service;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.junit.Before;
@@ -14,11 +17,15 @@ import org.mockito.MockitoAnnotations;
 
 import pegasus.eventbus.amqp.RoutingInfo;
 import pegasus.eventbus.amqp.RoutingInfo.ExchangeType;
+import pegasus.eventbus.client.EventHandler;
 import pegasus.eventbus.client.EventManager;
 import pegasus.eventbus.client.SubscriptionToken;
 import pegasus.eventbus.topology.TopologyRegistry;
+import pegasus.eventbus.topology.events.EventTypeRoutes;
 import pegasus.eventbus.topology.events.EventTypeRoutingInfo;
 import pegasus.eventbus.topology.events.GetEventTypeRoute;
+import pegasus.eventbus.topology.events.GetEventTypeRoutes;
+import pegasus.eventbus.topology.events.TopologyDelta;
 import pegasus.eventbus.topology.events.TopologyUpdate;
 
 public class UnknownEventTypeHandlerTest {
@@ -70,9 +77,93 @@ public class UnknownEventTypeHandlerTest {
     public void handlingGetEventTypeRouteShouldUpdateTheTopologyAndPublishTheUpdatedVersion() {
     	InOrder inOrder = inOrder(topologyRegistry, eventManager);
     	handler.handleEvent(incommingRequest);
-    	ArgumentCaptor<TopologyUpdate> updateCaptor = ArgumentCaptor.forClass(TopologyUpdate.class);
+    	ArgumentCaptor<TopologyDelta> deltaCaptor = ArgumentCaptor.forClass(TopologyDelta.class);
     	inOrder.verify(topologyRegistry).setEventRoute(newEventTypeName, expectedRoute);
-    	inOrder.verify(eventManager).publish(updateCaptor.capture());
-       	assertEquals(topologyRegistry, updateCaptor.getValue().getTopologyRegistry());
+    	inOrder.verify(eventManager).publish(deltaCaptor.capture());
+       	assertEquals(expectedRoute, deltaCaptor.getValue().getEventRoutes().get(newEventTypeName));
+    }
+
+    @Test
+    public void theWholeTopologyShouldNotBePublishedByDefault() {
+    	handler.handleEvent(incommingRequest);
+    	verify(eventManager, never()).publish(isA(TopologyUpdate.class));
+    }
+
+    @Test
+    public void clientsFromBeforeDeltasShouldAlsoBeSentTheWholeTopologyWhenEnabled() {
+    	handler.setPublishingLegacyTopologyUpdates(true);
+    	InOrder inOrder = inOrder(eventManager);
+    	handler.handleEvent(incommingRequest);
+    	inOrder.verify(eventManager).publish(isA(TopologyDelta.class));
+    	inOrder.verify(eventManager).publish(isA(TopologyUpdate.class));
+    }
+
+    @Test
+    public void settingAQueueNameShouldSubscribeToTheNamedQueue() {
+        handler.setQueueName("topology-service");
+        handler.start();
+        verify(eventManager).subscribe(handler, "topology-service");
+    }
+
+    @Test
+    public void aReplicaThatDoesNotWriteTheRegistryShouldProposeTheRouteInstead() {
+        ReplicaCoordinator replicaCoordinator = mock(ReplicaCoordinator.class);
+        handler.setReplicaCoordinator(replicaCoordinator);
+
+        handler.handleEvent(incommingRequest);
+
+        verify(replicaCoordinator).proposeRoute(newEventTypeName, expectedRoute);
+        verify(topologyRegistry, never()).setEventRoute(anyString(), any(RoutingInfo.class));
+        verify(eventManager, never()).publish(any());
+    }
+
+    @Test
+    public void theReplicaThatWritesTheRegistryShouldRecordTheRoute() {
+        ReplicaCoordinator replicaCoordinator = mock(ReplicaCoordinator.class);
+        when(replicaCoordinator.isWriter()).thenReturn(true);
+        handler.setReplicaCoordinator(replicaCoordinator);
+
+        handler.handleEvent(incommingRequest);
+
+        verify(topologyRegistry).setEventRoute(newEventTypeName, expectedRoute);
+        verify(replicaCoordinator, never()).proposeRoute(anyString(), any(RoutingInfo.class));
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Test
+    public void handlingGetEventTypeRoutesShouldRespondWithEveryRouteAndPublishThemAsOneUpdate() {
+        String otherEventTypeName = UUID.randomUUID().toString();
+        GetEventTypeRoutes batchRequest = new GetEventTypeRoutes(newEventTypeName, otherEventTypeName);
+        when(topologyRegistry.getSequenceNumber()).thenReturn(3L);
+
+        handler.start();
+        ArgumentCaptor<EventHandler> handlerCaptor = ArgumentCaptor.forClass(EventHandler.class);
+        verify(eventManager, times(2)).subscribe(handlerCaptor.capture());
+        List<EventHandler> subscribed = handlerCaptor.getAllValues();
+        EventHandler batchHandler = subscribed.get(0) == handler ? subscribed.get(1) : subscribed.get(0);
+        batchHandler.handleEvent(batchRequest);
+
+        ArgumentCaptor<EventTypeRoutes> responseCaptor = ArgumentCaptor.forClass(EventTypeRoutes.class);
+        verify(eventManager).respondTo(eq(batchRequest), responseCaptor.capture());
+        assertEquals(expectedRoute, responseCaptor.getValue().getRoutes().get(newEventTypeName));
+        assertEquals(new RoutingInfo("pegasus", otherEventTypeName), responseCaptor.getValue().getRoutes().get(otherEventTypeName));
+
+        ArgumentCaptor<Object> publishedCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(eventManager).publish(publishedCaptor.capture());
+        TopologyDelta delta = (TopologyDelta) publishedCaptor.getValue();
+        assertEquals(4L, delta.getSequenceNumber());
+        assertEquals(2, delta.getEventRoutes().size());
+        verify(topologyRegistry).setRoutes(delta.getEventRoutes(), null, 4L);
+    }
+
+    @Test
+    public void recordingRoutesThatAreAllKnownShouldPublishNothing() {
+        when(topologyRegistry.getEventRoute(newEventTypeName)).thenReturn(expectedRoute);
+        Map<String, RoutingInfo> routes = new HashMap<String, RoutingInfo>();
+        routes.put(newEventTypeName, expectedRoute);
+
+        handler.recordRoutes(routes);
+
+        verify(eventManager, never()).publish(any());
     }
 }